@@ -0,0 +1,169 @@
+package org.sekoph.videoservice.benchmark;
+
+import io.minio.BucketExistsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.UploadObjectArgs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.processing.FfmpegProcessLimiter;
+import org.sekoph.videoservice.processing.FrameExtractionEngine;
+import org.sekoph.videoservice.processing.FrameExtractionMode;
+import org.sekoph.videoservice.processing.MediaProbe;
+import org.sekoph.videoservice.processing.PresignedUrlInputResolver;
+import org.sekoph.videoservice.processing.ScratchCacheInputResolver;
+import org.sekoph.videoservice.processing.SegmentationEngine;
+import org.sekoph.videoservice.processing.VideoInput;
+import org.sekoph.videoservice.processing.VideoInputResolver;
+import org.sekoph.videoservice.storage.MinioObjectStore;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two ways ffmpeg reads an original from MinIO: presigned URLs and the local scratch cache, cold (the first
+ * stage pays the download) and warm (every later stage of the same video). Each invocation is what a video goes
+ * through, a probe, one segment pass and a frame range from the middle, which is the access pattern that profits
+ * most from range reads.
+ * <p>
+ * Requires ffmpeg and ffprobe on the PATH and a MinIO server, given to the forked JVM as system properties:
+ * {@code -jvmArgsAppend "-Dminio.endpoint=http://localhost:9000 -Dminio.accessKey=minioadmin
+ * -Dminio.secretKey=minioadmin"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class InputResolverBenchmark {
+
+    private static final String BUCKET = "input-resolver-benchmark";
+    private static final String CLIP = "clip.mp4";
+    private static final int SEGMENT_DURATION = 300;
+    private static final int FRAME_RANGE = 60;
+
+    // seconds of 720p25 video
+    @Param({"30", "1800"})
+    public int clipSeconds;
+
+    @Param({"presigned", "scratch-cold", "scratch-warm"})
+    public String resolver;
+
+    private Path workDirectory;
+    private MinioClient minioClient;
+    private MinioObjectStore objectStore;
+    private MediaProbe mediaProbe;
+    private SegmentationEngine segmentationEngine;
+    private FrameExtractionEngine frameExtractionEngine;
+    private VideoInputResolver inputResolver;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void uploadClip() throws Exception {
+        String endpoint = System.getProperty("minio.endpoint", "http://localhost:9000");
+        String accessKey = System.getProperty("minio.accessKey", "minioadmin");
+        String secretKey = System.getProperty("minio.secretKey", "minioadmin");
+        minioClient = MinioClient.builder().endpoint(endpoint).credentials(accessKey, secretKey).build();
+        objectStore = new MinioObjectStore(MinioAsyncClient.builder().endpoint(endpoint)
+                .credentials(accessKey, secretKey).build(), BUCKET, BUCKET, BUCKET, DataSize.ofMegabytes(64),
+                DataSize.ofMegabytes(16), 4);
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(BUCKET).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(BUCKET).build());
+        }
+
+        workDirectory = Files.createTempDirectory("input_resolver_benchmark");
+        Path file = workDirectory.resolve(CLIP);
+        Process process = new ProcessBuilder("ffmpeg", "-v", "error", "-nostdin", "-y",
+                "-f", "lavfi", "-i", "testsrc2=size=1280x720:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:sample_rate=44100",
+                "-t", String.valueOf(clipSeconds),
+                "-c:v", "libx264", "-preset", "ultrafast", "-g", "50",
+                "-c:a", "aac", file.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("ffmpeg could not generate the test clip");
+        }
+        minioClient.uploadObject(UploadObjectArgs.builder().bucket(BUCKET).object(CLIP)
+                .filename(file.toString()).contentType("video/mp4").build());
+        Files.delete(file);
+
+        FfmpegProcessLimiter limiter = FfmpegProcessLimiter.unlimited();
+        mediaProbe = new MediaProbe(limiter, true);
+        segmentationEngine = new SegmentationEngine(limiter);
+        frameExtractionEngine = new FrameExtractionEngine(limiter);
+        if (resolver.equals("presigned")) {
+            inputResolver = new PresignedUrlInputResolver(minioClient, 1);
+        } else if (resolver.equals("scratch-warm")) {
+            inputResolver = scratchCache();
+            // download the clip before the first measured stage
+            inputResolver.resolve(BUCKET, CLIP).close();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createOutputDirectory() throws IOException {
+        if (resolver.equals("scratch-cold")) {
+            inputResolver = scratchCache();
+        }
+        outputDirectory = Files.createDirectory(workDirectory.resolve("out_" + UUID.randomUUID()));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutputDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(outputDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteClip() throws Exception {
+        minioClient.removeObject(RemoveObjectArgs.builder().bucket(BUCKET).object(CLIP).build());
+        FileSystemUtils.deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public int stages() throws Exception {
+        try (VideoInput input = inputResolver.resolve(BUCKET, CLIP)) {
+            mediaProbe.probe(input.location());
+        }
+
+        int segments;
+        Path segmentDirectory = Files.createDirectory(outputDirectory.resolve("segments"));
+        try (VideoInput input = inputResolver.resolve(BUCKET, CLIP)) {
+            segments = segmentationEngine.segment(input.location(), segmentDirectory, SEGMENT_DURATION,
+                    segment -> Files.delete(segment.file()));
+        }
+
+        Path frameDirectory = Files.createDirectory(outputDirectory.resolve("frames"));
+        long rangeStart = Math.max(0, clipSeconds / 2 - FRAME_RANGE / 2);
+        try (VideoInput input = inputResolver.resolve(BUCKET, CLIP)) {
+            frameExtractionEngine.extract(input.location(), frameDirectory, FrameExtractionMode.INTERVAL, 10, 0.4,
+                    rangeStart, rangeStart + FRAME_RANGE, frame -> Files.delete(frame.file()));
+        }
+        return segments;
+    }
+
+    private ScratchCacheInputResolver scratchCache() throws IOException {
+        // the cache empties its directory when it is created
+        return new ScratchCacheInputResolver(objectStore, workDirectory.resolve("scratch"), DataSize.ofGigabytes(10));
+    }
+}
@@ -0,0 +1,195 @@
+package org.sekoph.videoservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.sekoph.videoservice.processing.FanOut;
+import org.sekoph.videoservice.processing.FfmpegProcessLimiter;
+import org.sekoph.videoservice.processing.FrameExtractionEngine;
+import org.sekoph.videoservice.processing.FrameExtractionMode;
+import org.sekoph.videoservice.processing.MediaProbe;
+import org.sekoph.videoservice.processing.Rendition;
+import org.sekoph.videoservice.processing.SegmentFormat;
+import org.sekoph.videoservice.processing.SegmentationEngine;
+import org.sekoph.videoservice.processing.SpriteSheetBuilder;
+import org.sekoph.videoservice.processing.TaskPlanner;
+import org.sekoph.videoservice.storage.InMemoryObjectStore;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The processing stages run on a real clip, generated once per trial with ffmpeg's lavfi test sources: probing,
+ * segmenting by stream copy and by encoding a rung, frame extraction with sprite tiling, and every task of the clip
+ * run in parallel with the segments and frames uploaded to an in-memory store. Requires ffmpeg and ffprobe on the
+ * PATH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PipelineBenchmark {
+
+    private static final List<Rendition> LADDER = List.of(Rendition.P240, Rendition.P360, Rendition.P480,
+            Rendition.P720);
+    private static final int SEGMENT_DURATION = 6;
+    private static final int FRAME_INTERVAL = 2;
+
+    // seconds of 720p30 video
+    @Param({"30", "120"})
+    public int clipSeconds;
+
+    // concurrent ffmpeg processes in the end-to-end run
+    @Param({"4"})
+    public int parallelism;
+
+    private Path workDirectory;
+    private String clip;
+    private MediaMetadata metadata;
+    private MediaProbe mediaProbe;
+    private SegmentationEngine segmentationEngine;
+    private FrameExtractionEngine frameExtractionEngine;
+    private ObjectStore objectStore;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateClip() throws Exception {
+        workDirectory = Files.createTempDirectory("pipeline_benchmark");
+        Path file = workDirectory.resolve("clip.mp4");
+        Process process = new ProcessBuilder("ffmpeg", "-v", "error", "-y",
+                "-f", "lavfi", "-i", "testsrc2=duration=" + clipSeconds + ":size=1280x720:rate=30",
+                "-f", "lavfi", "-i", "sine=frequency=440:duration=" + clipSeconds,
+                "-c:v", "libx264", "-preset", "veryfast", "-pix_fmt", "yuv420p", "-g", "60",
+                "-c:a", "aac", "-b:a", "128k", "-shortest", file.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("ffmpeg could not generate the test clip");
+        }
+        clip = file.toString();
+
+        FfmpegProcessLimiter limiter = FfmpegProcessLimiter.unlimited();
+        mediaProbe = new MediaProbe(limiter, true);
+        segmentationEngine = new SegmentationEngine(limiter);
+        frameExtractionEngine = new FrameExtractionEngine(limiter);
+        objectStore = new InMemoryObjectStore();
+        metadata = mediaProbe.probe(clip);
+    }
+
+    @Setup(Level.Iteration)
+    public void createOutputDirectory() throws IOException {
+        outputDirectory = Files.createDirectory(workDirectory.resolve("out_" + UUID.randomUUID()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutputDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(outputDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteClip() throws IOException {
+        FileSystemUtils.deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public MediaMetadata probe() throws Exception {
+        return mediaProbe.probe(clip);
+    }
+
+    @Benchmark
+    public int segmentCopy() throws Exception {
+        return segmentationEngine.segment(clip, outputDirectory,
+                Rendition.segmentDuration(SEGMENT_DURATION, metadata), SegmentFormat.TS, List.of("-c", "copy"),
+                segment -> Files.delete(segment.file()));
+    }
+
+    @Benchmark
+    public int segmentEncode480p() throws Exception {
+        double duration = Rendition.segmentDuration(SEGMENT_DURATION, metadata);
+        return segmentationEngine.segment(clip, outputDirectory, duration, SegmentFormat.TS,
+                Rendition.P480.codecOptions(duration, metadata), segment -> Files.delete(segment.file()));
+    }
+
+    @Benchmark
+    public int extractFramesWithSprites() throws Exception {
+        return extractFrames(outputDirectory, 0, 0);
+    }
+
+    /**
+     * Every task of the clip, planned as the service plans them and run at most {@link #parallelism} at a time.
+     */
+    @Benchmark
+    public int process() throws Exception {
+        Video video = new Video();
+        video.setId(UUID.randomUUID().toString());
+        video.setDuration((long) metadata.getDuration());
+        video.setMetadata(metadata);
+        // 10 x 10 sprite sheets, as extractFrames tiles them
+        List<ProcessingJob> tasks = new TaskPlanner(LADDER, true, FRAME_INTERVAL, 100).plan(video, 30);
+
+        Semaphore limit = new Semaphore(parallelism);
+        try (FanOut fanOut = new FanOut("benchmark")) {
+            for (ProcessingJob task : tasks) {
+                Path directory = Files.createDirectory(outputDirectory.resolve(task.getId().replace(':', '_')));
+                fanOut.fork(limit, () -> {
+                    if (task.getType() == JobType.SEGMENTS) {
+                        segmentAndUpload(task.getRendition(), directory);
+                    } else {
+                        extractFrames(directory, task.getRangeStart(),
+                                task.getRangeEnd() == null ? 0 : task.getRangeEnd());
+                    }
+                });
+            }
+            fanOut.join();
+        }
+        return tasks.size();
+    }
+
+    private void segmentAndUpload(Rendition rendition, Path directory) throws Exception {
+        double duration = Rendition.segmentDuration(SEGMENT_DURATION, metadata);
+        segmentationEngine.segment(clip, directory, duration, SegmentFormat.TS,
+                rendition.codecOptions(duration, metadata), segment -> upload("segments", segment.file(),
+                        "video/mp2t"));
+    }
+
+    private int extractFrames(Path directory, long rangeStart, long rangeEnd) throws Exception {
+        SpriteSheetBuilder sprites = new SpriteSheetBuilder(Files.createDirectory(directory.resolve("sprites")),
+                10, 10, 160, sheet -> upload("frames", sheet.file(), "image/jpeg"));
+        int frames = frameExtractionEngine.extract(clip, directory, FrameExtractionMode.INTERVAL, FRAME_INTERVAL,
+                0.4, rangeStart, rangeEnd, frame -> {
+                    sprites.add(frame.file());
+                    upload("frames", frame.file(), "image/jpeg");
+                });
+        sprites.finish();
+        return frames;
+    }
+
+    private void upload(String bucket, Path file, String contentType) throws Exception {
+        ObjectStore.await(objectStore.put(bucket, file.getFileName().toString(), file, contentType));
+        Files.delete(file);
+    }
+}
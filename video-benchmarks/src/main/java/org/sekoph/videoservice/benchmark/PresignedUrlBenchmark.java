@@ -0,0 +1,82 @@
+package org.sekoph.videoservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.service.PresignedUrlService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing throughput for one page of frame URLs: every URL signed on its own, as the API did before, against a batch
+ * through {@link PresignedUrlService} whose URLs are cached. Signing is local, no MinIO server is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PresignedUrlBenchmark {
+
+    private static final String BUCKET = "frames";
+
+    // frames on one page
+    @Param({"1", "100", "1000"})
+    public int keys;
+
+    private MinioClient minioClient;
+    private PresignedUrlService urlService;
+    private List<String> frameKeys;
+
+    @Setup
+    public void setUp() {
+        // with a region the client signs without asking the server for the bucket's location
+        minioClient = MinioClient.builder()
+                .endpoint("http://localhost:9000")
+                .credentials("minioadmin", "minioadmin")
+                .region("us-east-1")
+                .build();
+        urlService = new PresignedUrlService(minioClient, new SimpleMeterRegistry(), 60, 30, 100_000);
+        frameKeys = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            frameKeys.add("frame_" + UUID.randomUUID() + ".jpg");
+        }
+        urlService.signAll(BUCKET, frameKeys);
+    }
+
+    @Benchmark
+    public List<String> signEachUrl() throws Exception {
+        List<String> urls = new ArrayList<>(frameKeys.size());
+        for (String key : frameKeys) {
+            urls.add(minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(BUCKET)
+                    .object(key)
+                    .expiry(1, TimeUnit.HOURS)
+                    .build()));
+        }
+        return urls;
+    }
+
+    @Benchmark
+    public Map<String, String> signCachedBatch() {
+        return urlService.signAll(BUCKET, frameKeys);
+    }
+}
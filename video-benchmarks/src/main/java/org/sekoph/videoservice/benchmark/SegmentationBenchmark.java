@@ -0,0 +1,113 @@
+package org.sekoph.videoservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.processing.FfmpegProcessLimiter;
+import org.sekoph.videoservice.processing.SegmentationEngine;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single-pass segment muxer against the loop it replaced, which started one ffmpeg process per segment and had
+ * each of them open and demux the input up to its window. Both copy the streams of a long clip, generated once per
+ * trial with ffmpeg's lavfi test sources. Requires ffmpeg on the PATH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class SegmentationBenchmark {
+
+    private static final int SEGMENT_DURATION = 300;
+
+    // seconds of 360p25 video
+    @Param({"900", "3600"})
+    public int clipSeconds;
+
+    private Path workDirectory;
+    private String clip;
+    private SegmentationEngine segmentationEngine;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateClip() throws Exception {
+        workDirectory = Files.createTempDirectory("segmentation_benchmark");
+        Path file = workDirectory.resolve("clip.mp4");
+        run(List.of("ffmpeg", "-v", "error", "-nostdin", "-y",
+                "-f", "lavfi", "-i", "testsrc2=size=640x360:rate=25",
+                "-f", "lavfi", "-i", "sine=frequency=440:sample_rate=44100",
+                "-t", String.valueOf(clipSeconds),
+                "-c:v", "libx264", "-preset", "ultrafast", "-g", "50",
+                "-c:a", "aac", file.toString()));
+        clip = file.toString();
+        segmentationEngine = new SegmentationEngine(FfmpegProcessLimiter.unlimited());
+    }
+
+    @Setup(Level.Iteration)
+    public void createOutputDirectory() throws IOException {
+        outputDirectory = Files.createDirectory(workDirectory.resolve("out_" + UUID.randomUUID()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutputDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(outputDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteClip() throws IOException {
+        FileSystemUtils.deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public int singlePass() throws Exception {
+        return segmentationEngine.segment(clip, outputDirectory, SEGMENT_DURATION,
+                segment -> Files.delete(segment.file()));
+    }
+
+    @Benchmark
+    public int processPerSegment() throws Exception {
+        int segments = 0;
+        for (long start = 0; start < clipSeconds; start += SEGMENT_DURATION) {
+            Path segment = outputDirectory.resolve("segment_" + segments + ".mp4");
+            run(List.of("ffmpeg", "-v", "error", "-nostdin", "-y",
+                    "-i", clip,
+                    "-ss", String.valueOf(start),
+                    "-t", String.valueOf(Math.min(SEGMENT_DURATION, clipSeconds - start)),
+                    "-c", "copy",
+                    "-avoid_negative_ts", "make_zero",
+                    segment.toString()));
+            Files.delete(segment);
+            segments++;
+        }
+        return segments;
+    }
+
+    private static void run(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("ffmpeg failed: " + command);
+        }
+    }
+}
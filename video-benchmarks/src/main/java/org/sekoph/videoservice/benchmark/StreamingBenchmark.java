@@ -0,0 +1,111 @@
+package org.sekoph.videoservice.benchmark;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.service.StreamingService;
+import org.sekoph.videoservice.storage.InMemoryObjectStore;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many clients reading random ranges of a large original through {@link StreamingService} at the same time. The
+ * store produces the requested bytes on the fly and the responses discard what they receive, so the only memory in
+ * play is what the streaming path itself holds on to.
+ * <p>
+ * The fork's heap is far smaller than the ranges in flight, so a streaming path that buffered whole ranges would fail
+ * with an {@link OutOfMemoryError} instead of reporting a result; {@code -prof gc} shows what each request allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx256m")
+@Threads(64)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamingBenchmark {
+
+    private static final long OBJECT_SIZE = 8L * 1024 * 1024 * 1024;
+    private static final long MB = 1024 * 1024;
+
+    @Param({"1", "16"})
+    public int rangeMb;
+
+    private StreamingService streamingService;
+    private StreamingService.StoredObject object;
+
+    @Setup
+    public void setUp() {
+        ObjectStore objectStore = new InMemoryObjectStore() {
+            @Override
+            public CompletableFuture<InputStream> get(String bucket, String key, long offset, long length) {
+                return CompletableFuture.completedFuture(new UploadStreamingBenchmark.GeneratedInputStream(length));
+            }
+        };
+        // resolving videos is not part of streaming a resolved object
+        streamingService = new StreamingService(null, objectStore);
+        object = new StreamingService.StoredObject("videos", "video_1.mp4", OBJECT_SIZE, "\"etag-1\"",
+                System.currentTimeMillis(), "video/mp4");
+    }
+
+    @Benchmark
+    public long rangeRequest() throws IOException {
+        long rangeSize = rangeMb * MB;
+        long offset = ThreadLocalRandom.current().nextLong(OBJECT_SIZE - rangeSize);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/v/stream");
+        request.addHeader("Range", "bytes=" + offset + "-" + (offset + rangeSize - 1));
+        DiscardingResponse response = new DiscardingResponse();
+        streamingService.stream(object, request, response);
+        if (response.written != rangeSize) {
+            throw new IllegalStateException("Streamed " + response.written + " of " + rangeSize + " bytes");
+        }
+        return response.written;
+    }
+
+    private static class DiscardingResponse extends MockHttpServletResponse {
+
+        private long written;
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    written++;
+                }
+
+                @Override
+                public void write(byte[] buffer, int offset, int length) {
+                    written += length;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+    }
+}
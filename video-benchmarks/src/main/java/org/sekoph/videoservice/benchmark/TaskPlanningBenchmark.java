@@ -0,0 +1,108 @@
+package org.sekoph.videoservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.processing.Rendition;
+import org.sekoph.videoservice.processing.TaskPlanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning the segment and frame tasks of a probed video, from a short clip to a feature length film, and the
+ * per-rendition decisions segmentation makes from the probed metadata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TaskPlanningBenchmark {
+
+    private static final List<Rendition> LADDER = List.of(Rendition.P240, Rendition.P360, Rendition.P480,
+            Rendition.P720, Rendition.P1080);
+
+    // seconds
+    @Param({"60", "7200"})
+    public long duration;
+
+    @Param({"true", "false"})
+    public boolean probed;
+
+    private Video video;
+    private TaskPlanner planner;
+
+    @Setup
+    public void setUp() {
+        video = new Video();
+        video.setId(UUID.randomUUID().toString());
+        video.setDuration(duration);
+        if (probed) {
+            video.setMetadata(metadata(duration));
+        }
+        planner = new TaskPlanner(LADDER, true, 10, 100);
+    }
+
+    @Benchmark
+    public List<ProcessingJob> plan() {
+        return planner.plan(video, 300);
+    }
+
+    @Benchmark
+    public List<List<String>> codecOptions() {
+        MediaMetadata metadata = video.getMetadata();
+        double segmentDuration = Rendition.segmentDuration(6, metadata);
+        List<List<String>> options = new ArrayList<>();
+        for (Rendition rendition : Rendition.ladderFor(LADDER, metadata)) {
+            options.add(rendition.codecOptions(segmentDuration, metadata));
+        }
+        return options;
+    }
+
+    /**
+     * What ffprobe reports for a 720p H.264 upload with a key frame every two seconds.
+     */
+    private static MediaMetadata metadata(long duration) {
+        MediaMetadata metadata = new MediaMetadata();
+        metadata.setFormatName("mov,mp4,m4a,3gp,3g2,mj2");
+        metadata.setDuration(duration);
+        metadata.setBitRate(3_000_000);
+
+        MediaMetadata.VideoTrack video = new MediaMetadata.VideoTrack();
+        video.setCodec("h264");
+        video.setProfile("High");
+        video.setPixelFormat("yuv420p");
+        video.setWidth(1280);
+        video.setHeight(720);
+        video.setFrameRate(30);
+        video.setBitRate(2_800_000);
+        metadata.setVideo(video);
+
+        MediaMetadata.AudioTrack audio = new MediaMetadata.AudioTrack();
+        audio.setIndex(1);
+        audio.setCodec("aac");
+        audio.setSampleRate(48_000);
+        audio.setChannels(2);
+        audio.setBitRate(128_000);
+        metadata.getAudioTracks().add(audio);
+
+        metadata.setKeyframeCount((int) (duration / 2));
+        metadata.setKeyframeInterval(2.0);
+        return metadata;
+    }
+}
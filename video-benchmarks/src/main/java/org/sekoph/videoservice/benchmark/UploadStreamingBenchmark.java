@@ -0,0 +1,121 @@
+package org.sekoph.videoservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.minIO.IngestInputStream;
+import org.sekoph.videoservice.storage.InMemoryObjectStore;
+import org.sekoph.videoservice.storage.LocalFileObjectStore;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming an upload body into the object store the way ingest does: sniffed and hashed by
+ * {@link IngestInputStream}, then stored through {@link ObjectStore#put(String, String, InputStream, String, long)}.
+ * The memory store measures the service's own path without network or disk, the local store adds writing the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UploadStreamingBenchmark {
+
+    private static final String BUCKET = "videos";
+    private static final long MB = 1024 * 1024;
+    private static final long PART_SIZE = 16 * MB;
+    // start of an MP4, the rest of the body is filler
+    private static final byte[] HEADER = {0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+
+    @Param({"64", "256"})
+    public int sizeMb;
+
+    @Param({"memory", "local"})
+    public String backend;
+
+    private Path directory;
+    private ObjectStore objectStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("upload_benchmark");
+        objectStore = backend.equals("local") ? new LocalFileObjectStore(directory) : new InMemoryObjectStore();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (objectStore instanceof LocalFileObjectStore local) {
+            local.close();
+        }
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String uploadRaw() throws Exception {
+        objectStore.put(BUCKET, "raw.mp4", new GeneratedInputStream(sizeMb * MB), "video/mp4", PART_SIZE);
+        return "raw.mp4";
+    }
+
+    @Benchmark
+    public String uploadHashed() throws Exception {
+        IngestInputStream ingest = IngestInputStream.open(new GeneratedInputStream(sizeMb * MB), Long.MAX_VALUE);
+        objectStore.put(BUCKET, "hashed.mp4", ingest, "video/mp4", PART_SIZE);
+        return ingest.getSha256();
+    }
+
+    /**
+     * An MP4 header followed by filler, produced on the fly so the body is never held in memory.
+     */
+    static class GeneratedInputStream extends InputStream {
+
+        private final long size;
+        private long position;
+
+        GeneratedInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            int b = position < HEADER.length ? HEADER[(int) position] : 0x42;
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= size) {
+                return -1;
+            }
+            int n = (int) Math.min(len, size - position);
+            int headerBytes = 0;
+            while (position + headerBytes < HEADER.length && headerBytes < n) {
+                b[off + headerBytes] = HEADER[(int) position + headerBytes];
+                headerBytes++;
+            }
+            Arrays.fill(b, off + headerBytes, off + n, (byte) 0x42);
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.sekoph.videoservice.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.mapper.VideoMapper;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a video with all of its segments and key frames to the API response, with the presigned URLs already
+ * signed, as {@code VideoService} does for a details request. Long videos have thousands of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VideoMapperBenchmark {
+
+    @Param({"100", "10000"})
+    public int segments;
+
+    @Param({"100", "10000"})
+    public int frames;
+
+    private Video video;
+    private List<VideoSegment> videoSegments;
+    private List<VideoFrame> videoFrames;
+    private Map<String, String> urls;
+
+    @Setup
+    public void setUp() {
+        String videoId = UUID.randomUUID().toString();
+        video = new Video();
+        video.setId(videoId);
+        video.setTitle("benchmark");
+        video.setVideoStatus(VideoStatus.READY);
+        video.setDuration(segments * 6L);
+        video.setCreatedAt(LocalDateTime.now());
+
+        urls = new HashMap<>();
+        videoSegments = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            VideoSegment segment = new VideoSegment();
+            segment.setVideoId(videoId);
+            segment.setSegmentID(UUID.randomUUID().toString());
+            segment.setSegmentNumber(i);
+            segment.setSegmentS3Key("segment_" + segment.getSegmentID() + ".ts");
+            segment.setQuality("720p");
+            segment.setStartTime(i * 6L);
+            segment.setEndTime((i + 1) * 6L);
+            videoSegments.add(segment);
+            urls.put(segment.getSegmentS3Key(), "http://localhost:9000/segments/" + segment.getSegmentS3Key());
+        }
+        videoFrames = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            VideoFrame frame = new VideoFrame();
+            frame.setVideoId(videoId);
+            frame.setFrameID(UUID.randomUUID().toString());
+            frame.setFrameNumber((long) i);
+            frame.setTimeStamp(i * 10L);
+            frame.setFrameS3Key("frame_" + frame.getFrameID() + ".jpg");
+            frame.setWidth(1280);
+            frame.setHeight(720);
+            videoFrames.add(frame);
+            urls.put(frame.getFrameS3Key(), "http://localhost:9000/frames/" + frame.getFrameS3Key());
+        }
+    }
+
+    @Benchmark
+    public VideoResponseDTO toDTO() {
+        return VideoMapper.toDTO(video,
+                () -> videoSegments.stream().map(segment -> VideoMapper.toSegmentDTO(segment, urls)).toList(),
+                () -> videoFrames.stream().map(frame -> VideoMapper.toFrameDTO(frame, urls)).toList());
+    }
+
+    @Benchmark
+    public VideoResponseDTO toDTOWithoutChildren() {
+        return VideoMapper.toDTO(video, null, null);
+    }
+}
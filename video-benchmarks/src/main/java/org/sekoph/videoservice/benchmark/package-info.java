@@ -0,0 +1,23 @@
+/**
+ * JMH benchmarks of the ingestion, processing and streaming hot paths of the video service. Build the benchmark jar
+ * and run it from the repository root:
+ * <pre>
+ * mvn -pl video-benchmarks -am package -DskipTests
+ * mvn -pl video-benchmarks exec:exec -Djmh.args="VideoMapperBenchmark -f 1"
+ * </pre>
+ * Results are written as JSON to {@code video-benchmarks/target/jmh-result.json}, {@code -Djmh.result} writes them
+ * elsewhere. What the benchmarks need besides the JVM:
+ * <ul>
+ *     <li>{@link org.sekoph.videoservice.benchmark.PipelineBenchmark} and
+ *     {@link org.sekoph.videoservice.benchmark.SegmentationBenchmark}: ffmpeg and ffprobe on the PATH</li>
+ *     <li>{@link org.sekoph.videoservice.benchmark.InputResolverBenchmark}: ffmpeg, ffprobe and a MinIO server, see
+ *     the class for how to point it at one</li>
+ *     <li>{@link org.sekoph.videoservice.benchmark.StreamingBenchmark},
+ *     {@link org.sekoph.videoservice.benchmark.UploadStreamingBenchmark},
+ *     {@link org.sekoph.videoservice.benchmark.TaskPlanningBenchmark},
+ *     {@link org.sekoph.videoservice.benchmark.PresignedUrlBenchmark} and
+ *     {@link org.sekoph.videoservice.benchmark.VideoMapperBenchmark}: nothing</li>
+ * </ul>
+ * Add {@code -prof gc} to {@code jmh.args} to see what each operation allocates.
+ */
+package org.sekoph.videoservice.benchmark;
@@ -0,0 +1,54 @@
+package org.sekoph.videoservice.controller;
+
+import org.sekoph.videoservice.exception.PipelineOverloadedException;
+import org.sekoph.videoservice.exception.UploadSessionException;
+import org.sekoph.videoservice.exception.UploadTooLargeException;
+import org.sekoph.videoservice.exception.VideoAccessDeniedException;
+import org.sekoph.videoservice.exception.VideoNotFoundException;
+import org.sekoph.videoservice.exception.VideoNotReadyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(PipelineOverloadedException.class)
+    public ResponseEntity<String> pipelineOverloaded(PipelineOverloadedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<String> uploadTooLarge(UploadTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(UploadSessionException.class)
+    public ResponseEntity<String> uploadSession(UploadSessionException e) {
+        return ResponseEntity.status(e.getStatus()).body(e.getMessage());
+    }
+
+    @ExceptionHandler(VideoNotFoundException.class)
+    public ResponseEntity<String> videoNotFound(VideoNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+    }
+
+    @ExceptionHandler(VideoAccessDeniedException.class)
+    public ResponseEntity<String> videoAccessDenied(VideoAccessDeniedException e) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+    }
+
+    @ExceptionHandler(VideoNotReadyException.class)
+    public ResponseEntity<String> videoNotReady(VideoNotReadyException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,53 @@
+package org.sekoph.videoservice.controller;
+
+import org.sekoph.videoservice.service.PlaybackService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+import static org.sekoph.videoservice.controller.StreamingController.USER_ID;
+
+@RestController
+@RequestMapping("/api/video")
+public class PlaybackController {
+
+    static final String HLS_CONTENT_TYPE = "application/vnd.apple.mpegurl";
+    static final String VTT_CONTENT_TYPE = "text/vtt";
+
+    private final PlaybackService playbackService;
+
+    public PlaybackController(PlaybackService playbackService) {
+        this.playbackService = playbackService;
+    }
+
+    // renditions are added while the video is processing, so the master playlist is never cached for long
+    @GetMapping(path = "/{id}/playlist.m3u8", produces = HLS_CONTENT_TYPE)
+    public ResponseEntity<String> masterPlaylist(@PathVariable String id,
+                                                 @RequestHeader(value = USER_ID, required = false) UUID userId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(playbackService.masterPlaylist(id, userId));
+    }
+
+    @GetMapping(path = "/{id}/{quality}/playlist.m3u8", produces = HLS_CONTENT_TYPE)
+    public ResponseEntity<String> mediaPlaylist(@PathVariable String id, @PathVariable String quality,
+                                                @RequestHeader(value = USER_ID, required = false) UUID userId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(playbackService.playlistMaxAge()).cachePrivate())
+                .body(playbackService.mediaPlaylist(id, userId, quality));
+    }
+
+    @GetMapping(path = "/{id}/thumbnails.vtt", produces = VTT_CONTENT_TYPE)
+    public ResponseEntity<String> thumbnailTrack(@PathVariable String id,
+                                                 @RequestHeader(value = USER_ID, required = false) UUID userId) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(playbackService.playlistMaxAge()).cachePrivate())
+                .body(playbackService.thumbnailTrack(id, userId));
+    }
+}
@@ -0,0 +1,41 @@
+package org.sekoph.videoservice.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.sekoph.videoservice.service.StreamingService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/video")
+public class StreamingController {
+
+    // set by the gateway for authenticated requests, private videos are only streamed to their owner
+    static final String USER_ID = "X-User-Id";
+
+    private final StreamingService streamingService;
+
+    public StreamingController(StreamingService streamingService) {
+        this.streamingService = streamingService;
+    }
+
+    @GetMapping("/{id}/stream")
+    public void streamOriginal(@PathVariable String id,
+                               @RequestHeader(value = USER_ID, required = false) UUID userId,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        streamingService.stream(streamingService.original(id, userId), request, response);
+    }
+
+    @GetMapping("/{id}/segments/{segmentId}/stream")
+    public void streamSegment(@PathVariable String id, @PathVariable String segmentId,
+                              @RequestHeader(value = USER_ID, required = false) UUID userId,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        streamingService.stream(streamingService.segment(id, segmentId, userId), request, response);
+    }
+}
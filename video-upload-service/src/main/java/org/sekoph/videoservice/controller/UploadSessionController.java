@@ -0,0 +1,76 @@
+package org.sekoph.videoservice.controller;
+
+import org.sekoph.videoservice.dto.UploadSessionResponseDTO;
+import org.sekoph.videoservice.dto.VideoRequestDTO;
+import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.service.UploadSessionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.UUID;
+
+import static org.sekoph.videoservice.controller.StreamingController.USER_ID;
+
+/**
+ * Resumable uploads: create a session with the file size in {@code Upload-Length}, PUT the chunks with their
+ * {@code Upload-Offset} (in parallel if you like), GET the session to see which chunks are missing after a broken
+ * connection, then complete it. Every request on a session needs the {@code X-User-Id} of the user it was created for.
+ */
+@RestController
+@RequestMapping("/api/video/uploads")
+public class UploadSessionController {
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final UploadSessionService uploadSessionService;
+
+    public UploadSessionController(UploadSessionService uploadSessionService) {
+        this.uploadSessionService = uploadSessionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponseDTO> createSession(@ModelAttribute VideoRequestDTO videoRequestDTO,
+                                                                  @RequestHeader(UPLOAD_LENGTH) long length) {
+        UploadSessionResponseDTO session = uploadSessionService.createSession(videoRequestDTO, length);
+        return ResponseEntity.created(URI.create("/api/video/uploads/" + session.getId())).body(session);
+    }
+
+    @PutMapping(path = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponseDTO> uploadChunk(@PathVariable String id,
+                                                                @RequestHeader(USER_ID) UUID userId,
+                                                                @RequestHeader(UPLOAD_OFFSET) long offset,
+                                                                @RequestHeader(HttpHeaders.CONTENT_LENGTH)
+                                                                long contentLength,
+                                                                InputStream body) {
+        return withOffset(uploadSessionService.uploadChunk(id, userId, offset, contentLength, body));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionResponseDTO> getSession(@PathVariable String id,
+                                                               @RequestHeader(USER_ID) UUID userId) {
+        return withOffset(uploadSessionService.getSession(id, userId));
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<VideoResponseDTO> completeSession(@PathVariable String id,
+                                                            @RequestHeader(USER_ID) UUID userId) {
+        return ResponseEntity.ok().body(uploadSessionService.completeSession(id, userId));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortSession(@PathVariable String id, @RequestHeader(USER_ID) UUID userId) {
+        uploadSessionService.abortSession(id, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<UploadSessionResponseDTO> withOffset(UploadSessionResponseDTO session) {
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getLength()))
+                .body(session);
+    }
+}
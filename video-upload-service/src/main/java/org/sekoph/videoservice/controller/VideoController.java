@@ -1,13 +1,23 @@
 package org.sekoph.videoservice.controller;
 
 
+import org.sekoph.videoservice.dto.PageResponseDTO;
+import org.sekoph.videoservice.dto.VideoFrameResponseDTO;
 import org.sekoph.videoservice.dto.VideoRequestDTO;
 import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.dto.VideoSegmentResponseDto;
+import org.sekoph.videoservice.model.enums.VideoStatus;
 import org.sekoph.videoservice.service.VideoService;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.sekoph.videoservice.controller.StreamingController.USER_ID;
+
 @RestController
 @RequestMapping("/api/video")
 public class VideoController {
@@ -21,4 +31,67 @@ public class VideoController {
     public ResponseEntity<VideoResponseDTO> createVideo(@ModelAttribute VideoRequestDTO videoRequestDTO) {
         return ResponseEntity.ok().body(videoService.uploadVideo(videoRequestDTO));
     }
+
+    // Raw video body with the metadata as query parameters, not limited by the multipart size limits
+    @PostMapping(path = "/stream", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "video/*"})
+    public ResponseEntity<VideoResponseDTO> streamVideo(@ModelAttribute VideoRequestDTO videoRequestDTO,
+                                                        InputStream body) {
+        return ResponseEntity.ok().body(videoService.uploadVideoStream(videoRequestDTO, body));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteVideo(@PathVariable String id, @RequestHeader(USER_ID) UUID userId) {
+        videoService.deleteVideo(id, userId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // include=segments,frames adds the video's segments and key frames to the response
+    @GetMapping("/{id}")
+    public ResponseEntity<VideoResponseDTO> getVideo(@PathVariable String id,
+                                                     @RequestHeader(value = USER_ID, required = false) UUID userId,
+                                                     @RequestParam(defaultValue = "") Set<String> include) {
+        return ResponseEntity.ok().body(videoService.getVideo(id, userId, include.contains("segments"),
+                include.contains("frames")));
+    }
+
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<PageResponseDTO<VideoResponseDTO>> getVideosByUser(
+            @PathVariable UUID userId,
+            @RequestHeader(value = USER_ID, required = false) UUID requesterId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok().body(videoService.getVideosByUser(userId, requesterId, cursor, limit));
+    }
+
+    @GetMapping
+    public ResponseEntity<PageResponseDTO<VideoResponseDTO>> getVideosByStatus(
+            @RequestParam VideoStatus status,
+            @RequestHeader(value = USER_ID, required = false) UUID userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok().body(videoService.getVideosByStatus(status, userId, cursor, limit));
+    }
+
+    // segments of one rendition, the best one stored unless a quality is given
+    @GetMapping("/{id}/segments")
+    public ResponseEntity<PageResponseDTO<VideoSegmentResponseDto>> getSegments(
+            @PathVariable String id,
+            @RequestHeader(value = USER_ID, required = false) UUID userId,
+            @RequestParam(required = false) String quality,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok().body(videoService.getSegments(id, userId, quality, cursor, limit));
+    }
+
+    // key frames with from <= timestamp < to, in seconds
+    @GetMapping("/{id}/frames")
+    public ResponseEntity<PageResponseDTO<VideoFrameResponseDTO>> getKeyFrames(
+            @PathVariable String id,
+            @RequestHeader(value = USER_ID, required = false) UUID userId,
+            @RequestParam(defaultValue = "0") long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok().body(videoService.getKeyFrames(id, userId, from, to, cursor, limit));
+    }
 }
@@ -0,0 +1,16 @@
+package org.sekoph.videoservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponseDTO<T> {
+    private List<T> items;
+    // pass back to get the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package org.sekoph.videoservice.dto;
+
+import lombok.Data;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class UploadSessionResponseDTO {
+    private String id;
+    private UploadSessionStatus status;
+    private long length;
+    private long chunkSize;
+    private long receivedBytes;
+    // bytes received without a gap from the start, where a sequential client resumes
+    private long offset;
+    // offsets of the chunks still to be sent
+    private List<Long> missingOffsets;
+    private String videoId;
+    private Instant expiresAt;
+}
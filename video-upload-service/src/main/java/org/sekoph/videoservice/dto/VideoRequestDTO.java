@@ -23,4 +23,7 @@ public class VideoRequestDTO {
 
     @NotBlank(message = "visibility status cant be blank")
     private VisibleStatus visibilityStatus;
+
+    // name of the original file for streamed uploads, multipart uploads use the name of the file part
+    private String filename;
 }
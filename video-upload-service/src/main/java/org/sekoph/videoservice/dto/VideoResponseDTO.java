@@ -19,12 +19,15 @@ public class VideoResponseDTO {
     private VisibleStatus visibility;
     private Integer views;
     private Long duration;
+    private Integer segmentCount;
+    private Integer keyFrameCount;
+    // qualities that can be played, lowest bitrate first
+    private List<String> renditions;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
-    // Response DTO for segments and frames
+    // Response DTO for segments and frames, only filled in when asked for
     private List<VideoSegmentResponseDto> segments;
     private List<VideoFrameResponseDTO> keyFrames;
 
-
 }
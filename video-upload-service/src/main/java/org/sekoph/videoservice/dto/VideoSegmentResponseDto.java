@@ -6,6 +6,7 @@ import lombok.Data;
 public class VideoSegmentResponseDto {
     private String segmentId;
     private String segmentNumber;
+    private String quality;
     private Long startTime;
     private Long endTime;
     private String segmentURL;
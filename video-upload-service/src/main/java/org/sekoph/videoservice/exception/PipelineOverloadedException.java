@@ -0,0 +1,16 @@
+package org.sekoph.videoservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class PipelineOverloadedException extends RuntimeException {
+  private final HttpStatus status;
+  private final long retryAfterSeconds;
+
+  public PipelineOverloadedException(String message, HttpStatus status, long retryAfterSeconds) {
+    super(message);
+    this.status = status;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
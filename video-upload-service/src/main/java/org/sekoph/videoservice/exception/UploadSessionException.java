@@ -0,0 +1,14 @@
+package org.sekoph.videoservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class UploadSessionException extends RuntimeException {
+  private final HttpStatus status;
+
+  public UploadSessionException(String message, HttpStatus status) {
+    super(message);
+    this.status = status;
+  }
+}
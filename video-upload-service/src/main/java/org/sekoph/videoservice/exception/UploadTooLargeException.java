@@ -0,0 +1,13 @@
+package org.sekoph.videoservice.exception;
+
+import lombok.Getter;
+
+@Getter
+public class UploadTooLargeException extends RuntimeException {
+  private final long maxBytes;
+
+  public UploadTooLargeException(long maxBytes) {
+    super("Upload exceeds the maximum size of " + maxBytes + " bytes");
+    this.maxBytes = maxBytes;
+  }
+}
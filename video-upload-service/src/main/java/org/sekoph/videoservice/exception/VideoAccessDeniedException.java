@@ -0,0 +1,7 @@
+package org.sekoph.videoservice.exception;
+
+public class VideoAccessDeniedException extends RuntimeException {
+  public VideoAccessDeniedException(String videoId) {
+    super("Not the owner of video: " + videoId);
+  }
+}
@@ -0,0 +1,7 @@
+package org.sekoph.videoservice.exception;
+
+public class VideoNotFoundException extends RuntimeException {
+  public VideoNotFoundException(String videoId) {
+    super("Video not found: " + videoId);
+  }
+}
@@ -0,0 +1,13 @@
+package org.sekoph.videoservice.exception;
+
+import org.sekoph.videoservice.model.enums.VideoStatus;
+
+public class VideoNotReadyException extends RuntimeException {
+  public VideoNotReadyException(String videoId, VideoStatus status) {
+    super("Video " + videoId + " is not ready for playback: " + status);
+  }
+
+  public VideoNotReadyException(String message) {
+    super(message);
+  }
+}
@@ -1,7 +1,17 @@
 package org.sekoph.videoservice.mapper;
 
+import org.sekoph.videoservice.dto.VideoFrameResponseDTO;
 import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.dto.VideoSegmentResponseDto;
 import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
+import org.sekoph.videoservice.model.VideoSegment;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class VideoMapper {
     public static VideoResponseDTO toDTO(Video video) {
@@ -14,9 +24,74 @@ public class VideoMapper {
         videoResponseDTO.setVisibility(video.getVisibility());
         videoResponseDTO.setViews(video.getViews());
         videoResponseDTO.setDuration(video.getDuration());
+        videoResponseDTO.setSegmentCount(video.getSegmentCount());
+        videoResponseDTO.setKeyFrameCount(video.getKeyFrameCount());
+        if (video.getRenditions() != null) {
+            videoResponseDTO.setRenditions(video.getRenditions().values().stream()
+                    .sorted(Comparator.comparingLong(VideoRendition::getBandwidth))
+                    .map(VideoRendition::getQuality)
+                    .toList());
+        }
         videoResponseDTO.setCreatedAt(video.getCreatedAt());
         videoResponseDTO.setUpdatedAt(video.getUpdatedAt());
 
         return videoResponseDTO;
     }
+
+    /**
+     * Map a video along with its segments and key frames. They live in their own collections, so each is only
+     * loaded when its supplier is given.
+     *
+     * @param segments  loads the mapped segments, or null to leave them out
+     * @param keyFrames loads the mapped key frames, or null to leave them out
+     */
+    public static VideoResponseDTO toDTO(Video video, Supplier<List<VideoSegmentResponseDto>> segments,
+                                         Supplier<List<VideoFrameResponseDTO>> keyFrames) {
+        VideoResponseDTO videoResponseDTO = toDTO(video);
+        if (segments != null) {
+            videoResponseDTO.setSegments(segments.get());
+        }
+        if (keyFrames != null) {
+            videoResponseDTO.setKeyFrames(keyFrames.get());
+        }
+        return videoResponseDTO;
+    }
+
+    /**
+     * @param urls presigned URLs by segment key, see PresignedUrlService#signAll
+     */
+    public static VideoSegmentResponseDto toSegmentDTO(VideoSegment segment, Map<String, String> urls) {
+        VideoSegmentResponseDto segmentResponseDto = toSegmentDTO(segment);
+        segmentResponseDto.setSegmentURL(urls.get(segment.getSegmentS3Key()));
+        return segmentResponseDto;
+    }
+
+    /**
+     * @param urls presigned URLs by frame key, see PresignedUrlService#signAll
+     */
+    public static VideoFrameResponseDTO toFrameDTO(VideoFrame frame, Map<String, String> urls) {
+        VideoFrameResponseDTO frameResponseDTO = toFrameDTO(frame);
+        frameResponseDTO.setFrameUrl(urls.get(frame.getFrameS3Key()));
+        return frameResponseDTO;
+    }
+
+    public static VideoSegmentResponseDto toSegmentDTO(VideoSegment segment) {
+        VideoSegmentResponseDto segmentResponseDto = new VideoSegmentResponseDto();
+        segmentResponseDto.setSegmentId(segment.getSegmentID());
+        segmentResponseDto.setSegmentNumber(String.valueOf(segment.getSegmentNumber()));
+        segmentResponseDto.setQuality(segment.getQuality());
+        segmentResponseDto.setStartTime(segment.getStartTime());
+        segmentResponseDto.setEndTime(segment.getEndTime());
+        return segmentResponseDto;
+    }
+
+    public static VideoFrameResponseDTO toFrameDTO(VideoFrame frame) {
+        VideoFrameResponseDTO frameResponseDTO = new VideoFrameResponseDTO();
+        frameResponseDTO.setFrameID(frame.getFrameID());
+        frameResponseDTO.setFrameNumber(frame.getFrameNumber());
+        frameResponseDTO.setTimestamp(frame.getTimeStamp());
+        frameResponseDTO.setWidth(frame.getWidth());
+        frameResponseDTO.setHeight(frame.getHeight());
+        return frameResponseDTO;
+    }
 }
@@ -0,0 +1,121 @@
+package org.sekoph.videoservice.minIO;
+
+import org.sekoph.videoservice.exception.UploadTooLargeException;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Wraps an upload body on its way to MinIO: sniffs the container format from the first bytes, hashes and counts
+ * everything read and stops the upload once it grows past the size limit. Nothing but the header is buffered, so
+ * memory use does not depend on the size of the upload.
+ */
+public class IngestInputStream extends FilterInputStream {
+
+    private final ContainerFormat format;
+    private final MessageDigest digest;
+    private final long maxBytes;
+    private long bytesRead;
+
+    private IngestInputStream(InputStream in, ContainerFormat format, long maxBytes) {
+        super(in);
+        this.format = format;
+        this.maxBytes = maxBytes;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Read the header of {@code body} to identify the format, without consuming it.
+     *
+     * @param maxBytes size after which reading fails with {@link UploadTooLargeException}
+     */
+    public static IngestInputStream open(InputStream body, long maxBytes) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, ContainerFormat.HEADER_SIZE);
+        byte[] header = in.readNBytes(ContainerFormat.HEADER_SIZE);
+        in.unread(header);
+        return new IngestInputStream(in, ContainerFormat.sniff(header).orElse(null), maxBytes);
+    }
+
+    /**
+     * The container format, empty when the header matches none of the supported ones.
+     */
+    public Optional<ContainerFormat> getFormat() {
+        return Optional.ofNullable(format);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Hex SHA-256 of everything read so far, the content hash once the stream has been read to the end.
+     */
+    public String getSha256() {
+        try {
+            return HexFormat.of().formatHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digest cannot be cloned", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            digest.update((byte) b);
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            digest.update(b, off, n);
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        // skipped bytes still have to be hashed
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(int n) {
+        bytesRead += n;
+        if (bytesRead > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+    }
+}
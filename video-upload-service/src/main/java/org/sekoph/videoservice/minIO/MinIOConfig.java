@@ -1,5 +1,6 @@
 package org.sekoph.videoservice.minIO;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -13,14 +14,32 @@ public class MinIOConfig {
     @Value("${minio.accessKey}")
     private String accessKey;
 
-    @Value("${minio.secretKey")
+    @Value("${minio.secretKey}")
     private String secretKey;
 
+    // with a region the client never asks MinIO for a bucket's location, e.g. before signing a URL
+    @Value("${minio.region:}")
+    private String region;
+
     @Bean
     public MinioClient minioClient() {
-        return MinioClient.builder()
+        MinioClient.Builder builder = MinioClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey);
+        if (!region.isBlank()) {
+            builder.region(region);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        MinioAsyncClient.Builder builder = MinioAsyncClient.builder()
                 .endpoint(endpoint)
-                .credentials(accessKey, secretKey)
-                .build();
+                .credentials(accessKey, secretKey);
+        if (!region.isBlank()) {
+            builder.region(region);
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,80 @@
+package org.sekoph.videoservice.minIO;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.MinioAsyncClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Direct access to MinIO multipart uploads, for uploads whose parts arrive in separate requests. {@link MinioAsyncClient}
+ * is the only client exposing the individual multipart calls.
+ */
+@Slf4j
+@Service
+public class MultipartUploads {
+    private final MinioAsyncClient minioAsyncClient;
+
+    public MultipartUploads(MinioAsyncClient minioAsyncClient) {
+        this.minioAsyncClient = minioAsyncClient;
+    }
+
+    /**
+     * Start a multipart upload.
+     *
+     * @return the upload id
+     */
+    public String create(String bucketName, String objectKey, String contentType) throws Exception {
+        return await(minioAsyncClient.createMultipartUploadAsync(bucketName, null, objectKey,
+                ImmutableMultimap.of("Content-Type", contentType), null)).result().uploadId();
+    }
+
+    /**
+     * Store one part. Every part but the last must be at least 5MB.
+     *
+     * @return the ETag of the part, needed to complete the upload
+     */
+    public String uploadPart(String bucketName, String objectKey, String uploadId, int partNumber, byte[] data)
+            throws Exception {
+        return await(minioAsyncClient.uploadPartAsync(bucketName, null, objectKey, data, data.length, uploadId,
+                partNumber, null, null)).etag();
+    }
+
+    /**
+     * Assemble the parts into the final object. MinIO does this without copying the data.
+     */
+    public void complete(String bucketName, String objectKey, String uploadId, List<Part> parts) throws Exception {
+        await(minioAsyncClient.completeMultipartUploadAsync(bucketName, null, objectKey, uploadId,
+                parts.toArray(new Part[0]), null, null));
+    }
+
+    /**
+     * Drop the upload and its parts. An upload that no longer exists counts as aborted.
+     */
+    public void abort(String bucketName, String objectKey, String uploadId) throws Exception {
+        try {
+            await(minioAsyncClient.abortMultipartUploadAsync(bucketName, null, objectKey, uploadId, null, null));
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchUpload".equals(e.errorResponse().code())) {
+                throw e;
+            }
+            log.debug("Multipart upload {} of {} was already gone", uploadId, objectKey);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One stored original, shared by every video uploaded with the same content, together with the segments and frames
+ * generated from it. Objects are only deleted once no video references the asset any more.
+ */
+@Data
+@Document(collection = "content_assets")
+public class ContentAsset {
+    // SHA-256 of the original
+    @Id
+    private String id;
+
+    @Field("video_s3_key")
+    private String videoS3Key;
+
+    @Field("container_format")
+    private ContainerFormat containerFormat;
+
+    @Field("file_size")
+    private Long fileSize;
+
+    // number of videos using this asset
+    @Field("ref_count")
+    private long refCount;
+
+    // the video whose processing produced the shared segments and frames, null until one is READY
+    @Field("artifacts_video_id")
+    private String artifactsVideoId;
+
+    @Field("segment_keys")
+    private List<String> segmentKeys = new ArrayList<>();
+
+    @Field("frame_keys")
+    private List<String> frameKeys = new ArrayList<>();
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+}
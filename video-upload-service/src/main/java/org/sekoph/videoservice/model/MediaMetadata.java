@@ -0,0 +1,68 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import lombok.ToString;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What ffprobe found in an original, embedded in the video once it is probed. Processing reads it to decide which
+ * renditions to produce, which of them can copy the source streams and where segments can be cut.
+ */
+@Data
+public class MediaMetadata {
+    @Field("format_name")
+    private String formatName;
+    // seconds
+    private double duration;
+    // bits per second over all streams
+    @Field("bit_rate")
+    private long bitRate;
+    private long size;
+
+    // the first video stream, null for audio only files
+    private VideoTrack video;
+    @Field("audio_tracks")
+    private List<AudioTrack> audioTracks = new ArrayList<>();
+
+    @Field("keyframe_count")
+    private int keyframeCount;
+    // seconds between key frames of the video stream when the source has a fixed GOP, null otherwise
+    @Field("keyframe_interval")
+    private Double keyframeInterval;
+    // presentation times of the key frames in seconds, only available right after probing
+    @Transient
+    @ToString.Exclude
+    private List<Double> keyframeTimes = new ArrayList<>();
+
+    @Data
+    public static class VideoTrack {
+        private int index;
+        private String codec;
+        private String profile;
+        @Field("pixel_format")
+        private String pixelFormat;
+        private int width;
+        private int height;
+        @Field("frame_rate")
+        private double frameRate;
+        // 0 when the container does not tell
+        @Field("bit_rate")
+        private long bitRate;
+    }
+
+    @Data
+    public static class AudioTrack {
+        private int index;
+        private String codec;
+        @Field("sample_rate")
+        private int sampleRate;
+        private int channels;
+        @Field("bit_rate")
+        private long bitRate;
+        private String language;
+    }
+}
@@ -0,0 +1,92 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import org.sekoph.videoservice.model.enums.JobStatus;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.sekoph.videoservice.processing.Rendition;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+
+/**
+ * Durable processing work item. Every upload gets a VIDEO job, whose id is the video id, that plans the SEGMENTS
+ * tasks, one per rendition of the bitrate ladder, and the FRAMES tasks of the video. Task ids are derived from the
+ * video id and the task's rendition or range so enqueueing is idempotent, and any worker node can claim any of them.
+ */
+@Data
+@Document(collection = "processing_jobs")
+public class ProcessingJob {
+    @Id
+    private String id;
+
+    private JobType type;
+
+    @Field("video_id")
+    private String videoId;
+
+    // part of the video a FRAMES task covers, in seconds; no end means until the end of the video
+    @Field("range_start")
+    private Long rangeStart;
+
+    @Field("range_end")
+    private Long rangeEnd;
+
+    // rendition a SEGMENTS task encodes; tasks stored before the ladder have none and copy the source streams
+    private Rendition rendition;
+
+    // jobs of a type are claimed lowest priority first, then in order of their retry time
+    private int priority;
+
+    private JobStatus status;
+
+    private int attempts;
+
+    // earliest time a PENDING job may be claimed, pushed back by the retry backoff
+    @Field("next_attempt_at")
+    private Instant nextAttemptAt;
+
+    // worker currently holding the job and until when; an expired lease can be claimed by any worker
+    @Field("lease_owner")
+    private String leaseOwner;
+
+    @Field("lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    @Field("last_error")
+    private String lastError;
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    public static ProcessingJob video(String videoId) {
+        return task(videoId, videoId, JobType.VIDEO);
+    }
+
+    public static ProcessingJob segments(String videoId, Rendition rendition, int priority) {
+        ProcessingJob job = task(videoId + ":segments:" + rendition.getQuality(), videoId, JobType.SEGMENTS);
+        job.setRendition(rendition);
+        job.setPriority(priority);
+        return job;
+    }
+
+    public static ProcessingJob frames(String videoId, long rangeStart, Long rangeEnd) {
+        ProcessingJob job = task(videoId + ":frames:" + rangeStart, videoId, JobType.FRAMES);
+        job.setRangeStart(rangeStart);
+        job.setRangeEnd(rangeEnd);
+        return job;
+    }
+
+    private static ProcessingJob task(String id, String videoId, JobType type) {
+        ProcessingJob job = new ProcessingJob();
+        job.setId(id);
+        job.setVideoId(videoId);
+        job.setType(type);
+        job.setStatus(JobStatus.PENDING);
+        return job;
+    }
+}
@@ -0,0 +1,22 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stage run while processing a video, kept on the video so slow videos can be looked into after the fact.
+ */
+@Data
+public class ProcessingStep {
+    // probe, segment, frames or save
+    private String stage;
+    // rendition or frame range the stage worked on, null for the whole video
+    private String detail;
+    @Field("started_at")
+    private LocalDateTime startedAt;
+    @Field("duration_ms")
+    private long durationMs;
+    private boolean success;
+}
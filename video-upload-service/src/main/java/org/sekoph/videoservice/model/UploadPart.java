@@ -0,0 +1,9 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+
+@Data
+public class UploadPart {
+    private String etag;
+    private long size;
+}
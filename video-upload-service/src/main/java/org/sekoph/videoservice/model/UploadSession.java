@@ -0,0 +1,75 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+import org.sekoph.videoservice.model.enums.VisibleStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A resumable upload: the file is sent as fixed-size chunks, each one stored as a part of the same MinIO multipart
+ * upload, so chunks can arrive in any order and in parallel.
+ */
+@Data
+@Document(collection = "upload_sessions")
+public class UploadSession {
+    @Id
+    private String id;
+
+    // MinIO multipart upload the chunks are parts of
+    @Field("upload_id")
+    private String uploadId;
+
+    @Field("object_key")
+    private String objectKey;
+
+    private String title;
+
+    private String description;
+
+    @Field("user_id")
+    private UUID userID;
+
+    private VisibleStatus visibility;
+
+    @Field("original_filename")
+    private String originalFilename;
+
+    // total size of the file in bytes
+    private long length;
+
+    @Field("chunk_size")
+    private long chunkSize;
+
+    @Field("container_format")
+    private ContainerFormat containerFormat;
+
+    // received chunks by part number, chunk n starts at (n - 1) * chunkSize
+    private Map<String, UploadPart> parts = new HashMap<>();
+
+    private UploadSessionStatus status;
+
+    @Field("video_id")
+    private String videoId;
+
+    @Field("created_at")
+    private Instant createdAt;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    // abandoned sessions are aborted after this
+    @Field("expires_at")
+    private Instant expiresAt;
+
+    public int getChunkCount() {
+        return (int) Math.max(1, Math.ceilDiv(length, chunkSize));
+    }
+}
@@ -5,32 +5,33 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
 import org.sekoph.videoservice.model.enums.VideoStatus;
 import org.sekoph.videoservice.model.enums.VisibleStatus;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+// listing indexes are created at startup, see VideoRepositoryCustom#ensureIndexes
 @Data
 @Document(collection="videos")
 public class Video {
     @Id
     private String id;
 
-//    @Indexed
     private String title;
 
     private String description;
 
     // uploaderID
     @Field("user_id")
-//    @Indexed
     private UUID userID;
 
     @Field("original_filename")
@@ -38,12 +39,29 @@ public class Video {
 
     @Field("video_status")
     @Enumerated(EnumType.STRING)
-//    @Indexed
     private VideoStatus videoStatus;
 
     @Field("video_s3_key")
     private String videoS3Key;
 
+    // SHA-256 of the original upload
+    @Field("content_hash")
+    private String contentHash;
+
+    @Field("file_size")
+    private Long fileSize;
+
+    @Field("container_format")
+    private ContainerFormat containerFormat;
+
+    // set when the original is shared through a ContentAsset with other uploads of the same content
+    @Field("content_asset_id")
+    private String contentAssetId;
+
+    // segments and frames belong to the content asset and are only deleted with it
+    @Field("shared_artifacts")
+    private boolean sharedArtifacts;
+
     private VisibleStatus visibility;
 
     private Integer views;
@@ -52,9 +70,25 @@ public class Video {
     @Min(0)
     private long duration;
 
-    private List<VideoSegment> segments = new ArrayList<>();
+    // what ffprobe found in the original, set when processing starts
+    private MediaMetadata metadata;
 
-    private List<VideoFrame> keyFrames = new ArrayList<>();
+    // stage runs while processing, oldest first; not read by the API
+    private List<ProcessingStep> timeline;
+
+    // segments and key frames live in their own collections, the counts are set once processing completes
+    @Field("segment_count")
+    private int segmentCount;
+
+    @Field("key_frame_count")
+    private int keyFrameCount;
+
+    // renditions that can be played already, by quality; lower ones are usually there before the video is READY
+    private Map<String, VideoRendition> renditions;
+
+    // set when this video reuses the segments and key frames stored for another video of the same content
+    @Field("artifacts_video_id")
+    private String artifactsVideoId;
 
     @Field("created_at")
     @CreatedDate
@@ -65,4 +99,8 @@ public class Video {
     private LocalDateTime updatedAt;
     // soft delete items
     private boolean deleted;
+
+    // bumped by every update, so a write based on a stale read can be detected
+    @Version
+    private Long version;
 }
@@ -2,12 +2,19 @@ package org.sekoph.videoservice.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
 @Data
+@Document(collection = "video_frames")
 public class VideoFrame {
+    @Id
+    private String id;
+    @Field("video_id")
+    private String videoId;
     @Field("frame_id")
     private String frameID;
     @Field("frame_number")
@@ -30,7 +37,15 @@ public class VideoFrame {
 
     // Thumbnail information
     @Field("thumbnail_s3_key")
-    private String thumbnailS3Key;
+    private String thumbnailS3Key; // sprite sheet holding the thumbnail
+    @Field("thumbnail_x")
+    private Integer thumbnailX;
+    @Field("thumbnail_y")
+    private Integer thumbnailY;
+    @Field("thumbnail_width")
+    private Integer thumbnailWidth;
+    @Field("thumbnail_height")
+    private Integer thumbnailHeight;
     private Integer width;
     private Integer height;
 
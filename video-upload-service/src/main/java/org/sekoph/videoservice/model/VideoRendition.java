@@ -0,0 +1,25 @@
+package org.sekoph.videoservice.model;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * A rendition of a video whose segments are all stored, embedded in the video under its quality. Bitrates are
+ * measured on the stored segments, they are what the master playlist advertises to players.
+ */
+@Data
+public class VideoRendition {
+    private String quality;
+    // target height of the ladder rung, 0 for the copied source streams
+    private int height;
+    // peak and average bitrate of the segments, in bits per second
+    private long bandwidth;
+    @Field("average_bandwidth")
+    private long averageBandwidth;
+    @Field("segment_count")
+    private int segmentCount;
+    @Field("completed_at")
+    private LocalDateTime completedAt;
+}
@@ -2,12 +2,20 @@ package org.sekoph.videoservice.model;
 
 import lombok.Data;
 import org.sekoph.videoservice.model.enums.SegmentStatus;
+import org.sekoph.videoservice.processing.SegmentFormat;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
 
 @Data
+@Document(collection = "video_segments")
 public class VideoSegment {
+    @Id
+    private String id;
+    @Field("video_id")
+    private String videoId;
     @Field("segment_id")
     private String segmentID;
     @Field("segment_number")
@@ -19,9 +27,17 @@ public class VideoSegment {
     private Long startTime;
     @Field("end_time")
     private Long endTime;
+    // keyframe-aligned boundaries reported by ffmpeg
+    @Field("start_time_ms")
+    private Long startTimeMs;
+    @Field("end_time_ms")
+    private Long endTimeMs;
     @Field("file_size")
     private Long fileSize;
+    // Rendition#getQuality of the ladder rung, null for segments stored before there was a ladder
     private String quality;
+    // null for segments stored before the format was recorded, which are MP4
+    private SegmentFormat format;
 
     @Field("created_time")
     private LocalDateTime createdAt;
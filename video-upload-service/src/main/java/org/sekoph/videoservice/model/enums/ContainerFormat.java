@@ -0,0 +1,81 @@
+package org.sekoph.videoservice.model.enums;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum ContainerFormat {
+    MP4("mp4", "video/mp4"),
+    MOV("mov", "video/quicktime"),
+    MKV("mkv", "video/x-matroska"),
+    AVI("avi", "video/x-msvideo"),
+    WMV("wmv", "video/x-ms-wmv"),
+    FLV("flv", "video/x-flv");
+
+    // bytes needed to tell the formats apart
+    public static final int HEADER_SIZE = 16;
+
+    private static final byte[] EBML = {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3};
+    private static final byte[] ASF = {0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11,
+            (byte) 0xA6, (byte) 0xD9, 0x00, (byte) 0xAA, 0x00, 0x62, (byte) 0xCE, 0x6C};
+
+    private final String extension;
+    private final String contentType;
+
+    ContainerFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Format matching a file extension, without the dot.
+     */
+    public static Optional<ContainerFormat> fromExtension(String extension) {
+        return Arrays.stream(values()).filter(format -> format.extension.equalsIgnoreCase(extension)).findFirst();
+    }
+
+    /**
+     * Identify the container from the first {@link #HEADER_SIZE} bytes of a file, whatever its name says.
+     */
+    public static Optional<ContainerFormat> sniff(byte[] header) {
+        if (startsWith(header, 0, EBML)) {
+            return Optional.of(MKV);
+        }
+        if (startsWith(header, 0, ASF)) {
+            return Optional.of(WMV);
+        }
+        if (startsWith(header, 0, ascii("FLV"))) {
+            return Optional.of(FLV);
+        }
+        if (startsWith(header, 0, ascii("RIFF")) && startsWith(header, 8, ascii("AVI "))) {
+            return Optional.of(AVI);
+        }
+        // ISO base media: a box size followed by the ftyp box and the major brand
+        if (startsWith(header, 4, ascii("ftyp"))) {
+            return Optional.of(startsWith(header, 8, ascii("qt  ")) ? MOV : MP4);
+        }
+        // older QuickTime files start with other top-level atoms
+        if (startsWith(header, 4, ascii("moov")) || startsWith(header, 4, ascii("mdat"))
+                || startsWith(header, 4, ascii("wide")) || startsWith(header, 4, ascii("free"))) {
+            return Optional.of(MOV);
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int offset, byte[] prefix) {
+        return header.length >= offset + prefix.length
+                && Arrays.equals(header, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
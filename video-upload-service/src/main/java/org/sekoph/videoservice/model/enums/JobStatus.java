@@ -0,0 +1,8 @@
+package org.sekoph.videoservice.model.enums;
+
+public enum JobStatus {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    FAILED,
+}
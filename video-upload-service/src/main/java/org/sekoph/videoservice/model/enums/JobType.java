@@ -0,0 +1,8 @@
+package org.sekoph.videoservice.model.enums;
+
+public enum JobType {
+    // probe the upload and plan its SEGMENTS and FRAMES tasks
+    VIDEO,
+    SEGMENTS,
+    FRAMES,
+}
@@ -0,0 +1,10 @@
+package org.sekoph.videoservice.model.enums;
+
+public enum UploadSessionStatus {
+    UPLOADING,
+    // all chunks received, MinIO is composing the object and the video is being registered
+    COMPLETING,
+    // the object is composed but registering the video failed, completing the session again retries it
+    ASSEMBLED,
+    COMPLETED,
+}
@@ -0,0 +1,79 @@
+package org.sekoph.videoservice.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Puts segments, frames and sprite sheets into the object store from the upload stage of the
+ * {@link PipelineScheduler}, whose thread count is the number of uploads in flight and whose bounded queue holds back
+ * ffmpeg once the store falls behind.
+ * <p>
+ * Failures the store reports as transient are retried with exponential backoff, so one slow or restarting MinIO node
+ * does not fail a whole video. The local file is deleted only once the object is stored, and kept for the job's retry
+ * otherwise.
+ */
+@Slf4j
+@Component
+public class ArtifactUploader {
+
+    private final ObjectStore objectStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public ArtifactUploader(ObjectStore objectStore, PipelineMetrics pipelineMetrics,
+                            @Value("${video.pipeline.upload-max-attempts:4}") int maxAttempts,
+                            @Value("${video.pipeline.upload-initial-backoff-ms:200}") long initialBackoffMs,
+                            @Value("${video.pipeline.upload-max-backoff-ms:5000}") long maxBackoffMs) {
+        this.objectStore = objectStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Store a file and delete it, waiting for the object store.
+     *
+     * @param kind       segment, frame or sprite, for the upload metrics
+     * @param sizeBucket size bucket of the original, see {@link PipelineMetrics#sizeBucket}
+     * @return the size of the file
+     * @throws Exception the last failure, once attempts run out or on a failure that is not transient
+     */
+    public long upload(String kind, String sizeBucket, String bucket, String key, Path file, String contentType)
+            throws Exception {
+        long fileSize = Files.size(file);
+        long start = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ObjectStore.await(objectStore.put(bucket, key, file, contentType));
+                break;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !objectStore.isTransient(e)) {
+                    throw e;
+                }
+                long backoffMs = backoffMs(attempt);
+                log.warn("Upload of {} to {} failed on attempt {}, retrying in {}ms: {}", key, bucket, attempt,
+                        backoffMs, e.toString());
+                pipelineMetrics.recordUploadRetry(kind);
+                Thread.sleep(backoffMs);
+            }
+        }
+        pipelineMetrics.recordUpload(kind, sizeBucket, fileSize, System.nanoTime() - start);
+        Files.deleteIfExists(file);
+        return fileSize;
+    }
+
+    long backoffMs(int attempts) {
+        long ms = Math.min(initialBackoffMs << Math.min(attempts - 1, 30), maxBackoffMs);
+        // up to 20% jitter so uploads failing together don't retry together
+        return ms + ThreadLocalRandom.current().nextLong(ms / 5 + 1);
+    }
+}
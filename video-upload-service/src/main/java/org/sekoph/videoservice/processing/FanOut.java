@@ -0,0 +1,92 @@
+package org.sekoph.videoservice.processing;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a group of blocking tasks on virtual threads and fails fast: the first task to fail interrupts all the others,
+ * and its exception is rethrown by {@link #join()} once every task has stopped. This is the behaviour of
+ * {@code StructuredTaskScope.ShutdownOnFailure}, which is still a preview API on Java 21.
+ * <p>
+ * Tasks spend their time waiting on ffmpeg and MinIO, so a virtual thread per task costs next to nothing; the actual
+ * parallelism is bounded by the semaphore each task is forked with and by the {@link FfmpegProcessLimiter}.
+ */
+public class FanOut implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private final ExecutorService executor;
+    // cancelling a Future of a thread-per-task executor counts its thread as finished straight away, before the task
+    // has stopped, so tasks are interrupted through their threads and termination waits for the threads themselves
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public FanOut(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Start a task once a permit of {@code limit} is free.
+     */
+    public void fork(Semaphore limit, Task task) {
+        executor.execute(() -> {
+            Thread thread = Thread.currentThread();
+            running.add(thread);
+            try {
+                // a sibling may have failed before this one started
+                if (failure.get() != null) {
+                    return;
+                }
+                limit.acquire();
+                try {
+                    task.run();
+                } finally {
+                    limit.release();
+                }
+            } catch (Throwable e) {
+                if (failure.compareAndSet(null, e)) {
+                    cancelAll();
+                }
+            } finally {
+                running.remove(thread);
+            }
+        });
+    }
+
+    /**
+     * Wait for every task to finish. No more tasks can be forked afterwards.
+     *
+     * @throws Exception the first failure, after the remaining tasks have been cancelled and have stopped
+     */
+    public void join() throws Exception {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+
+        Throwable first = failure.get();
+        if (first instanceof Exception exception) {
+            throw exception;
+        }
+        if (first instanceof Error error) {
+            throw error;
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private void cancelAll() {
+        running.forEach(Thread::interrupt);
+    }
+}
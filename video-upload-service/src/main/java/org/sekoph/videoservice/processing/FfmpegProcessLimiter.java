@@ -0,0 +1,105 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of ffmpeg processes running on this node. Every ffmpeg run already uses several threads, so the
+ * default limit follows the core count instead of the size of the thread pools feeding it.
+ * <p>
+ * Once bound to a registry it times how long every kind of process waits for its permit and how long it runs.
+ */
+@Slf4j
+@Component
+public class FfmpegProcessLimiter implements MeterBinder {
+
+    private final Semaphore permits;
+    private final int maxProcesses;
+    private volatile MeterRegistry meterRegistry;
+
+    public FfmpegProcessLimiter(@Value("${video.pipeline.max-ffmpeg-processes:0}") int maxProcesses,
+                                @Value("${video.pipeline.ffmpeg-processes-per-core:0.5}") double perCore) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.maxProcesses = maxProcesses > 0 ? maxProcesses : Math.max(1, (int) Math.round(cores * perCore));
+        this.permits = new Semaphore(this.maxProcesses, true);
+        log.info("Allowing {} concurrent ffmpeg processes on {} cores", this.maxProcesses, cores);
+    }
+
+    /**
+     * Limiter without a limit, for running an engine outside the application.
+     */
+    public static FfmpegProcessLimiter unlimited() {
+        return new FfmpegProcessLimiter(Integer.MAX_VALUE / 2, 0);
+    }
+
+    /**
+     * Block until another ffmpeg process may start.
+     *
+     * @return the permit, to be closed once the process has exited
+     */
+    public Permit acquire() throws InterruptedException {
+        return acquire("other");
+    }
+
+    /**
+     * Block until another ffmpeg process may start.
+     *
+     * @param kind what the process does, the {@code kind} tag of its timers
+     * @return the permit, to be closed once the process has exited
+     */
+    public Permit acquire(String kind) throws InterruptedException {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            permits.acquire();
+            return permits::release;
+        }
+
+        Timer.Sample waiting = Timer.start(registry);
+        permits.acquire();
+        waiting.stop(Timer.builder("video.ffmpeg.wait")
+                .description("Time an ffmpeg process waited for a free slot")
+                .tag("kind", kind)
+                .register(registry));
+        Timer.Sample running = Timer.start(registry);
+        return () -> {
+            running.stop(Timer.builder("video.ffmpeg.process")
+                    .description("Run time of an ffmpeg or ffprobe process")
+                    .tag("kind", kind)
+                    .register(registry));
+            permits.release();
+        };
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("video.ffmpeg.active", this, FfmpegProcessLimiter::getActiveProcesses)
+                .description("ffmpeg processes running on this node")
+                .register(registry);
+        Gauge.builder("video.ffmpeg.max", this, FfmpegProcessLimiter::getMaxProcesses)
+                .description("ffmpeg processes allowed on this node")
+                .register(registry);
+        this.meterRegistry = registry;
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    public int getActiveProcesses() {
+        return maxProcesses - permits.availablePermits();
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
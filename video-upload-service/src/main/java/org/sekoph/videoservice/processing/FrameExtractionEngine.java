@@ -0,0 +1,239 @@
+package org.sekoph.videoservice.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts all thumbnails of a video with a single ffmpeg decode pass.
+ * <p>
+ * ffmpeg writes a numbered JPEG sequence and a {@code showinfo} filter at the end of the chain logs one line per
+ * written frame with its timestamp, picture type and size. stderr is consumed on its own thread while the caller's
+ * thread hands every frame to the listener once ffmpeg has moved on to the next file, so frames are uploaded
+ * while extraction is still running.
+ */
+@Slf4j
+@Component
+public class FrameExtractionEngine {
+
+    static final String FRAME_PATTERN = "frame_%06d.jpg";
+    private static final long POLL_INTERVAL_MS = 250;
+    private static final int ERROR_TAIL_LINES = 20;
+
+    private static final Pattern SHOWINFO = Pattern.compile(
+            "\\[Parsed_showinfo.*?pts_time:\\s*(\\S+).*?\\bs:(\\d+)x(\\d+).*?\\b(?:is)?key:\\s*(\\d).*?type:\\s*(\\w)");
+
+    private final FfmpegProcessLimiter processLimiter;
+
+    public FrameExtractionEngine(FfmpegProcessLimiter processLimiter) {
+        this.processLimiter = processLimiter;
+    }
+
+    /**
+     * Receives every extracted frame once its file is complete.
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+        void onFrame(FrameFile frame) throws Exception;
+    }
+
+    /**
+     * A finished thumbnail on local disk.
+     *
+     * @param frameNumber zero based position in the extracted sequence
+     * @param file        the JPEG inside the output directory
+     * @param timestamp   presentation time of the frame in the source, in seconds
+     * @param keyFrame    whether the source frame was a key frame
+     * @param frameType   picture type reported by the decoder: I, P or B
+     * @param width       width of the written image
+     * @param height      height of the written image
+     */
+    public record FrameFile(int frameNumber, Path file, double timestamp, boolean keyFrame, String frameType,
+                            int width, int height) {
+    }
+
+    /**
+     * Extract frames from the input into {@code outputDirectory}.
+     *
+     * @param input           path or URL ffmpeg reads the source from
+     * @param outputDirectory empty directory the image sequence is written to
+     * @param mode            how frames are selected
+     * @param frameInterval   seconds between frames for {@link FrameExtractionMode#INTERVAL}, and the minimum gap
+     *                        between frames for {@link FrameExtractionMode#KEYFRAME}
+     * @param sceneThreshold  scene score (0-1) above which a frame is taken in {@link FrameExtractionMode#SCENE}
+     * @param rangeStart      second of the source to start at, the input is seeked so earlier data is not decoded
+     * @param rangeEnd        second of the source to stop at, or 0 to read until the end
+     * @param listener        called once per frame, in order, while ffmpeg is still running
+     * @return the number of frames extracted
+     * @throws Exception if ffmpeg fails or the listener throws
+     */
+    public int extract(String input, Path outputDirectory, FrameExtractionMode mode, int frameInterval,
+                       double sceneThreshold, long rangeStart, long rangeEnd, FrameListener listener)
+            throws Exception {
+        try (FfmpegProcessLimiter.Permit permit = processLimiter.acquire("frames")) {
+            return runExtraction(input, outputDirectory, mode, frameInterval, sceneThreshold, rangeStart, rangeEnd,
+                    listener);
+        }
+    }
+
+    private int runExtraction(String input, Path outputDirectory, FrameExtractionMode mode, int frameInterval,
+                              double sceneThreshold, long rangeStart, long rangeEnd, FrameListener listener)
+            throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(buildCommand(input, outputDirectory, mode, frameInterval,
+                sceneThreshold, rangeStart, rangeEnd));
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+        Process process = pb.start();
+        BlockingQueue<FrameInfo> frameInfos = new LinkedBlockingQueue<>();
+        Deque<String> errorTail = new ArrayDeque<>();
+        Thread stderrReader = Thread.ofVirtual().name("ffmpeg-frames-stderr").start(
+                () -> readShowInfo(process, frameInfos, errorTail));
+
+        int frameCount = 0;
+        List<FrameInfo> pending = new ArrayList<>();
+        try {
+            boolean running = true;
+            while (running) {
+                running = process.isAlive() || stderrReader.isAlive();
+
+                FrameInfo info = frameInfos.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (info != null) {
+                    pending.add(info);
+                    frameInfos.drainTo(pending);
+                }
+
+                // image2 only opens the next file after closing the current one
+                while (!pending.isEmpty()) {
+                    Path file = frameFile(outputDirectory, frameCount);
+                    boolean complete = !running || Files.exists(frameFile(outputDirectory, frameCount + 1));
+                    if (!complete || !Files.exists(file)) {
+                        break;
+                    }
+                    FrameInfo frame = pending.removeFirst();
+                    // timestamps restart at zero after an input seek
+                    listener.onFrame(new FrameFile(frameCount, file, rangeStart + frame.timestamp(),
+                            frame.keyFrame(), frame.frameType(), frame.width(), frame.height()));
+                    frameCount++;
+                }
+            }
+        } catch (Exception e) {
+            process.destroyForcibly();
+            throw e;
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new VideoProcessingException("FFmpeg frame extraction failed with exit code: " + exitCode +
+                    ". Error: " + String.join("\n", errorTail).replace(input, VideoInput.describe(input)));
+        }
+        if (!pending.isEmpty()) {
+            throw new VideoProcessingException("FFmpeg reported " + pending.size() + " frames that were not written");
+        }
+
+        log.debug("Extracted {} frames from {} in {} mode", frameCount, VideoInput.describe(input), mode);
+        return frameCount;
+    }
+
+    List<String> buildCommand(String input, Path outputDirectory, FrameExtractionMode mode, int frameInterval,
+                              double sceneThreshold, long rangeStart, long rangeEnd) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-hide_banner", "-nostdin", "-nostats", "-y"));
+        if (rangeStart > 0) {
+            command.addAll(List.of("-ss", String.valueOf(rangeStart)));
+        }
+        if (rangeEnd > rangeStart) {
+            command.addAll(List.of("-t", String.valueOf(rangeEnd - rangeStart)));
+        }
+        String filter = switch (mode) {
+            case INTERVAL -> "fps=1/" + frameInterval;
+            case KEYFRAME -> {
+                // the decoder drops everything but key frames, select thins them out to the interval
+                command.addAll(List.of("-skip_frame", "nokey"));
+                yield "select='isnan(prev_selected_t)+gte(t-prev_selected_t," + frameInterval + ")'";
+            }
+            case SCENE -> "select='eq(n,0)+gt(scene," + sceneThreshold + ")'";
+        };
+        command.addAll(VideoInput.inputOptions(input));
+        command.addAll(List.of(
+                "-i", input,
+                "-an", "-sn", "-dn",
+                "-vf", filter + ",showinfo",
+                "-fps_mode", "vfr",
+                "-q:v", "2",
+                outputDirectory.resolve(FRAME_PATTERN).toString()
+        ));
+        return command;
+    }
+
+    private void readShowInfo(Process process, BlockingQueue<FrameInfo> frameInfos, Deque<String> errorTail) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FrameInfo frame = parseShowInfo(line);
+                if (frame != null) {
+                    frameInfos.add(frame);
+                } else {
+                    synchronized (errorTail) {
+                        errorTail.addLast(line);
+                        if (errorTail.size() > ERROR_TAIL_LINES) {
+                            errorTail.removeFirst();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read ffmpeg output", e);
+        }
+    }
+
+    /**
+     * The frame a {@code showinfo} line reports.
+     *
+     * @return null if the line is other ffmpeg output
+     */
+    static FrameInfo parseShowInfo(String line) {
+        Matcher matcher = SHOWINFO.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+        return new FrameInfo(
+                parseTimestamp(matcher.group(1)),
+                "1".equals(matcher.group(4)),
+                matcher.group(5),
+                Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3))
+        );
+    }
+
+    private static double parseTimestamp(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Path frameFile(Path outputDirectory, int frameNumber) {
+        // the image2 muxer numbers files from 1
+        return outputDirectory.resolve(String.format(FRAME_PATTERN, frameNumber + 1));
+    }
+
+    record FrameInfo(double timestamp, boolean keyFrame, String frameType, int width, int height) {
+    }
+}
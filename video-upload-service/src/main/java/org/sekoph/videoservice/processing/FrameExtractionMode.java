@@ -0,0 +1,10 @@
+package org.sekoph.videoservice.processing;
+
+public enum FrameExtractionMode {
+    // one frame every frame-interval seconds, using the fps filter
+    INTERVAL,
+    // only decode I-frames, keeping at most one per frame-interval seconds
+    KEYFRAME,
+    // frames where the scene score exceeds scene-threshold, plus the first frame
+    SCENE,
+}
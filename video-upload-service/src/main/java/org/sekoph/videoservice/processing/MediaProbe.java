@@ -0,0 +1,255 @@
+package org.sekoph.videoservice.processing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads everything processing needs to know about an original with one ffprobe call: container, streams and the
+ * positions of the video key frames.
+ * <p>
+ * ffprobe prints JSON on stdout, which is parsed as it arrives so the packet list of a long video is never held as
+ * text, while stderr is drained on its own thread; reading the pipes one after the other can leave ffprobe blocked on
+ * a full stderr pipe. Listing packets makes ffprobe read through the whole input without decoding it, which can be
+ * turned off with {@code video.processing.probe-keyframes}.
+ */
+@Slf4j
+@Component
+public class MediaProbe {
+
+    private static final int ERROR_TAIL_LINES = 20;
+    // how long ffprobe gets to exit once its output could not be read
+    private static final long EXIT_TIMEOUT_SECONDS = 5;
+    // key frames further apart than this from the first interval mean the GOP is not fixed
+    private static final double INTERVAL_TOLERANCE_SECONDS = 0.002;
+
+    private final FfmpegProcessLimiter processLimiter;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean probeKeyframes;
+
+    public MediaProbe(FfmpegProcessLimiter processLimiter,
+                      @Value("${video.processing.probe-keyframes:true}") boolean probeKeyframes) {
+        this.processLimiter = processLimiter;
+        this.probeKeyframes = probeKeyframes;
+    }
+
+    /**
+     * Probe an input.
+     *
+     * @param input path or URL ffprobe reads the source from
+     * @throws VideoProcessingException if ffprobe fails or its output cannot be read
+     */
+    public MediaMetadata probe(String input) throws Exception {
+        try (FfmpegProcessLimiter.Permit permit = processLimiter.acquire("probe")) {
+            return runProbe(input);
+        }
+    }
+
+    List<String> buildCommand(String input) {
+        List<String> command = new ArrayList<>(List.of("ffprobe", "-v", "error", "-print_format", "json",
+                "-show_format", "-show_streams"));
+        if (probeKeyframes) {
+            command.addAll(List.of("-show_entries", "packet=codec_type,stream_index,pts_time,flags"));
+        }
+        command.addAll(VideoInput.inputOptions(input));
+        command.add(input);
+        return command;
+    }
+
+    private MediaMetadata runProbe(String input) throws Exception {
+        Process process = new ProcessBuilder(buildCommand(input)).start();
+        Deque<String> errorTail = new ArrayDeque<>();
+        Thread stderrReader = Thread.ofVirtual().name("ffprobe-stderr").start(
+                () -> drainErrors(process.getErrorStream(), errorTail));
+
+        MediaMetadata metadata = null;
+        IOException readFailure = null;
+        try (InputStream out = process.getInputStream()) {
+            metadata = parse(out);
+        } catch (IOException e) {
+            // usually ffprobe failed before printing any JSON and is exiting, its stderr says why
+            readFailure = e;
+            if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+
+        int exitCode = process.waitFor();
+        stderrReader.join();
+        String source = VideoInput.describe(input);
+        if (readFailure != null || exitCode != 0) {
+            String errors;
+            synchronized (errorTail) {
+                // ffprobe names the input in its errors, a presigned URL carries its signature
+                errors = String.join("\n", errorTail).replace(input, source);
+            }
+            throw new VideoProcessingException("FFprobe failed on " + source + " with exit code: " + exitCode
+                    + ". Error: " + errors, readFailure);
+        }
+        if (metadata.getDuration() <= 0) {
+            throw new VideoProcessingException("FFprobe reported no duration for " + source);
+        }
+        log.debug("Probed {}: {}", source, metadata);
+        return metadata;
+    }
+
+    /**
+     * Read ffprobe's JSON. Packets come before streams in the output, so the key frames of every video stream are
+     * kept until it is known which one is the video track.
+     */
+    MediaMetadata parse(InputStream json) throws IOException {
+        MediaMetadata metadata = new MediaMetadata();
+        Map<Integer, List<Double>> keyframes = new HashMap<>();
+
+        JsonFactory factory = objectMapper.getFactory();
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                parser.nextToken();
+                switch (section) {
+                    case "packets" -> {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            JsonNode packet = objectMapper.readTree(parser);
+                            if ("video".equals(packet.path("codec_type").asText())
+                                    && packet.path("flags").asText().contains("K")
+                                    && packet.has("pts_time")) {
+                                keyframes.computeIfAbsent(packet.path("stream_index").asInt(), i -> new ArrayList<>())
+                                        .add(packet.path("pts_time").asDouble());
+                            }
+                        }
+                    }
+                    case "streams" -> {
+                        for (JsonNode stream : (JsonNode) objectMapper.readTree(parser)) {
+                            readStream(stream, metadata);
+                        }
+                    }
+                    case "format" -> readFormat(objectMapper.readTree(parser), metadata);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (metadata.getVideo() != null) {
+            List<Double> times = keyframes.getOrDefault(metadata.getVideo().getIndex(), new ArrayList<>());
+            // packets are listed in decode order
+            times.sort(Double::compare);
+            metadata.setKeyframeTimes(times);
+            metadata.setKeyframeCount(times.size());
+            metadata.setKeyframeInterval(fixedInterval(times));
+        }
+        return metadata;
+    }
+
+    private static void readStream(JsonNode stream, MediaMetadata metadata) {
+        switch (stream.path("codec_type").asText()) {
+            case "video" -> {
+                if (metadata.getVideo() != null || stream.path("disposition").path("attached_pic").asInt() == 1) {
+                    // cover art is a video stream of one picture
+                    return;
+                }
+                MediaMetadata.VideoTrack video = new MediaMetadata.VideoTrack();
+                video.setIndex(stream.path("index").asInt());
+                video.setCodec(stream.path("codec_name").asText(null));
+                video.setProfile(stream.path("profile").asText(null));
+                video.setPixelFormat(stream.path("pix_fmt").asText(null));
+                video.setWidth(stream.path("width").asInt());
+                video.setHeight(stream.path("height").asInt());
+                video.setFrameRate(rate(stream.path("avg_frame_rate").asText(stream.path("r_frame_rate").asText())));
+                video.setBitRate(stream.path("bit_rate").asLong());
+                metadata.setVideo(video);
+            }
+            case "audio" -> {
+                MediaMetadata.AudioTrack audio = new MediaMetadata.AudioTrack();
+                audio.setIndex(stream.path("index").asInt());
+                audio.setCodec(stream.path("codec_name").asText(null));
+                audio.setSampleRate(stream.path("sample_rate").asInt());
+                audio.setChannels(stream.path("channels").asInt());
+                audio.setBitRate(stream.path("bit_rate").asLong());
+                audio.setLanguage(stream.path("tags").path("language").asText(null));
+                metadata.getAudioTracks().add(audio);
+            }
+            default -> {
+                // subtitles and data streams are not processed
+            }
+        }
+    }
+
+    private static void readFormat(JsonNode format, MediaMetadata metadata) {
+        metadata.setFormatName(format.path("format_name").asText(null));
+        metadata.setDuration(format.path("duration").asDouble());
+        metadata.setBitRate(format.path("bit_rate").asLong());
+        metadata.setSize(format.path("size").asLong());
+    }
+
+    /**
+     * ffprobe prints frame rates as fractions, 30000/1001 for NTSC video and 0/0 when it does not know.
+     */
+    static double rate(String fraction) {
+        int slash = fraction.indexOf('/');
+        try {
+            if (slash < 0) {
+                return Double.parseDouble(fraction);
+            }
+            double denominator = Double.parseDouble(fraction.substring(slash + 1));
+            return denominator == 0 ? 0 : Double.parseDouble(fraction.substring(0, slash)) / denominator;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The distance between key frames if every one of them is the same, null for a single key frame or a variable
+     * GOP.
+     */
+    static Double fixedInterval(List<Double> times) {
+        if (times.size() < 2) {
+            return null;
+        }
+        double interval = times.get(1) - times.get(0);
+        for (int i = 2; i < times.size(); i++) {
+            if (Math.abs(times.get(i) - times.get(i - 1) - interval) > INTERVAL_TOLERANCE_SECONDS) {
+                return null;
+            }
+        }
+        return interval > 0 ? interval : null;
+    }
+
+    private static void drainErrors(InputStream stderr, Deque<String> errorTail) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                synchronized (errorTail) {
+                    errorTail.addLast(line);
+                    if (errorTail.size() > ERROR_TAIL_LINES) {
+                        errorTail.removeFirst();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read ffprobe output", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.sekoph.videoservice.processing;
+
+/**
+ * What an upload gets when the pipeline has no room for it.
+ */
+public enum OverflowPolicy {
+    // fail straight away with 429 Too Many Requests
+    REJECT,
+    // fail straight away with 503 Service Unavailable
+    UNAVAILABLE,
+    // wait up to video.pipeline.admission-timeout-ms for a slot, then 503
+    WAIT,
+}
@@ -0,0 +1,103 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers of the processing stages and of the uploads of their output, tagged with the size bucket of the original so
+ * slow stages can be told apart from large videos. The thread pools and ffmpeg processes publish their own metrics,
+ * see {@link PipelineScheduler} and {@link FfmpegProcessLimiter}.
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final long MB = 1024 * 1024;
+
+    private final MeterRegistry meterRegistry;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Bucket of an original's size for tagging, coarse enough to keep the number of time series small.
+     *
+     * @param bytes size of the original, or null if it is not known
+     */
+    public static String sizeBucket(Long bytes) {
+        if (bytes == null) {
+            return "unknown";
+        }
+        if (bytes < 100 * MB) {
+            return "lt-100mb";
+        }
+        if (bytes < 1024 * MB) {
+            return "lt-1gb";
+        }
+        if (bytes < 10 * 1024 * MB) {
+            return "lt-10gb";
+        }
+        return "gte-10gb";
+    }
+
+    /**
+     * Record one run of a stage.
+     *
+     * @param stage probe, segment, frames or save
+     */
+    public void recordStage(String stage, String sizeBucket, boolean success, long nanos) {
+        Timer.builder("video.processing.stage")
+                .description("Run time of a processing stage")
+                .tag("stage", stage)
+                .tag("size", sizeBucket)
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record one upload to MinIO.
+     *
+     * @param kind segment, frame or sprite
+     */
+    public void recordUpload(String kind, String sizeBucket, long bytes, long nanos) {
+        Timer.builder("video.upload")
+                .description("Time to put one processing output into MinIO")
+                .tag("kind", kind)
+                .tag("size", sizeBucket)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("video.upload.throughput")
+                .description("Upload speed of processing output")
+                .baseUnit("bytes_per_second")
+                .tag("kind", kind)
+                .tag("size", sizeBucket)
+                .register(meterRegistry)
+                .record(bytes * 1_000_000_000.0 / Math.max(1, nanos));
+        DistributionSummary.builder("video.upload.size")
+                .description("Size of processing output uploaded to MinIO")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .tag("size", sizeBucket)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * Count an upload that failed and is tried again.
+     *
+     * @param kind segment, frame or sprite
+     */
+    public void recordUploadRetry(String kind) {
+        Counter.builder("video.upload.retries")
+                .description("Uploads of processing output retried after a transient failure")
+                .tag("kind", kind)
+                .register(meterRegistry)
+                .increment();
+    }
+}
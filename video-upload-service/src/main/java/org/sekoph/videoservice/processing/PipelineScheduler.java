@@ -0,0 +1,268 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.PipelineOverloadedException;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.sekoph.videoservice.repository.ProcessingJobStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the thread pools of the processing pipeline, one per {@link PipelineStage}, and decides whether a new upload
+ * may enter it.
+ * <p>
+ * Worker stages (probe, segment, frame) only receive a job when they have an idle thread, so claimed jobs never
+ * wait in memory where other nodes cannot steal them. The upload stage has a bounded queue and runs overflow on the
+ * submitting thread, which slows ffmpeg output down to the speed MinIO accepts it instead of buffering it.
+ * <p>
+ * Every stage publishes its queue depth, the jobs in flight and its saturation, the share of its threads in use.
+ * <p>
+ * While the {@link ScratchSpace} is full no upload is admitted and no worker stage starts a job, so the disk drains
+ * through the upload stage before more ffmpeg output lands on it.
+ */
+@Slf4j
+@Component
+public class PipelineScheduler implements DisposableBean, MeterBinder {
+
+    private final Map<PipelineStage, StagePool> pools = new EnumMap<>(PipelineStage.class);
+    private final ProcessingJobStore jobStore;
+    private final ScratchSpace scratchSpace;
+    private final Semaphore ingestSlots;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxBacklog;
+    private final long admissionTimeoutMs;
+
+    private volatile long cachedBacklog;
+    private volatile long backlogCheckedAt;
+
+    public PipelineScheduler(ProcessingJobStore jobStore, ScratchSpace scratchSpace,
+                             @Value("${video.pipeline.probe-threads:2}") int probeThreads,
+                             @Value("${video.pipeline.segment-threads:${video.processing.thread-pool-size:4}}")
+                             int segmentThreads,
+                             @Value("${video.pipeline.frame-threads:${video.processing.thread-pool-size:4}}")
+                             int frameThreads,
+                             @Value("${video.pipeline.upload-threads:8}") int uploadThreads,
+                             @Value("${video.pipeline.upload-queue-capacity:32}") int uploadQueueCapacity,
+                             @Value("${video.pipeline.max-concurrent-ingests:16}") int maxConcurrentIngests,
+                             @Value("${video.pipeline.max-backlog:200}") int maxBacklog,
+                             @Value("${video.pipeline.overflow-policy:REJECT}") OverflowPolicy overflowPolicy,
+                             @Value("${video.pipeline.admission-timeout-ms:5000}") long admissionTimeoutMs) {
+        this.jobStore = jobStore;
+        this.scratchSpace = scratchSpace;
+        this.ingestSlots = new Semaphore(maxConcurrentIngests, true);
+        this.overflowPolicy = overflowPolicy;
+        this.maxBacklog = maxBacklog;
+        this.admissionTimeoutMs = admissionTimeoutMs;
+
+        // a worker stage never holds more jobs than it has threads, the queue only covers a thread returning to it
+        pools.put(PipelineStage.PROBE, new StagePool(PipelineStage.PROBE, probeThreads, probeThreads,
+                new ThreadPoolExecutor.AbortPolicy()));
+        pools.put(PipelineStage.SEGMENT, new StagePool(PipelineStage.SEGMENT, segmentThreads, segmentThreads,
+                new ThreadPoolExecutor.AbortPolicy()));
+        pools.put(PipelineStage.FRAME, new StagePool(PipelineStage.FRAME, frameThreads, frameThreads,
+                new ThreadPoolExecutor.AbortPolicy()));
+        // unlike CallerRunsPolicy this also runs the upload after shutdown, so nobody waits on a dropped future
+        pools.put(PipelineStage.UPLOAD, new StagePool(PipelineStage.UPLOAD, uploadThreads, uploadQueueCapacity,
+                (upload, executor) -> upload.run()));
+    }
+
+    /**
+     * Number of jobs the stage can start right now, none while scratch space is full.
+     */
+    public int freeSlots(PipelineStage stage) {
+        if (stage != PipelineStage.UPLOAD && !scratchSpace.hasRoom()) {
+            return 0;
+        }
+        StagePool pool = pools.get(stage);
+        return Math.max(0, pool.threads - pool.inFlight.get());
+    }
+
+    /**
+     * Run a claimed job on its stage. Callers check {@link #freeSlots(PipelineStage)} first.
+     *
+     * @throws RejectedExecutionException if the stage is full or shutting down
+     */
+    public void submit(PipelineStage stage, Runnable job) {
+        pools.get(stage).execute(job);
+    }
+
+    /**
+     * Hand an upload to the upload stage. Runs on the calling thread when the upload queue is full.
+     */
+    public <T> CompletableFuture<T> submitUpload(Callable<T> upload) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pools.get(PipelineStage.UPLOAD).execute(() -> {
+            try {
+                result.complete(upload.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Admission control for the upload endpoint: the cluster wide backlog of videos waiting to be processed, the
+     * number of uploads this node is receiving and its scratch space are all bounded.
+     *
+     * @return a slot to close once the upload has been stored and queued
+     * @throws PipelineOverloadedException if there is no room, according to the overflow policy
+     */
+    public Admission admitUpload() {
+        if (backlog() >= maxBacklog) {
+            throw overloaded("Processing backlog is full, try again later");
+        }
+        if (!scratchSpace.hasRoom()) {
+            throw overloaded("Scratch disk is full, try again later");
+        }
+
+        boolean acquired;
+        if (overflowPolicy == OverflowPolicy.WAIT) {
+            try {
+                acquired = ingestSlots.tryAcquire(admissionTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        } else {
+            acquired = ingestSlots.tryAcquire();
+        }
+        if (!acquired) {
+            throw overloaded("Too many uploads in progress, try again later");
+        }
+        return ingestSlots::release;
+    }
+
+    /**
+     * Jobs running or queued on the stage.
+     */
+    public int getInFlight(PipelineStage stage) {
+        return pools.get(stage).inFlight.get();
+    }
+
+    public int getQueueDepth(PipelineStage stage) {
+        return pools.get(stage).executor.getQueue().size();
+    }
+
+    public int getThreads(PipelineStage stage) {
+        return pools.get(stage).threads;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        for (StagePool pool : pools.values()) {
+            Tags tags = Tags.of("stage", pool.stage.name().toLowerCase());
+            new ExecutorServiceMetrics(pool.executor, "pipeline", tags).bindTo(registry);
+            Gauge.builder("video.pipeline.queue.depth", pool.executor, executor -> executor.getQueue().size())
+                    .description("Jobs waiting for a thread of the stage")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("video.pipeline.in.flight", pool.inFlight, AtomicInteger::get)
+                    .description("Jobs running or queued on the stage")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("video.pipeline.saturation", pool, p -> (double) p.inFlight.get() / p.threads)
+                    .description("Jobs in flight per thread of the stage, above 1 when jobs queue")
+                    .tags(tags)
+                    .register(registry);
+        }
+        Gauge.builder("video.pipeline.ingest.slots", ingestSlots, Semaphore::availablePermits)
+                .description("Uploads this node can still accept")
+                .register(registry);
+    }
+
+    /**
+     * Stop taking work and give running jobs a minute to finish. Safe to call more than once.
+     */
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.executor.shutdown());
+        try {
+            for (StagePool pool : pools.values()) {
+                if (!pool.executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    pool.executor.shutdownNow();
+                    if (!pool.executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                        log.warn("{} stage did not terminate gracefully", pool.stage);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            pools.values().forEach(pool -> pool.executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        shutdown();
+    }
+
+    private long backlog() {
+        // one count per second is plenty for admission control and keeps it off the upload hot path
+        long now = System.currentTimeMillis();
+        if (now - backlogCheckedAt > 1000) {
+            cachedBacklog = jobStore.countPending(JobType.VIDEO);
+            backlogCheckedAt = now;
+        }
+        return cachedBacklog;
+    }
+
+    private PipelineOverloadedException overloaded(String message) {
+        HttpStatus status = overflowPolicy == OverflowPolicy.REJECT
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        return new PipelineOverloadedException(message, status, 30);
+    }
+
+    @FunctionalInterface
+    public interface Admission extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class StagePool {
+        private final PipelineStage stage;
+        private final int threads;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        StagePool(PipelineStage stage, int threads, int queueCapacity, RejectedExecutionHandler overflow) {
+            this.stage = stage;
+            this.threads = threads;
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> new Thread(runnable, "pipeline-" + stage.name().toLowerCase() + "-"
+                            + threadNumber.incrementAndGet()),
+                    overflow);
+        }
+
+        void execute(Runnable task) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+}
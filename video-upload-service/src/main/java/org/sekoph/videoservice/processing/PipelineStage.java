@@ -0,0 +1,20 @@
+package org.sekoph.videoservice.processing;
+
+import org.sekoph.videoservice.model.enums.JobType;
+
+public enum PipelineStage {
+    // ffprobe and task planning
+    PROBE,
+    SEGMENT,
+    FRAME,
+    // MinIO puts of finished segments and frames
+    UPLOAD;
+
+    public static PipelineStage forJob(JobType type) {
+        return switch (type) {
+            case VIDEO -> PROBE;
+            case SEGMENTS -> SEGMENT;
+            case FRAMES -> FRAME;
+        };
+    }
+}
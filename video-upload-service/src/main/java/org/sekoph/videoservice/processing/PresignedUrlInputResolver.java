@@ -0,0 +1,51 @@
+package org.sekoph.videoservice.processing;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands ffmpeg a presigned GET URL. Nothing touches local disk, and seeks (frame ranges, the moov atom at the end of
+ * an mp4) become HTTP range requests instead of a full download.
+ */
+@Component
+@ConditionalOnProperty(name = "video.input.mode", havingValue = "presigned", matchIfMissing = true)
+public class PresignedUrlInputResolver implements VideoInputResolver {
+
+    private final MinioClient minioClient;
+    private final int expiryHours;
+
+    public PresignedUrlInputResolver(MinioClient minioClient,
+                                     @Value("${video.input.presigned-expiry-hours:6}") int expiryHours) {
+        this.minioClient = minioClient;
+        this.expiryHours = expiryHours;
+    }
+
+    @Override
+    public VideoInput resolve(String bucket, String objectKey) throws Exception {
+        // has to outlive the longest ffmpeg run, a retried job gets a new one
+        String url = minioClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(Method.GET)
+                        .bucket(bucket)
+                        .object(objectKey)
+                        .expiry(expiryHours, TimeUnit.HOURS)
+                        .build()
+        );
+        return new VideoInput() {
+            @Override
+            public String location() {
+                return url;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package org.sekoph.videoservice.processing;
+
+import lombok.Getter;
+import org.sekoph.videoservice.model.MediaMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One rung of the adaptive bitrate ladder. Every rendition is segmented in its own ffmpeg pass, the encoded ones
+ * force a keyframe at every segment boundary so the segments of all renditions line up and players can switch
+ * between them at any segment.
+ */
+@Getter
+public enum Rendition {
+    // the original streams copied without re-encoding
+    SOURCE("source", 0, 0, 0),
+    P240("240p", 240, 400, 64),
+    P360("360p", 360, 800, 96),
+    P480("480p", 480, 1400, 128),
+    P720("720p", 720, 2800, 128),
+    P1080("1080p", 1080, 5000, 192);
+
+    // stored as VideoSegment#quality and used in playlist URLs
+    private final String quality;
+    private final int height;
+    private final int videoBitrateKbps;
+    private final int audioBitrateKbps;
+
+    Rendition(String quality, int height, int videoBitrateKbps, int audioBitrateKbps) {
+        this.quality = quality;
+        this.height = height;
+        this.videoBitrateKbps = videoBitrateKbps;
+        this.audioBitrateKbps = audioBitrateKbps;
+    }
+
+    /**
+     * ffmpeg output options that produce this rendition by encoding the source.
+     *
+     * @param segmentDuration segment length in seconds, keyframes are forced on every multiple of it
+     */
+    public List<String> codecOptions(double segmentDuration) {
+        return codecOptions(segmentDuration, null);
+    }
+
+    /**
+     * ffmpeg output options that produce this rendition from a probed source, copying its streams where they already
+     * fit the rung, see {@link #canCopyVideo}.
+     *
+     * @param segmentDuration segment length in seconds, see {@link #segmentDuration}
+     * @param source          metadata of the source, or null if it was not probed
+     */
+    public List<String> codecOptions(double segmentDuration, MediaMetadata source) {
+        if (this == SOURCE) {
+            return List.of("-c", "copy");
+        }
+        List<String> options = new ArrayList<>();
+        if (canCopyVideo(source)) {
+            // the source key frames already fall on the segment boundaries
+            options.addAll(List.of("-c:v", "copy"));
+        } else {
+            options.addAll(List.of(
+                    // never upscale, and keep both dimensions even for the encoder
+                    "-vf", "scale=-2:trunc(min(ih\\," + height + ")/2)*2",
+                    "-c:v", "libx264",
+                    "-preset", "veryfast",
+                    "-b:v", videoBitrateKbps + "k",
+                    "-maxrate", videoBitrateKbps * 107 / 100 + "k",
+                    "-bufsize", videoBitrateKbps * 3 / 2 + "k",
+                    // a millisecond early, so rounding never pushes a key frame past a source key frame
+                    "-force_key_frames", "expr:gte(t+0.001,n_forced*"
+                            + SegmentationEngine.formatSeconds(segmentDuration) + ")",
+                    "-sc_threshold", "0"
+            ));
+        }
+        if (canCopyAudio(source)) {
+            options.addAll(List.of("-c:a", "copy"));
+        } else {
+            options.addAll(List.of("-c:a", "aac", "-b:a", audioBitrateKbps + "k", "-ac", "2"));
+        }
+        return options;
+    }
+
+    /**
+     * Whether the source video stream can be segmented as it is for this rung: H.264 in 4:2:0 that players decode
+     * everywhere, no taller than the rung, not much above its bitrate, and with a fixed GOP so its segments are cut
+     * where the encoded rungs force their key frames.
+     */
+    public boolean canCopyVideo(MediaMetadata source) {
+        if (this == SOURCE) {
+            return true;
+        }
+        if (source == null || source.getVideo() == null || source.getKeyframeInterval() == null) {
+            return false;
+        }
+        MediaMetadata.VideoTrack video = source.getVideo();
+        long bitRate = video.getBitRate() > 0 ? video.getBitRate() : source.getBitRate();
+        return "h264".equals(video.getCodec())
+                && "yuv420p".equals(video.getPixelFormat())
+                && video.getHeight() <= height
+                && bitRate > 0 && bitRate <= videoBitrateKbps * 1000L * 3 / 2;
+    }
+
+    private boolean canCopyAudio(MediaMetadata source) {
+        if (source == null || source.getAudioTracks().isEmpty()) {
+            return false;
+        }
+        MediaMetadata.AudioTrack audio = source.getAudioTracks().getFirst();
+        return "aac".equals(audio.getCodec())
+                && audio.getChannels() <= 2
+                && audio.getBitRate() > 0 && audio.getBitRate() <= audioBitrateKbps * 1000L * 3 / 2;
+    }
+
+    /**
+     * The rungs of a configured ladder worth producing for a source: every rung below its height and the first one
+     * at or above it, which the scale filter caps at the source height. Rungs are never upscaled, so taller ones
+     * would only repeat that rung at a higher bitrate.
+     *
+     * @param source metadata of the source, or null to produce the whole ladder
+     */
+    public static List<Rendition> ladderFor(List<Rendition> configured, MediaMetadata source) {
+        if (source == null || source.getVideo() == null || source.getVideo().getHeight() <= 0) {
+            return configured;
+        }
+        int sourceHeight = source.getVideo().getHeight();
+        int capHeight = configured.stream()
+                .mapToInt(Rendition::getHeight)
+                .filter(height -> height >= sourceHeight)
+                .min()
+                .orElse(Integer.MAX_VALUE);
+        return configured.stream()
+                .filter(rendition -> rendition == SOURCE || rendition.height <= capHeight)
+                .toList();
+    }
+
+    /**
+     * The segment length to use for a source: the requested one, rounded to a whole number of GOPs when the source
+     * has a fixed GOP, so copied streams are cut on their own key frames at the same points as the encoded ones.
+     *
+     * @param target requested segment length in seconds
+     * @param source metadata of the source, or null if it was not probed
+     */
+    public static double segmentDuration(int target, MediaMetadata source) {
+        Double interval = source == null ? null : source.getKeyframeInterval();
+        if (interval == null || interval > target) {
+            return target;
+        }
+        long gops = Math.max(1, Math.round(target / interval));
+        // ffmpeg is given milliseconds
+        return Math.round(gops * interval * 1000) / 1000.0;
+    }
+
+    public static Rendition fromQuality(String quality) {
+        for (Rendition rendition : values()) {
+            if (rendition.quality.equals(quality)) {
+                return rendition;
+            }
+        }
+        throw new IllegalArgumentException("Unknown quality: " + quality);
+    }
+}
@@ -0,0 +1,192 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Downloads each object once into a local scratch directory shared by all stages, so probing, segmenting and every
+ * frame range of a video read local disk. Entries are evicted least recently used first once the directory grows
+ * past its limit; entries being read are never evicted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "video.input.mode", havingValue = "scratch")
+public class ScratchCacheInputResolver implements VideoInputResolver, MeterBinder {
+
+    private final ObjectStore objectStore;
+    private final Path directory;
+    private final long maxBytes;
+
+    // access ordered, the first entry is the least recently used
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public ScratchCacheInputResolver(ObjectStore objectStore,
+                                     @Value("${video.input.scratch-dir:${java.io.tmpdir}/video-scratch}") Path directory,
+                                     @Value("${video.input.scratch-max-size:20GB}") DataSize maxSize) throws IOException {
+        this.objectStore = objectStore;
+        this.directory = directory;
+        this.maxBytes = maxSize.toBytes();
+        // files left by a previous run are not tracked, start empty
+        FileSystemUtils.deleteRecursively(directory);
+        Files.createDirectories(directory);
+        log.info("Scratch cache for video inputs at {}, limited to {} bytes", directory, maxBytes);
+    }
+
+    @Override
+    public VideoInput resolve(String bucket, String objectKey) throws Exception {
+        String cacheKey = bucket + "/" + objectKey;
+        Entry entry;
+        boolean download;
+        synchronized (this) {
+            entry = entries.get(cacheKey);
+            download = entry == null;
+            if (download) {
+                entry = new Entry(cacheKey, directory.resolve(bucket + "_" + objectKey.replace('/', '_')));
+                entries.put(cacheKey, entry);
+            }
+            entry.pins++;
+        }
+
+        try {
+            if (download) {
+                fetch(bucket, objectKey, entry);
+            }
+            // other stages of the same video wait for the download in progress instead of starting their own
+            Path file = entry.ready.get();
+            Entry pinned = entry;
+            return new VideoInput() {
+                @Override
+                public String location() {
+                    return file.toString();
+                }
+
+                @Override
+                public void close() {
+                    unpin(pinned);
+                }
+            };
+        } catch (ExecutionException e) {
+            unpin(entry);
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (Exception e) {
+            unpin(entry);
+            throw e;
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("video.input.cache.used", this, ScratchCacheInputResolver::getUsedBytes)
+                .description("Bytes of originals cached on local disk, including downloads in progress")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("video.input.cache.max", this, ScratchCacheInputResolver::getMaxBytes)
+                .description("Size above which cached originals are evicted")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("video.input.cache.entries", this, ScratchCacheInputResolver::getEntryCount)
+                .description("Originals cached or being downloaded")
+                .register(registry);
+    }
+
+    private void fetch(String bucket, String objectKey, Entry entry) throws Exception {
+        try {
+            long size = objectStore.stat(bucket, objectKey)
+                    .orElseThrow(() -> new NoSuchFileException(bucket + "/" + objectKey))
+                    .size();
+            synchronized (this) {
+                // reserve the space up front so parallel downloads cannot overshoot the limit together
+                entry.size = size;
+                usedBytes += size;
+                evict();
+            }
+
+            Path partial = entry.file.resolveSibling(entry.file.getFileName() + ".part");
+            try (InputStream in = ObjectStore.await(objectStore.get(bucket, objectKey))) {
+                Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(partial, entry.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entry.ready.complete(entry.file);
+            log.info("Cached {} ({} bytes), scratch cache holds {} of {} bytes", entry.key, size, getUsedBytes(),
+                    maxBytes);
+        } catch (Exception e) {
+            synchronized (this) {
+                entries.remove(entry.key);
+                usedBytes -= entry.size;
+            }
+            Files.deleteIfExists(entry.file.resolveSibling(entry.file.getFileName() + ".part"));
+            entry.ready.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private synchronized void unpin(Entry entry) {
+        entry.pins--;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> lru = entries.values().iterator();
+        while (usedBytes > maxBytes && lru.hasNext()) {
+            Entry candidate = lru.next();
+            if (candidate.pins > 0 || !candidate.ready.isDone()) {
+                continue;
+            }
+            lru.remove();
+            usedBytes -= candidate.size;
+            try {
+                Files.deleteIfExists(candidate.file);
+            } catch (IOException e) {
+                log.warn("Failed to delete scratch file {}", candidate.file, e);
+            }
+            log.debug("Evicted {} from the scratch cache, {} of {} bytes used", candidate.key, usedBytes, maxBytes);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final Path file;
+        private final CompletableFuture<Path> ready = new CompletableFuture<>();
+        private long size;
+        private int pins;
+
+        Entry(String key, Path file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+}
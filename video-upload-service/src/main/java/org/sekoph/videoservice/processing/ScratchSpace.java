@@ -0,0 +1,207 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The local disk ffmpeg writes segments, frames and sprite sheets to before they are uploaded, one directory per
+ * video under {@code video.scratch.dir}.
+ * <p>
+ * Every stage opens its own {@link Workspace} in the directory of its video and closes it once its uploads are done,
+ * whether the stage succeeded or not; the video's directory goes with the last of them. Whatever is found under the
+ * root at startup was left by a process that died mid-job and is deleted, so the directory must not be shared
+ * between instances.
+ * <p>
+ * Usage is the size of the files under the root, counted at most once a second. Once it reaches
+ * {@code video.scratch.max-size} the {@link PipelineScheduler} turns uploads away and stops starting jobs until
+ * uploads free up space.
+ */
+@Slf4j
+@Component
+public class ScratchSpace implements MeterBinder {
+
+    private final Path root;
+    private final long maxBytes;
+    // open workspaces per video directory
+    private final Map<Path, Integer> openWorkspaces = new HashMap<>();
+
+    private volatile long cachedUsedBytes;
+    private volatile long usageCheckedAt;
+
+    public ScratchSpace(@Value("${video.scratch.dir:${java.io.tmpdir}/video-work}") Path root,
+                        @Value("${video.scratch.max-size:50GB}") DataSize maxSize) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxSize.toBytes();
+        Files.createDirectories(this.root);
+        sweep();
+        log.info("Scratch space for processing output at {}, limited to {} bytes", this.root, maxBytes);
+    }
+
+    /**
+     * Open a new directory for a stage of a video.
+     *
+     * @param prefix start of the directory name, e.g. the stage and rendition
+     * @return the workspace, to be closed once nothing reads its files anymore
+     */
+    public Workspace open(String videoId, String prefix) throws IOException {
+        Path videoDirectory = root.resolve(videoId.replaceAll("[^A-Za-z0-9_-]", "_"));
+        synchronized (this) {
+            Files.createDirectories(videoDirectory);
+            openWorkspaces.merge(videoDirectory, 1, Integer::sum);
+        }
+        try {
+            return new Workspace(videoDirectory, Files.createTempDirectory(videoDirectory, prefix + "_"));
+        } catch (IOException | RuntimeException e) {
+            release(videoDirectory);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether usage is below the limit.
+     */
+    public boolean hasRoom() {
+        return getUsedBytes() < maxBytes;
+    }
+
+    /**
+     * Bytes of files under the root, as of at most a second ago.
+     */
+    public long getUsedBytes() {
+        // walking the tree on every admission would put a directory scan on the upload hot path
+        long now = System.currentTimeMillis();
+        if (now - usageCheckedAt > 1000) {
+            cachedUsedBytes = measure();
+            usageCheckedAt = now;
+        }
+        return cachedUsedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Videos with at least one open workspace.
+     */
+    public synchronized int getActiveVideos() {
+        return openWorkspaces.size();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("video.scratch.used", this, ScratchSpace::getUsedBytes)
+                .description("Bytes of processing output on local disk waiting for upload")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("video.scratch.max", this, ScratchSpace::getMaxBytes)
+                .description("Scratch space above which uploads are turned away")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("video.scratch.videos", this, ScratchSpace::getActiveVideos)
+                .description("Videos being processed with files in scratch space")
+                .register(registry);
+    }
+
+    private void sweep() throws IOException {
+        int orphans = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                FileSystemUtils.deleteRecursively(entry);
+                orphans++;
+            }
+        }
+        if (orphans > 0) {
+            log.info("Deleted {} orphaned entries from scratch space {}", orphans, root);
+        }
+    }
+
+    private long measure() {
+        long[] bytes = {0};
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    bytes[0] += attributes.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // uploaded and deleted while the tree was walked
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to measure scratch space {}", root, e);
+        }
+        return bytes[0];
+    }
+
+    private void release(Path videoDirectory) {
+        synchronized (this) {
+            if (openWorkspaces.merge(videoDirectory, -1, Integer::sum) > 0) {
+                return;
+            }
+            openWorkspaces.remove(videoDirectory);
+            try {
+                FileSystemUtils.deleteRecursively(videoDirectory);
+            } catch (IOException e) {
+                log.warn("Failed to delete scratch directory {}", videoDirectory, e);
+            }
+        }
+    }
+
+    /**
+     * A directory of one stage of a video. Closing it deletes the directory, and the video's directory once no
+     * other stage of the video has a workspace open. Safe to close more than once.
+     */
+    public final class Workspace implements AutoCloseable {
+
+        private final Path videoDirectory;
+        private final Path directory;
+        private boolean closed;
+
+        private Workspace(Path videoDirectory, Path directory) {
+            this.videoDirectory = videoDirectory;
+            this.directory = directory;
+        }
+
+        public Path directory() {
+            return directory;
+        }
+
+        @Override
+        public void close() {
+            synchronized (ScratchSpace.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                FileSystemUtils.deleteRecursively(directory);
+            } catch (IOException e) {
+                log.warn("Failed to delete scratch directory {}", directory, e);
+            }
+            release(videoDirectory);
+        }
+    }
+}
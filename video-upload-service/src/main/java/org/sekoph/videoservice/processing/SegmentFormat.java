@@ -0,0 +1,23 @@
+package org.sekoph.videoservice.processing;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public enum SegmentFormat {
+    // standalone MP4 files, each starting at timestamp zero
+    MP4("mp4", "video/mp4", List.of("-segment_format", "mp4", "-reset_timestamps", "1")),
+    // MPEG-TS with continuous timestamps, played back-to-back through an HLS playlist
+    TS("ts", "video/mp2t", List.of("-segment_format", "mpegts"));
+
+    private final String extension;
+    private final String contentType;
+    private final List<String> muxerOptions;
+
+    SegmentFormat(String extension, String contentType, List<String> muxerOptions) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.muxerOptions = muxerOptions;
+    }
+}
@@ -0,0 +1,240 @@
+package org.sekoph.videoservice.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a video into fixed-length segments with a single ffmpeg pass using the segment muxer.
+ * <p>
+ * ffmpeg appends a line to a CSV segment list every time it closes a segment, so the list is
+ * tailed while the process runs and each finished segment is handed to the listener straight
+ * away. Segment boundaries are cut on keyframes, so the reported start and end times are the
+ * real ones rather than multiples of the requested duration. Streams are copied as they are unless the caller asks
+ * for an encoding, which is how the renditions of the bitrate ladder are produced.
+ * <p>
+ * Segments are written as standalone MP4 files or as MPEG-TS segments of one continuous stream,
+ * see {@link SegmentFormat}.
+ */
+@Slf4j
+@Component
+public class SegmentationEngine {
+
+    static final String SEGMENT_LIST = "segments.csv";
+    static final String SEGMENT_PATTERN = "segment_%05d.";
+    private static final String LOG_FILE = "ffmpeg.log";
+    private static final long POLL_INTERVAL_MS = 250;
+
+    private final FfmpegProcessLimiter processLimiter;
+
+    public SegmentationEngine(FfmpegProcessLimiter processLimiter) {
+        this.processLimiter = processLimiter;
+    }
+
+    /**
+     * Seconds as ffmpeg options take them, without a trailing {@code .0}.
+     */
+    static String formatSeconds(double seconds) {
+        return BigDecimal.valueOf(seconds).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Receives every segment as soon as ffmpeg has closed its file.
+     */
+    @FunctionalInterface
+    public interface SegmentListener {
+        void onSegment(SegmentFile segment) throws Exception;
+    }
+
+    /**
+     * A finished segment on local disk.
+     *
+     * @param segmentNumber zero based position of the segment
+     * @param file          the segment file inside the output directory
+     * @param startTime     start of the segment in the source, in seconds
+     * @param endTime       end of the segment in the source, in seconds
+     */
+    public record SegmentFile(int segmentNumber, Path file, double startTime, double endTime) {
+    }
+
+    /**
+     * Segment the input into {@code outputDirectory}.
+     *
+     * @param input           path or URL ffmpeg reads the source from
+     * @param outputDirectory empty directory the segments and segment list are written to
+     * @param segmentDuration target segment length in seconds
+     * @param listener        called once per segment, in order, while ffmpeg is still running
+     * @return the number of segments produced
+     * @throws Exception if ffmpeg fails or the listener throws
+     */
+    public int segment(String input, Path outputDirectory, int segmentDuration, SegmentListener listener)
+            throws Exception {
+        return segment(input, outputDirectory, segmentDuration, SegmentFormat.MP4, listener);
+    }
+
+    /**
+     * Segment the input into {@code outputDirectory} as files of the given format.
+     *
+     * @see #segment(String, Path, int, SegmentListener)
+     */
+    public int segment(String input, Path outputDirectory, int segmentDuration, SegmentFormat format,
+                       SegmentListener listener) throws Exception {
+        return segment(input, outputDirectory, segmentDuration, format, List.of("-c", "copy"), listener);
+    }
+
+    /**
+     * Segment the input into {@code outputDirectory}, encoding it with the given codec options instead of copying
+     * the streams, see {@link Rendition#codecOptions}.
+     *
+     * @see #segment(String, Path, int, SegmentListener)
+     */
+    public int segment(String input, Path outputDirectory, double segmentDuration, SegmentFormat format,
+                       List<String> codecOptions, SegmentListener listener) throws Exception {
+        try (FfmpegProcessLimiter.Permit permit = processLimiter.acquire("segment")) {
+            return runSegmentation(input, outputDirectory, segmentDuration, format, codecOptions, listener);
+        }
+    }
+
+    private int runSegmentation(String input, Path outputDirectory, double segmentDuration, SegmentFormat format,
+                                List<String> codecOptions, SegmentListener listener) throws Exception {
+        Path segmentList = outputDirectory.resolve(SEGMENT_LIST);
+        Path logFile = outputDirectory.resolve(LOG_FILE);
+
+        ProcessBuilder pb = new ProcessBuilder(buildCommand(input, outputDirectory, segmentDuration, format,
+                codecOptions));
+        // Nothing reads the pipes, so send them to a file instead of letting ffmpeg block on a full buffer
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(logFile.toFile());
+
+        Process process = pb.start();
+        SegmentListReader reader = new SegmentListReader(segmentList);
+        int segmentCount = 0;
+
+        try (WatchService watchService = outputDirectory.getFileSystem().newWatchService()) {
+            outputDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            boolean running = true;
+            while (running) {
+                running = process.isAlive();
+
+                for (String[] entry : reader.readNewEntries()) {
+                    listener.onSegment(toSegmentFile(outputDirectory, segmentCount, entry));
+                    segmentCount++;
+                }
+
+                if (running) {
+                    WatchKey key = watchService.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            process.destroyForcibly();
+            throw e;
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new VideoProcessingException("FFmpeg segmentation failed with exit code: " + exitCode +
+                    ". Error: " + tail(logFile).replace(input, VideoInput.describe(input)));
+        }
+
+        log.debug("Segmented {} into {} segments", VideoInput.describe(input), segmentCount);
+        return segmentCount;
+    }
+
+    List<String> buildCommand(String input, Path outputDirectory, double segmentDuration, SegmentFormat format,
+                              List<String> codecOptions) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-hide_banner", "-nostdin", "-y"));
+        command.addAll(VideoInput.inputOptions(input));
+        command.addAll(List.of("-i", input));
+        command.addAll(codecOptions);
+        command.addAll(List.of(
+                "-f", "segment",
+                "-segment_time", formatSeconds(segmentDuration),
+                // key frames a rounding error before a boundary still start the next segment
+                "-segment_time_delta", "0.001",
+                "-segment_list", outputDirectory.resolve(SEGMENT_LIST).toString(),
+                "-segment_list_type", "csv",
+                "-avoid_negative_ts", "make_zero"
+        ));
+        command.addAll(format.getMuxerOptions());
+        command.add(outputDirectory.resolve(SEGMENT_PATTERN + format.getExtension()).toString());
+        return command;
+    }
+
+    static SegmentFile toSegmentFile(Path outputDirectory, int segmentNumber, String[] entry) {
+        if (entry.length < 3) {
+            throw new VideoProcessingException("Malformed segment list entry: " + String.join(",", entry));
+        }
+        return new SegmentFile(
+                segmentNumber,
+                outputDirectory.resolve(entry[0]),
+                Double.parseDouble(entry[1]),
+                Double.parseDouble(entry[2])
+        );
+    }
+
+    private String tail(Path logFile) {
+        try {
+            List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+            return String.join("\n", lines.subList(Math.max(0, lines.size() - 20), lines.size()));
+        } catch (IOException e) {
+            return "<no ffmpeg output>";
+        }
+    }
+
+    /**
+     * Incrementally reads the CSV segment list, only returning lines ffmpeg has finished writing.
+     */
+    static class SegmentListReader {
+        private final Path segmentList;
+        private long offset;
+        private final StringBuilder partial = new StringBuilder();
+
+        SegmentListReader(Path segmentList) {
+            this.segmentList = segmentList;
+        }
+
+        List<String[]> readNewEntries() throws IOException {
+            List<String[]> entries = new ArrayList<>();
+            if (!Files.exists(segmentList)) {
+                return entries;
+            }
+
+            try (RandomAccessFile file = new RandomAccessFile(segmentList.toFile(), "r")) {
+                long length = file.length();
+                if (length <= offset) {
+                    return entries;
+                }
+                byte[] buffer = new byte[(int) (length - offset)];
+                file.seek(offset);
+                file.readFully(buffer);
+                offset = length;
+                partial.append(new String(buffer, StandardCharsets.UTF_8));
+            }
+
+            int newline;
+            while ((newline = partial.indexOf("\n")) >= 0) {
+                String line = partial.substring(0, newline).trim();
+                partial.delete(0, newline + 1);
+                if (!line.isEmpty()) {
+                    entries.add(line.split(","));
+                }
+            }
+            return entries;
+        }
+    }
+}
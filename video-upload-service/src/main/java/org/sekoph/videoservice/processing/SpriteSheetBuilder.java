@@ -0,0 +1,126 @@
+package org.sekoph.videoservice.processing;
+
+import org.sekoph.videoservice.exception.VideoProcessingException;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Tiles extracted frames into sprite sheets for seek previews, so a player fetches one image per grid of frames
+ * instead of one per frame. Frames are scaled to a fixed tile width, the tile height follows the aspect ratio of the
+ * first frame. Tiles fill a sheet row by row, and a sheet is written as soon as it is full.
+ * <p>
+ * Not thread-safe, frames are added from the thread that reads them off ffmpeg.
+ */
+public class SpriteSheetBuilder {
+
+    /**
+     * Receives every sprite sheet once its file is written.
+     */
+    @FunctionalInterface
+    public interface SheetListener {
+        void onSheet(SpriteSheet sheet) throws Exception;
+    }
+
+    /**
+     * A finished sprite sheet on local disk.
+     *
+     * @param index zero based position of the sheet among the sheets of this builder
+     * @param file  the JPEG inside the output directory
+     * @param tiles number of frames on the sheet
+     */
+    public record SpriteSheet(int index, Path file, int tiles) {
+    }
+
+    /**
+     * Where a frame ended up.
+     *
+     * @param sheet index of the sprite sheet
+     */
+    public record Tile(int sheet, int x, int y, int width, int height) {
+    }
+
+    private final Path outputDirectory;
+    private final int columns;
+    private final int rows;
+    private final int tileWidth;
+    private final SheetListener listener;
+
+    private int tileHeight;
+    private int sheetIndex;
+    private int tileCount;
+    private BufferedImage sheet;
+
+    public SpriteSheetBuilder(Path outputDirectory, int columns, int rows, int tileWidth, SheetListener listener) {
+        this.outputDirectory = outputDirectory;
+        this.columns = columns;
+        this.rows = rows;
+        this.tileWidth = tileWidth;
+        this.listener = listener;
+    }
+
+    /**
+     * Scale a frame onto the current sheet.
+     *
+     * @return where the frame was placed
+     * @throws Exception if the frame cannot be read, or writing a full sheet or the listener fails
+     */
+    public Tile add(Path frame) throws Exception {
+        BufferedImage image = ImageIO.read(frame.toFile());
+        if (image == null) {
+            throw new VideoProcessingException("Not a readable image: " + frame);
+        }
+        if (tileHeight == 0) {
+            // even, like the video itself
+            tileHeight = Math.max(2, Math.round(tileWidth * image.getHeight() / (float) image.getWidth() / 2) * 2);
+        }
+        if (sheet == null) {
+            sheet = new BufferedImage(columns * tileWidth, rows * tileHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        int x = tileCount % columns * tileWidth;
+        int y = tileCount / columns * tileHeight;
+        Graphics2D graphics = sheet.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, x, y, tileWidth, tileHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        Tile tile = new Tile(sheetIndex, x, y, tileWidth, tileHeight);
+
+        tileCount++;
+        if (tileCount == columns * rows) {
+            writeSheet();
+        }
+        return tile;
+    }
+
+    /**
+     * Write the last, partly filled sheet, cropped to the rows in use.
+     */
+    public void finish() throws Exception {
+        if (tileCount > 0) {
+            writeSheet();
+        }
+    }
+
+    private void writeSheet() throws Exception {
+        int usedRows = Math.ceilDiv(tileCount, columns);
+        BufferedImage image = usedRows == rows ? sheet : sheet.getSubimage(0, 0, sheet.getWidth(), usedRows * tileHeight);
+        Path file = outputDirectory.resolve(String.format("sprite_%04d.jpg", sheetIndex));
+        if (!ImageIO.write(image, "jpg", file.toFile())) {
+            throw new IOException("No JPEG writer available");
+        }
+        SpriteSheet written = new SpriteSheet(sheetIndex, file, tileCount);
+
+        sheet = null;
+        tileCount = 0;
+        sheetIndex++;
+        listener.onSheet(written);
+    }
+}
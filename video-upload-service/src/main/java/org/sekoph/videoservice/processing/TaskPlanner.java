@@ -0,0 +1,58 @@
+package org.sekoph.videoservice.processing;
+
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the processing of a probed video into tasks: one segmentation pass per rendition and frame extraction in
+ * ranges that decode in parallel.
+ */
+public class TaskPlanner {
+
+    private final List<Rendition> renditions;
+    private final boolean prioritizeFirstRendition;
+    private final int frameInterval;
+    private final int framesPerSheet;
+
+    /**
+     * @param renditions               configured ladder, lowest first
+     * @param prioritizeFirstRendition claim the first rendition before any other task of the video
+     * @param frameInterval            seconds between frames in INTERVAL mode
+     * @param framesPerSheet           thumbnails on one sprite sheet, columns times rows
+     */
+    public TaskPlanner(List<Rendition> renditions, boolean prioritizeFirstRendition, int frameInterval,
+                       int framesPerSheet) {
+        this.renditions = renditions;
+        this.prioritizeFirstRendition = prioritizeFirstRendition;
+        this.frameInterval = frameInterval;
+        this.framesPerSheet = framesPerSheet;
+    }
+
+    /**
+     * @param frameChunkSeconds length of the frame extraction ranges, rounded up to whole sprite sheets of frames
+     */
+    public List<ProcessingJob> plan(Video video, long frameChunkSeconds) {
+        String videoId = video.getId();
+        List<ProcessingJob> tasks = new ArrayList<>();
+        // rungs taller than the source are left out, they would only repeat its resolution at a higher bitrate
+        List<Rendition> ladder = Rendition.ladderFor(renditions, video.getMetadata());
+        for (int i = 0; i < ladder.size(); i++) {
+            // the first rendition is claimed before any other, so the video can be played while the rest encode
+            int priority = prioritizeFirstRendition ? Math.min(i, 1) : 0;
+            tasks.add(ProcessingJob.segments(videoId, ladder.get(i), priority));
+        }
+
+        // ranges start on a multiple of the frame interval so INTERVAL frames land where a single pass puts them, and
+        // hold whole sprite sheets so every range but the last fills its sheets; other modes only get close to that
+        long sheetSeconds = (long) frameInterval * Math.max(1, framesPerSheet);
+        long chunk = Math.max(1, Math.ceilDiv(frameChunkSeconds, sheetSeconds)) * sheetSeconds;
+        long duration = video.getDuration();
+        for (long start = 0; start == 0 || start < duration; start += chunk) {
+            tasks.add(ProcessingJob.frames(videoId, start, start + chunk < duration ? start + chunk : null));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,46 @@
+package org.sekoph.videoservice.processing;
+
+import java.util.List;
+
+/**
+ * Where ffprobe and ffmpeg read a stored video from, valid until closed.
+ */
+public interface VideoInput extends AutoCloseable {
+
+    /**
+     * Local path or URL to pass to {@code -i}.
+     */
+    String location();
+
+    @Override
+    void close();
+
+    /**
+     * Input options that have to come before {@code -i location}. Reading over HTTP reconnects after a dropped
+     * connection instead of failing a long decode, and seeks with range requests instead of downloading.
+     */
+    static List<String> inputOptions(String location) {
+        if (isUrl(location)) {
+            return List.of("-reconnect", "1", "-reconnect_on_network_error", "1", "-reconnect_delay_max", "10");
+        }
+        return List.of();
+    }
+
+    /**
+     * How to name an input in logs and errors: {@code bucket/key} for a presigned URL, whose query string signs it,
+     * and the path itself for a local file.
+     */
+    static String describe(String location) {
+        if (!isUrl(location)) {
+            return location;
+        }
+        int query = location.indexOf('?');
+        String url = query < 0 ? location : location.substring(0, query);
+        int path = url.indexOf('/', url.indexOf("://") + 3);
+        return path < 0 ? url : url.substring(path + 1);
+    }
+
+    private static boolean isUrl(String location) {
+        return location.startsWith("http://") || location.startsWith("https://");
+    }
+}
@@ -0,0 +1,14 @@
+package org.sekoph.videoservice.processing;
+
+/**
+ * Makes a stored object readable by ffmpeg. Selected with {@code video.input.mode}: {@code presigned} streams
+ * straight from MinIO, {@code scratch} reads from a local copy shared by every stage on the node.
+ */
+public interface VideoInputResolver {
+
+    /**
+     * @return the input, to be closed once ffmpeg has finished reading it
+     * @throws Exception if the object cannot be made available
+     */
+    VideoInput resolve(String bucket, String objectKey) throws Exception;
+}
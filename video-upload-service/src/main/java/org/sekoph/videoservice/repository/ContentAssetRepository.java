@@ -0,0 +1,9 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.ContentAsset;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ContentAssetRepository extends MongoRepository<ContentAsset, String>, ContentAssetRepositoryCustom {
+}
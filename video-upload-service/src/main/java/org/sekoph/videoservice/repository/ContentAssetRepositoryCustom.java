@@ -0,0 +1,36 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.ContentAsset;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reference counting of content assets. Every change is a single atomic update, so uploads and deletes of the same
+ * content on different nodes cannot lose a reference.
+ */
+public interface ContentAssetRepositoryCustom {
+
+    /**
+     * Add a reference to the asset with this hash, creating it with {@code videoS3Key} as the original if it does not
+     * exist yet.
+     *
+     * @return the asset after the increment; its original is not {@code videoS3Key} if the content was already stored
+     */
+    ContentAsset acquire(String contentHash, String videoS3Key, ContainerFormat containerFormat, long fileSize);
+
+    /**
+     * Make the artifacts of {@code videoId} the shared ones, unless another video got there first.
+     *
+     * @return true if they are now the shared artifacts
+     */
+    boolean claimArtifacts(String contentHash, String videoId, List<String> segmentKeys, List<String> frameKeys);
+
+    /**
+     * Drop a reference.
+     *
+     * @return the asset if this was the last reference, it has been removed and its objects can be deleted
+     */
+    Optional<ContentAsset> release(String contentHash);
+}
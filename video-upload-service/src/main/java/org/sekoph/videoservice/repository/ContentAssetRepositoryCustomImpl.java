@@ -0,0 +1,67 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.ContentAsset;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public class ContentAssetRepositoryCustomImpl implements ContentAssetRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ContentAssetRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public ContentAsset acquire(String contentHash, String videoS3Key, ContainerFormat containerFormat,
+                                long fileSize) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .setOnInsert("videoS3Key", videoS3Key)
+                .setOnInsert("containerFormat", containerFormat)
+                .setOnInsert("fileSize", fileSize)
+                .setOnInsert("createdAt", now)
+                .set("updatedAt", now)
+                .inc("refCount", 1);
+        return mongoTemplate.findAndModify(byId(contentHash), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), ContentAsset.class);
+    }
+
+    @Override
+    public boolean claimArtifacts(String contentHash, String videoId, List<String> segmentKeys,
+                                  List<String> frameKeys) {
+        Query query = Query.query(Criteria.where("id").is(contentHash).and("artifactsVideoId").is(null));
+        Update update = new Update()
+                .set("artifactsVideoId", videoId)
+                .set("segmentKeys", segmentKeys)
+                .set("frameKeys", frameKeys)
+                .set("updatedAt", Instant.now());
+        return mongoTemplate.updateFirst(query, update, ContentAsset.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public Optional<ContentAsset> release(String contentHash) {
+        ContentAsset asset = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(contentHash).and("refCount").gt(0)),
+                new Update().inc("refCount", -1).set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true), ContentAsset.class);
+        if (asset == null || asset.getRefCount() > 0) {
+            return Optional.empty();
+        }
+        // an upload of the same content may have taken a new reference in between
+        return Optional.ofNullable(mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("id").is(contentHash).and("refCount").is(0)), ContentAsset.class));
+    }
+
+    private Query byId(String contentHash) {
+        return Query.query(Criteria.where("id").is(contentHash));
+    }
+}
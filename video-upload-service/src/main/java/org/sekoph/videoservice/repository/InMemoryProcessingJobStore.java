@@ -0,0 +1,193 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.enums.JobStatus;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Single-node stand-in for {@link MongoProcessingJobStore} with the same claiming rules, for tests and local runs
+ * without MongoDB ({@code video.jobs.store=memory}). Jobs do not survive a restart.
+ */
+@Repository
+@ConditionalOnProperty(name = "video.jobs.store", havingValue = "memory")
+public class InMemoryProcessingJobStore implements ProcessingJobStore {
+
+    private final Map<String, ProcessingJob> jobs = new LinkedHashMap<>();
+    private final Clock clock;
+
+    public InMemoryProcessingJobStore() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryProcessingJobStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void enqueueAll(List<ProcessingJob> newJobs) {
+        Instant now = clock.instant();
+        for (ProcessingJob newJob : newJobs) {
+            jobs.computeIfAbsent(newJob.getId(), id -> {
+                ProcessingJob job = copy(newJob);
+                job.setStatus(JobStatus.PENDING);
+                job.setAttempts(0);
+                job.setNextAttemptAt(now);
+                job.setCreatedAt(now);
+                job.setUpdatedAt(now);
+                return job;
+            });
+        }
+    }
+
+    @Override
+    public synchronized long countOpenTasks(String videoId) {
+        return jobs.values().stream()
+                .filter(job -> videoId.equals(job.getVideoId()) && job.getType() != JobType.VIDEO)
+                .filter(job -> job.getStatus() == JobStatus.PENDING || job.getStatus() == JobStatus.PROCESSING)
+                .count();
+    }
+
+    @Override
+    public synchronized long countPending(JobType type) {
+        return jobs.values().stream()
+                .filter(job -> job.getType() == type && job.getStatus() == JobStatus.PENDING)
+                .count();
+    }
+
+    @Override
+    public synchronized Optional<ProcessingJob> claimNext(String workerId, JobType type, Duration lease) {
+        Instant now = clock.instant();
+        Optional<ProcessingJob> claimable = jobs.values().stream()
+                .filter(job -> job.getType() == type && isClaimable(job, now))
+                .min(Comparator.comparingInt(ProcessingJob::getPriority)
+                        .thenComparing(ProcessingJob::getNextAttemptAt));
+
+        claimable.ifPresent(job -> {
+            job.setStatus(JobStatus.PROCESSING);
+            job.setLeaseOwner(workerId);
+            job.setLeaseExpiresAt(now.plus(lease));
+            job.setAttempts(job.getAttempts() + 1);
+            job.setUpdatedAt(now);
+        });
+        return claimable.map(this::copy);
+    }
+
+    @Override
+    public synchronized boolean renewLease(String jobId, String workerId, Duration lease) {
+        ProcessingJob job = owned(jobId, workerId);
+        if (job == null) {
+            return false;
+        }
+        job.setLeaseExpiresAt(clock.instant().plus(lease));
+        job.setUpdatedAt(clock.instant());
+        return true;
+    }
+
+    @Override
+    public synchronized void complete(String jobId, String workerId) {
+        finish(jobId, workerId, JobStatus.COMPLETED, null);
+    }
+
+    @Override
+    public synchronized void retry(String jobId, String workerId, String error, Instant nextAttemptAt) {
+        ProcessingJob job = owned(jobId, workerId);
+        if (job != null) {
+            job.setStatus(JobStatus.PENDING);
+            job.setNextAttemptAt(nextAttemptAt);
+            job.setLastError(error);
+            releaseLease(job);
+        }
+    }
+
+    @Override
+    public synchronized void fail(String jobId, String workerId, String error) {
+        finish(jobId, workerId, JobStatus.FAILED, error);
+    }
+
+    @Override
+    public synchronized int releaseLeases(String workerId) {
+        int released = 0;
+        for (ProcessingJob job : jobs.values()) {
+            if (job.getStatus() == JobStatus.PROCESSING && workerId.equals(job.getLeaseOwner())) {
+                job.setStatus(JobStatus.PENDING);
+                job.setNextAttemptAt(clock.instant());
+                job.setAttempts(job.getAttempts() - 1);
+                releaseLease(job);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Snapshot of a job.
+     */
+    @Override
+    public synchronized Optional<ProcessingJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(this::copy);
+    }
+
+    private boolean isClaimable(ProcessingJob job, Instant now) {
+        return switch (job.getStatus()) {
+            case PENDING -> !job.getNextAttemptAt().isAfter(now);
+            case PROCESSING -> job.getLeaseExpiresAt().isBefore(now);
+            default -> false;
+        };
+    }
+
+    private void finish(String jobId, String workerId, JobStatus status, String error) {
+        ProcessingJob job = owned(jobId, workerId);
+        if (job != null) {
+            job.setStatus(status);
+            if (error != null) {
+                job.setLastError(error);
+            }
+            releaseLease(job);
+        }
+    }
+
+    private void releaseLease(ProcessingJob job) {
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        job.setUpdatedAt(clock.instant());
+    }
+
+    private ProcessingJob owned(String jobId, String workerId) {
+        ProcessingJob job = jobs.get(jobId);
+        if (job == null || job.getStatus() != JobStatus.PROCESSING || !workerId.equals(job.getLeaseOwner())) {
+            return null;
+        }
+        return job;
+    }
+
+    private ProcessingJob copy(ProcessingJob job) {
+        ProcessingJob copy = new ProcessingJob();
+        copy.setId(job.getId());
+        copy.setType(job.getType());
+        copy.setVideoId(job.getVideoId());
+        copy.setRangeStart(job.getRangeStart());
+        copy.setRangeEnd(job.getRangeEnd());
+        copy.setRendition(job.getRendition());
+        copy.setPriority(job.getPriority());
+        copy.setStatus(job.getStatus());
+        copy.setAttempts(job.getAttempts());
+        copy.setNextAttemptAt(job.getNextAttemptAt());
+        copy.setLeaseOwner(job.getLeaseOwner());
+        copy.setLeaseExpiresAt(job.getLeaseExpiresAt());
+        copy.setLastError(job.getLastError());
+        copy.setCreatedAt(job.getCreatedAt());
+        copy.setUpdatedAt(job.getUpdatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,46 @@
+package org.sekoph.videoservice.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Single-node stand-in for {@link MongoVideoChangeStream}, for tests and local runs without a replica set
+ * ({@code video.cache.invalidation=local}). Only changes passed to {@link #publish} are delivered, a node's own writes
+ * already invalidate its cache directly.
+ */
+@Repository
+@ConditionalOnProperty(name = "video.cache.invalidation", havingValue = "local")
+public class InMemoryVideoChangeStream implements VideoChangeStream {
+
+    private volatile Listener listener;
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Deliver a change as if another node had written the video.
+     */
+    public void publish(String videoId) {
+        Listener current = listener;
+        if (current != null) {
+            current.changed(videoId);
+        }
+    }
+
+    /**
+     * Deliver a gap in the stream.
+     */
+    public void reset() {
+        Listener current = listener;
+        if (current != null) {
+            current.reset();
+        }
+    }
+
+    @Override
+    public void close() {
+        listener = null;
+    }
+}
@@ -0,0 +1,175 @@
+package org.sekoph.videoservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.enums.JobStatus;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "video.jobs.store", havingValue = "mongo", matchIfMissing = true)
+public class MongoProcessingJobStore implements ProcessingJobStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final Clock clock;
+
+    public MongoProcessingJobStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.clock = Clock.systemUTC();
+    }
+
+    @Override
+    public void initialize() {
+        var indexOps = mongoTemplate.indexOps(ProcessingJob.class);
+        indexOps.createIndex(new Index().on("type", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                .on("priority", Sort.Direction.ASC).on("next_attempt_at", Sort.Direction.ASC));
+        indexOps.createIndex(new Index().on("type", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                .on("lease_expires_at", Sort.Direction.ASC));
+        indexOps.createIndex(new Index().on("lease_owner", Sort.Direction.ASC).sparse());
+        indexOps.createIndex(new Index().on("video_id", Sort.Direction.ASC).on("status", Sort.Direction.ASC));
+    }
+
+    @Override
+    public void enqueueAll(List<ProcessingJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        Instant now = clock.instant();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessingJob.class);
+        for (ProcessingJob job : jobs) {
+            Update update = new Update()
+                    .setOnInsert("type", job.getType())
+                    .setOnInsert("videoId", job.getVideoId())
+                    .setOnInsert("rangeStart", job.getRangeStart())
+                    .setOnInsert("rangeEnd", job.getRangeEnd())
+                    .setOnInsert("rendition", job.getRendition())
+                    .setOnInsert("priority", job.getPriority())
+                    .setOnInsert("status", JobStatus.PENDING)
+                    .setOnInsert("attempts", 0)
+                    .setOnInsert("nextAttemptAt", now)
+                    .setOnInsert("createdAt", now)
+                    .setOnInsert("updatedAt", now);
+            bulk.upsert(Query.query(Criteria.where("id").is(job.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public Optional<ProcessingJob> find(String jobId) {
+        return Optional.ofNullable(mongoTemplate.findById(jobId, ProcessingJob.class));
+    }
+
+    @Override
+    public long countOpenTasks(String videoId) {
+        return mongoTemplate.count(Query.query(Criteria.where("videoId").is(videoId)
+                .and("type").ne(JobType.VIDEO)
+                .and("status").in(JobStatus.PENDING, JobStatus.PROCESSING)), ProcessingJob.class);
+    }
+
+    @Override
+    public long countPending(JobType type) {
+        return mongoTemplate.count(Query.query(Criteria.where("status").is(JobStatus.PENDING).and("type").is(type)),
+                ProcessingJob.class);
+    }
+
+    @Override
+    public Optional<ProcessingJob> claimNext(String workerId, JobType type, Duration lease) {
+        Instant now = clock.instant();
+        Query query = new Query(Criteria.where("type").is(type).orOperator(
+                Criteria.where("status").is(JobStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(JobStatus.PROCESSING).and("leaseExpiresAt").lt(now)
+        )).with(Sort.by("priority", "nextAttemptAt"));
+
+        Update update = new Update()
+                .set("status", JobStatus.PROCESSING)
+                .set("leaseOwner", workerId)
+                .set("leaseExpiresAt", now.plus(lease))
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+
+        ProcessingJob job = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), ProcessingJob.class);
+        return Optional.ofNullable(job);
+    }
+
+    @Override
+    public boolean renewLease(String jobId, String workerId, Duration lease) {
+        Instant now = clock.instant();
+        Update update = new Update()
+                .set("leaseExpiresAt", now.plus(lease))
+                .set("updatedAt", now);
+        return mongoTemplate.updateFirst(ownedBy(jobId, workerId), update, ProcessingJob.class)
+                .getModifiedCount() > 0;
+    }
+
+    @Override
+    public void complete(String jobId, String workerId) {
+        finish(jobId, workerId, JobStatus.COMPLETED, null);
+    }
+
+    @Override
+    public void retry(String jobId, String workerId, String error, Instant nextAttemptAt) {
+        Update update = new Update()
+                .set("status", JobStatus.PENDING)
+                .set("nextAttemptAt", nextAttemptAt)
+                .set("lastError", error)
+                .set("updatedAt", clock.instant())
+                .unset("leaseOwner")
+                .unset("leaseExpiresAt");
+        mongoTemplate.updateFirst(ownedBy(jobId, workerId), update, ProcessingJob.class);
+    }
+
+    @Override
+    public void fail(String jobId, String workerId, String error) {
+        finish(jobId, workerId, JobStatus.FAILED, error);
+    }
+
+    @Override
+    public int releaseLeases(String workerId) {
+        Query query = Query.query(Criteria.where("status").is(JobStatus.PROCESSING).and("leaseOwner").is(workerId));
+        Update update = new Update()
+                .set("status", JobStatus.PENDING)
+                .set("nextAttemptAt", clock.instant())
+                .set("updatedAt", clock.instant())
+                .inc("attempts", -1)
+                .unset("leaseOwner")
+                .unset("leaseExpiresAt");
+        return (int) mongoTemplate.updateMulti(query, update, ProcessingJob.class).getModifiedCount();
+    }
+
+    private void finish(String jobId, String workerId, JobStatus status, String error) {
+        Update update = new Update()
+                .set("status", status)
+                .set("updatedAt", clock.instant())
+                .unset("leaseOwner")
+                .unset("leaseExpiresAt");
+        if (error != null) {
+            update.set("lastError", error);
+        }
+        if (mongoTemplate.updateFirst(ownedBy(jobId, workerId), update, ProcessingJob.class).getModifiedCount() == 0) {
+            log.warn("Job {} was no longer leased by {} when marking it {}", jobId, workerId, status);
+        }
+    }
+
+    private Query ownedBy(String jobId, String workerId) {
+        return Query.query(Criteria.where("id").is(jobId)
+                .and("status").is(JobStatus.PROCESSING)
+                .and("leaseOwner").is(workerId));
+    }
+}
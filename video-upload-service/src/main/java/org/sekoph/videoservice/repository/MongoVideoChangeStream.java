@@ -0,0 +1,87 @@
+package org.sekoph.videoservice.repository;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.sekoph.videoservice.model.Video;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the videos collection through a MongoDB change stream (needs a replica set, which Atlas always is), so
+ * every node hears about the writes of every other node. After a (re)connect the listener is reset instead of
+ * resuming, since the stream only exists to keep caches fresh.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "video.cache.invalidation", havingValue = "change-stream", matchIfMissing = true)
+public class MongoVideoChangeStream implements VideoChangeStream {
+
+    private static final long RECONNECT_DELAY_SECONDS = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    private volatile boolean closed;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread thread;
+
+    public MongoVideoChangeStream(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        thread = new Thread(() -> watch(listener), "video-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(Listener listener) {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.in("operationType", "update", "replace", "delete")));
+        while (!closed) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> changes =
+                         mongoTemplate.getCollection(mongoTemplate.getCollectionName(Video.class))
+                                 .watch(pipeline).cursor()) {
+                cursor = changes;
+                // whatever changed before the stream was open went unseen
+                listener.reset();
+                while (!closed) {
+                    BsonValue id = changes.next().getDocumentKey().get("_id");
+                    listener.changed(id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                            : id.asString().getValue());
+                }
+            } catch (Exception e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Video change stream failed, reconnecting in {}s", RECONNECT_DELAY_SECONDS, e);
+                try {
+                    TimeUnit.SECONDS.sleep(RECONNECT_DELAY_SECONDS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (cursor != null) {
+            // unblocks the waiting next()
+            cursor.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
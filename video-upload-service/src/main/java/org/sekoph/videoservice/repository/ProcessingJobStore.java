@@ -0,0 +1,82 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.enums.JobType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent queue of video processing jobs.
+ * <p>
+ * Jobs are claimed with a lease. A worker keeps renewing the lease while it works on a job, and a job whose lease
+ * has expired (because its worker crashed or was redeployed) can be claimed again by any worker. Every state change
+ * after a claim only applies while the caller still owns the lease.
+ */
+public interface ProcessingJobStore {
+
+    /**
+     * Prepare the backing store, e.g. create indexes. Called once by the worker before it starts claiming.
+     */
+    default void initialize() {
+    }
+
+    /**
+     * Add a PENDING VIDEO job for the video. Does nothing if the video already has one.
+     */
+    default void enqueue(String videoId) {
+        enqueueAll(List.of(ProcessingJob.video(videoId)));
+    }
+
+    /**
+     * Add PENDING jobs, skipping every job whose id already exists.
+     */
+    void enqueueAll(List<ProcessingJob> jobs);
+
+    /**
+     * A job as stored, e.g. to check whether a video's VIDEO job has completed.
+     */
+    Optional<ProcessingJob> find(String jobId);
+
+    /**
+     * Number of SEGMENTS and FRAMES tasks of the video that are not COMPLETED or FAILED yet.
+     */
+    long countOpenTasks(String videoId);
+
+    /**
+     * Number of PENDING jobs of the given type, across all nodes.
+     */
+    long countPending(JobType type);
+
+    /**
+     * Atomically claim the claimable job of the given type with the lowest priority, the oldest one among equals: a
+     * PENDING job whose retry time has passed, or a PROCESSING job whose lease has expired. Claiming counts as an
+     * attempt.
+     */
+    Optional<ProcessingJob> claimNext(String workerId, JobType type, Duration lease);
+
+    /**
+     * Extend the lease of a job held by the worker.
+     *
+     * @return false if the worker no longer owns the job
+     */
+    boolean renewLease(String jobId, String workerId, Duration lease);
+
+    void complete(String jobId, String workerId);
+
+    /**
+     * Put the job back to PENDING so it is retried once {@code nextAttemptAt} has passed.
+     */
+    void retry(String jobId, String workerId, String error, Instant nextAttemptAt);
+
+    void fail(String jobId, String workerId, String error);
+
+    /**
+     * Hand back every job held by the worker without counting the attempt, used on graceful shutdown.
+     *
+     * @return the number of jobs released
+     */
+    int releaseLeases(String workerId);
+}
@@ -0,0 +1,9 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String>, UploadSessionRepositoryCustom {
+}
@@ -0,0 +1,35 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.UploadPart;
+import org.sekoph.videoservice.model.UploadSession;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Targeted updates for upload sessions, so chunks received in parallel by different nodes never overwrite each other.
+ */
+public interface UploadSessionRepositoryCustom {
+
+    /**
+     * Record a received chunk and push back the expiry of the session.
+     *
+     * @param containerFormat format sniffed from the first chunk, null for the others
+     * @return false if the session no longer accepts chunks
+     */
+    boolean recordPart(String sessionId, int partNumber, UploadPart part, ContainerFormat containerFormat,
+                       Instant expiresAt);
+
+    /**
+     * Move the session from one status to another.
+     *
+     * @return false if it was not in {@code from}
+     */
+    boolean transition(String sessionId, UploadSessionStatus from, UploadSessionStatus to);
+
+    void markCompleted(String sessionId, String videoId);
+
+    List<UploadSession> findExpired(Instant now, int limit);
+}
@@ -0,0 +1,64 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.UploadPart;
+import org.sekoph.videoservice.model.UploadSession;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+
+public class UploadSessionRepositoryCustomImpl implements UploadSessionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UploadSessionRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean recordPart(String sessionId, int partNumber, UploadPart part, ContainerFormat containerFormat,
+                              Instant expiresAt) {
+        Update update = touch()
+                .set("parts." + partNumber, part)
+                .set("expiresAt", expiresAt);
+        if (containerFormat != null) {
+            update.set("containerFormat", containerFormat);
+        }
+        return mongoTemplate.updateFirst(inStatus(sessionId, UploadSessionStatus.UPLOADING), update,
+                UploadSession.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean transition(String sessionId, UploadSessionStatus from, UploadSessionStatus to) {
+        return mongoTemplate.updateFirst(inStatus(sessionId, from), touch().set("status", to), UploadSession.class)
+                .getModifiedCount() > 0;
+    }
+
+    @Override
+    public void markCompleted(String sessionId, String videoId) {
+        Update update = touch()
+                .set("status", UploadSessionStatus.COMPLETED)
+                .set("videoId", videoId);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(sessionId)), update, UploadSession.class);
+    }
+
+    @Override
+    public List<UploadSession> findExpired(Instant now, int limit) {
+        Query query = Query.query(Criteria.where("status").ne(UploadSessionStatus.COMPLETED)
+                .and("expiresAt").lt(now)).limit(limit);
+        return mongoTemplate.find(query, UploadSession.class);
+    }
+
+    private Query inStatus(String sessionId, UploadSessionStatus status) {
+        return Query.query(Criteria.where("id").is(sessionId).and("status").is(status));
+    }
+
+    private Update touch() {
+        return new Update().set("updatedAt", Instant.now());
+    }
+}
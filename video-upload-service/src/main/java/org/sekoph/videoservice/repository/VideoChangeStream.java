@@ -0,0 +1,29 @@
+package org.sekoph.videoservice.repository;
+
+/**
+ * Feed of changes to video documents, made by any node, used to drop stale copies of videos held in memory.
+ */
+public interface VideoChangeStream extends AutoCloseable {
+
+    interface Listener {
+
+        /**
+         * The video was updated, replaced or deleted.
+         */
+        void changed(String videoId);
+
+        /**
+         * Changes may have been missed, for example while the stream reconnected. Anything derived from videos
+         * should be treated as stale.
+         */
+        void reset();
+    }
+
+    /**
+     * Start delivering changes to the listener. Called once.
+     */
+    void start(Listener listener);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,17 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.VideoFrame;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads of the video_frames collection, written through {@link VideoRepositoryCustom}.
+ */
+@Repository
+public interface VideoFrameRepository extends MongoRepository<VideoFrame, String>, VideoFrameRepositoryCustom {
+
+    List<VideoFrame> findByVideoId(String videoId, Sort sort);
+}
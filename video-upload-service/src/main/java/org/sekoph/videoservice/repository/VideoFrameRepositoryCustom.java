@@ -0,0 +1,19 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.VideoFrame;
+
+import java.util.List;
+
+public interface VideoFrameRepositoryCustom {
+
+    /**
+     * One page of the key frames with a timestamp in [{@code fromTimestamp}, {@code toTimestamp}), ordered by
+     * timestamp and id.
+     *
+     * @param toTimestamp    end of the range, or null for no end
+     * @param afterTimestamp timestamp of the last frame of the previous page, or null for the first page
+     * @param afterId        id of the last frame of the previous page
+     */
+    List<VideoFrame> findRange(String videoId, long fromTimestamp, Long toTimestamp, Long afterTimestamp,
+                               String afterId, int limit);
+}
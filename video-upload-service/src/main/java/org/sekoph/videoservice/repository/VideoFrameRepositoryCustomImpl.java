@@ -0,0 +1,37 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.VideoFrame;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+public class VideoFrameRepositoryCustomImpl implements VideoFrameRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public VideoFrameRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<VideoFrame> findRange(String videoId, long fromTimestamp, Long toTimestamp, Long afterTimestamp,
+                                      String afterId, int limit) {
+        Criteria criteria = Criteria.where("videoId").is(videoId).and("timeStamp").gte(fromTimestamp);
+        if (toTimestamp != null) {
+            criteria.lt(toTimestamp);
+        }
+        if (afterTimestamp != null) {
+            // continue behind the previous page instead of skipping over it
+            criteria.orOperator(
+                    Criteria.where("timeStamp").gt(afterTimestamp),
+                    Criteria.where("timeStamp").is(afterTimestamp).and("id").gt(afterId));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "timeStamp", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, VideoFrame.class);
+    }
+}
@@ -2,11 +2,18 @@ package org.sekoph.videoservice.repository;
 
 
 import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.VideoStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface VideoRepository extends MongoRepository<Video, String> {
+public interface VideoRepository extends MongoRepository<Video, String>, VideoRepositoryCustom {
+    List<Video> findByVideoStatusIn(Collection<VideoStatus> statuses);
+
+    Optional<Video> findFirstByVideoS3Key(String videoS3Key);
 }
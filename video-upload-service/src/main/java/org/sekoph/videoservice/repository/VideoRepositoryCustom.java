@@ -0,0 +1,116 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.sekoph.videoservice.model.ProcessingStep;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Targeted updates of single fields, so processing tasks running on different nodes never overwrite each other's
+ * results the way saving the whole document would. Every update bumps the video's version.
+ */
+public interface VideoRepositoryCustom {
+
+    void updateStatus(String videoId, VideoStatus status);
+
+    /**
+     * Store the probed metadata of a video together with its duration in whole seconds.
+     */
+    void updateMetadata(String videoId, MediaMetadata metadata);
+
+    /**
+     * Append a stage run to the timeline of a video, keeping the most recent ones. Does not change the version, the
+     * timeline is written while other tasks complete the video.
+     */
+    void appendTimeline(String videoId, ProcessingStep step);
+
+    /**
+     * Create the indexes video listings and segment and key frame reads rely on.
+     */
+    void ensureIndexes();
+
+    /**
+     * A video that is not deleted, without any segment or key frame arrays it may still embed.
+     */
+    Optional<Video> findVisible(String videoId);
+
+    /**
+     * One page of a user's videos, newest first, with only the fields a list shows.
+     *
+     * @param includeHidden   whether private and unlisted videos are listed too, for the owner
+     * @param afterCreatedAt  creation time of the last video of the previous page, or null for the first page
+     * @param afterId         id of the last video of the previous page
+     */
+    List<Video> findPageByUser(UUID userId, boolean includeHidden, LocalDateTime afterCreatedAt, String afterId,
+                               int limit);
+
+    /**
+     * One page of the videos in a status, newest first, with only the fields a list shows. Private and unlisted
+     * videos are only listed to their owner.
+     *
+     * @param requesterId user asking for the list, or null if it is anonymous
+     * @see #findPageByUser
+     */
+    List<Video> findPageByStatus(VideoStatus status, UUID requesterId, LocalDateTime afterCreatedAt, String afterId,
+                                 int limit);
+
+    /**
+     * Replace the video's segments of one rendition in their collection, so a retried SEGMENTS task does not leave
+     * duplicates. Segments stored before there was a ladder are replaced along with them.
+     *
+     * @return object keys of the replaced segments, for the caller to delete once the new ones are stored
+     */
+    List<String> replaceSegments(String videoId, String quality, List<VideoSegment> segments);
+
+    /**
+     * Record a rendition whose segments are all stored, replacing an earlier record of the same quality.
+     */
+    void putRendition(String videoId, VideoRendition rendition);
+
+    /**
+     * Replace the key frames with a timestamp in [{@code fromTimestamp}, {@code toTimestamp}), so a retried
+     * FRAMES task does not leave duplicates behind.
+     *
+     * @param toTimestamp end of the range, or null for no end
+     * @return object keys of the replaced frames and their sprite sheets, for the caller to delete
+     */
+    List<String> replaceKeyFrames(String videoId, long fromTimestamp, Long toTimestamp, List<VideoFrame> keyFrames);
+
+    /**
+     * Store the final numbering of the segments and key frames and move the video from PROCESSING to READY.
+     *
+     * @param version the version the segments and key frames were read at
+     * @return false if the video was no longer PROCESSING, for example because another task failed it, or was
+     * updated since it was read
+     */
+    boolean finishProcessing(String videoId, Long version, List<VideoSegment> segments, List<VideoFrame> keyFrames);
+
+    /**
+     * Remove the segment and key frame documents stored for a video.
+     */
+    void deleteArtifacts(String videoId);
+
+    /**
+     * Move the segments and key frames of one video that still embeds them into their own collections.
+     *
+     * @return id of the migrated video, or null once no video embeds them anymore
+     */
+    String migrateEmbeddedArtifacts();
+
+    void markSharedArtifacts(String videoId);
+
+    /**
+     * Soft delete the video.
+     *
+     * @return false if it was already deleted
+     */
+    boolean markDeleted(String videoId);
+}
@@ -0,0 +1,270 @@
+package org.sekoph.videoservice.repository;
+
+import lombok.Data;
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.sekoph.videoservice.model.ProcessingStep;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.model.enums.VisibleStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class VideoRepositoryCustomImpl implements VideoRepositoryCustom {
+
+    // what a list entry shows, everything else stays on the server
+    private static final String[] LIST_FIELDS = {"id", "title", "userID", "videoStatus", "visibility", "views",
+            "duration", "segmentCount", "keyFrameCount", "createdAt", "updatedAt"};
+    // only listed to their owner
+    private static final List<VisibleStatus> HIDDEN = List.of(VisibleStatus.PRIVATE, VisibleStatus.UNLISTED);
+    // a retried video adds steps on every attempt, only the latest are kept
+    private static final int MAX_TIMELINE_STEPS = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public VideoRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void updateStatus(String videoId, VideoStatus status) {
+        mongoTemplate.updateFirst(byId(videoId), touch().set("videoStatus", status), Video.class);
+    }
+
+    @Override
+    public void updateMetadata(String videoId, MediaMetadata metadata) {
+        mongoTemplate.updateFirst(byId(videoId),
+                touch().set("duration", (long) metadata.getDuration()).set("metadata", metadata), Video.class);
+    }
+
+    @Override
+    public void appendTimeline(String videoId, ProcessingStep step) {
+        Update update = new Update();
+        update.push("timeline").slice(-MAX_TIMELINE_STEPS).each(step);
+        mongoTemplate.updateFirst(byId(videoId), update, Video.class);
+    }
+
+    @Override
+    public void ensureIndexes() {
+        // keyset pages of a user's or a status' videos, newest first; visibility comes after the sort keys so
+        // hidden videos are filtered out in the index without giving up the sort
+        IndexOperations videos = mongoTemplate.indexOps(Video.class);
+        videos.createIndex(new Index().on("user_id", Sort.Direction.ASC).on("deleted", Sort.Direction.ASC)
+                .on("created_at", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .on("visibility", Sort.Direction.ASC));
+        videos.createIndex(new Index().on("video_status", Sort.Direction.ASC).on("deleted", Sort.Direction.ASC)
+                .on("created_at", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .on("visibility", Sort.Direction.ASC));
+
+        // segments are numbered per rendition
+        mongoTemplate.indexOps(VideoSegment.class).createIndex(new Index()
+                .on("video_id", Sort.Direction.ASC).on("quality", Sort.Direction.ASC)
+                .on("segment_number", Sort.Direction.ASC));
+        // _id breaks ties between frames of the same second when paging through a range
+        mongoTemplate.indexOps(VideoFrame.class).createIndex(new Index()
+                .on("video_id", Sort.Direction.ASC).on("time_stump", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+    }
+
+    @Override
+    public Optional<Video> findVisible(String videoId) {
+        Query query = Query.query(Criteria.where("id").is(videoId).and("deleted").is(false));
+        // documents not migrated yet still embed their segment and frame arrays
+        query.fields().exclude("segments", "keyFrames", "timeline");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Video.class));
+    }
+
+    @Override
+    public List<Video> findPageByUser(UUID userId, boolean includeHidden, LocalDateTime afterCreatedAt,
+                                      String afterId, int limit) {
+        Criteria filter = Criteria.where("userID").is(userId);
+        if (!includeHidden) {
+            filter.and("visibility").nin(HIDDEN);
+        }
+        return findPage(filter, afterCreatedAt, afterId, limit);
+    }
+
+    @Override
+    public List<Video> findPageByStatus(VideoStatus status, UUID requesterId, LocalDateTime afterCreatedAt,
+                                        String afterId, int limit) {
+        Criteria filter = Criteria.where("videoStatus").is(status);
+        if (requesterId == null) {
+            filter.and("visibility").nin(HIDDEN);
+        } else {
+            // the cursor takes the top-level $or
+            filter.andOperator(new Criteria().orOperator(
+                    Criteria.where("visibility").nin(HIDDEN),
+                    Criteria.where("userID").is(requesterId)));
+        }
+        return findPage(filter, afterCreatedAt, afterId, limit);
+    }
+
+    private List<Video> findPage(Criteria filter, LocalDateTime afterCreatedAt, String afterId, int limit) {
+        Criteria criteria = filter.and("deleted").is(false);
+        if (afterCreatedAt != null) {
+            criteria.orOperator(
+                    Criteria.where("createdAt").lt(afterCreatedAt),
+                    Criteria.where("createdAt").is(afterCreatedAt).and("id").lt(afterId));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(limit);
+        query.fields().include(LIST_FIELDS);
+        return mongoTemplate.find(query, Video.class);
+    }
+
+    @Override
+    public List<String> replaceSegments(String videoId, String quality, List<VideoSegment> segments) {
+        // a null in $in also matches documents without the field
+        Criteria replaced = Criteria.where("videoId").is(videoId).and("quality").in(quality, null);
+        Query keys = Query.query(replaced);
+        keys.fields().include("segmentS3Key");
+        List<String> removedKeys = mongoTemplate.find(keys, VideoSegment.class).stream()
+                .map(VideoSegment::getSegmentS3Key)
+                .filter(Objects::nonNull)
+                .toList();
+        mongoTemplate.remove(Query.query(replaced), VideoSegment.class);
+        insertAll(videoId, segments, VideoSegment.class, segment -> segment.setVideoId(videoId));
+        mongoTemplate.updateFirst(byId(videoId), touch(), Video.class);
+        return removedKeys;
+    }
+
+    @Override
+    public void putRendition(String videoId, VideoRendition rendition) {
+        mongoTemplate.updateFirst(byId(videoId), touch().set("renditions." + rendition.getQuality(), rendition),
+                Video.class);
+    }
+
+    @Override
+    public List<String> replaceKeyFrames(String videoId, long fromTimestamp, Long toTimestamp,
+                                         List<VideoFrame> keyFrames) {
+        Criteria range = Criteria.where("videoId").is(videoId).and("timeStamp").gte(fromTimestamp);
+        if (toTimestamp != null) {
+            range.lt(toTimestamp);
+        }
+        Query keys = Query.query(range);
+        keys.fields().include("frameS3Key", "thumbnailS3Key");
+        List<VideoFrame> removed = mongoTemplate.find(keys, VideoFrame.class);
+        // every frame of a sheet names it, the sheet is deleted once
+        List<String> removedKeys = Stream.concat(removed.stream().map(VideoFrame::getFrameS3Key),
+                        removed.stream().map(VideoFrame::getThumbnailS3Key).distinct())
+                .filter(Objects::nonNull)
+                .toList();
+        mongoTemplate.remove(Query.query(range), VideoFrame.class);
+        insertAll(videoId, keyFrames, VideoFrame.class, frame -> frame.setVideoId(videoId));
+        mongoTemplate.updateFirst(byId(videoId), touch(), Video.class);
+        return removedKeys;
+    }
+
+    @Override
+    public boolean finishProcessing(String videoId, Long version, List<VideoSegment> segments,
+                                    List<VideoFrame> keyFrames) {
+        // numbering first, a lost race on the version is retried with freshly read lists
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoSegment.class);
+        segments.forEach(segment -> bulk.updateOne(Query.query(Criteria.where("id").is(segment.getId())),
+                new Update().set("segmentNumber", segment.getSegmentNumber())));
+        if (!segments.isEmpty()) {
+            bulk.execute();
+        }
+        BulkOperations frameBulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoFrame.class);
+        keyFrames.forEach(frame -> frameBulk.updateOne(Query.query(Criteria.where("id").is(frame.getId())),
+                new Update().set("frameNumber", frame.getFrameNumber())));
+        if (!keyFrames.isEmpty()) {
+            frameBulk.execute();
+        }
+
+        Query query = Query.query(Criteria.where("id").is(videoId)
+                .and("videoStatus").is(VideoStatus.PROCESSING)
+                .and("version").is(version));
+        Update update = touch()
+                .set("segmentCount", segments.size())
+                .set("keyFrameCount", keyFrames.size())
+                .set("videoStatus", VideoStatus.READY);
+        return mongoTemplate.updateFirst(query, update, Video.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void deleteArtifacts(String videoId) {
+        Query query = Query.query(Criteria.where("videoId").is(videoId));
+        mongoTemplate.remove(query, VideoSegment.class);
+        mongoTemplate.remove(query, VideoFrame.class);
+    }
+
+    @Override
+    public String migrateEmbeddedArtifacts() {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("segments").exists(true), Criteria.where("keyFrames").exists(true)));
+        EmbeddedArtifacts embedded = mongoTemplate.query(Video.class).as(EmbeddedArtifacts.class)
+                .matching(query).firstValue();
+        if (embedded == null) {
+            return null;
+        }
+        String videoId = embedded.getId();
+        List<VideoSegment> segments = embedded.getSegments() == null ? List.of() : embedded.getSegments();
+        List<VideoFrame> keyFrames = embedded.getKeyFrames() == null ? List.of() : embedded.getKeyFrames();
+
+        // copies left by an interrupted run are replaced, the arrays are only dropped once the copy is complete
+        deleteArtifacts(videoId);
+        insertAll(videoId, segments, VideoSegment.class, segment -> segment.setVideoId(videoId));
+        insertAll(videoId, keyFrames, VideoFrame.class, frame -> frame.setVideoId(videoId));
+        Update update = touch()
+                .unset("segments")
+                .unset("keyFrames")
+                .set("segmentCount", segments.size())
+                .set("keyFrameCount", keyFrames.size());
+        mongoTemplate.updateFirst(byId(videoId), update, Video.class);
+        return videoId;
+    }
+
+    @Override
+    public void markSharedArtifacts(String videoId) {
+        mongoTemplate.updateFirst(byId(videoId), touch().set("sharedArtifacts", true), Video.class);
+    }
+
+    @Override
+    public boolean markDeleted(String videoId) {
+        Query query = Query.query(Criteria.where("id").is(videoId).and("deleted").is(false));
+        return mongoTemplate.updateFirst(query, touch().set("deleted", true), Video.class).getModifiedCount() > 0;
+    }
+
+    private <T> void insertAll(String videoId, List<T> elements, Class<T> type, Consumer<T> owner) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        elements.forEach(owner);
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(elements).execute();
+    }
+
+    private Query byId(String videoId) {
+        return Query.query(Criteria.where("id").is(videoId));
+    }
+
+    /**
+     * The segment and frame arrays videos were stored with before they moved to their own collections.
+     */
+    @Data
+    static class EmbeddedArtifacts {
+        private String id;
+        private List<VideoSegment> segments;
+        private List<VideoFrame> keyFrames;
+    }
+
+    private Update touch() {
+        return new Update().set("updatedAt", LocalDateTime.now()).inc("version", 1);
+    }
+}
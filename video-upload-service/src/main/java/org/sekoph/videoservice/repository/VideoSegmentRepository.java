@@ -0,0 +1,27 @@
+package org.sekoph.videoservice.repository;
+
+import org.sekoph.videoservice.model.VideoSegment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads of the video_segments collection, written through {@link VideoRepositoryCustom}.
+ */
+@Repository
+public interface VideoSegmentRepository extends MongoRepository<VideoSegment, String> {
+
+    List<VideoSegment> findByVideoId(String videoId, Sort sort);
+
+    Optional<VideoSegment> findByVideoIdAndSegmentID(String videoId, String segmentID);
+
+    List<VideoSegment> findByVideoIdAndQuality(String videoId, String quality, Sort sort);
+
+    // keyset page on the (video_id, quality, segment_number) index
+    List<VideoSegment> findByVideoIdAndQualityAndSegmentNumberGreaterThanOrderBySegmentNumber(
+            String videoId, String quality, int afterNumber, Pageable pageable);
+}
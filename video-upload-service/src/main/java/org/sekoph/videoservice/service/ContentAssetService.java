@@ -0,0 +1,167 @@
+package org.sekoph.videoservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.model.ContentAsset;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.repository.ContentAssetRepository;
+import org.sekoph.videoservice.repository.VideoFrameRepository;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.sekoph.videoservice.repository.VideoSegmentRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed storage of originals. Uploads are indexed by the SHA-256 computed while they were streamed to
+ * MinIO: a re-upload of stored content drops its copy of the original and, once a video with that content is READY,
+ * reuses its segments and frames instead of being processed again. Shared objects are reference counted through
+ * {@link ContentAsset} and only deleted with the last video using them.
+ */
+@Slf4j
+@Service
+public class ContentAssetService {
+
+    private final ContentAssetRepository contentAssetRepository;
+    private final VideoRepository videoRepository;
+    private final VideoSegmentRepository segmentRepository;
+    private final VideoFrameRepository frameRepository;
+    private final ObjectStore objectStore;
+
+    @Value("${minio.bucket.videos}")
+    private String videosBucket;
+
+    @Value("${minio.bucket.segments}")
+    private String segmentsBucket;
+
+    @Value("${minio.bucket.frames}")
+    private String framesBucket;
+
+    @Value("${video.dedup.enabled:true}")
+    private boolean enabled;
+
+    public ContentAssetService(ContentAssetRepository contentAssetRepository, VideoRepository videoRepository,
+                               VideoSegmentRepository segmentRepository, VideoFrameRepository frameRepository,
+                               ObjectStore objectStore) {
+        this.contentAssetRepository = contentAssetRepository;
+        this.videoRepository = videoRepository;
+        this.segmentRepository = segmentRepository;
+        this.frameRepository = frameRepository;
+        this.objectStore = objectStore;
+    }
+
+    /**
+     * Take a reference on the asset of a new, not yet saved video, pointing the video at the stored original and at
+     * already processed artifacts where they exist.
+     *
+     * @return true if the video reuses the artifacts of another video and needs no processing
+     */
+    public boolean attach(Video video) {
+        if (!enabled || video.getContentHash() == null) {
+            return false;
+        }
+        ContentAsset asset = contentAssetRepository.acquire(video.getContentHash(), video.getVideoS3Key(),
+                video.getContainerFormat(), video.getFileSize());
+        video.setContentAssetId(asset.getId());
+
+        if (!asset.getVideoS3Key().equals(video.getVideoS3Key())) {
+            log.info("Upload {} has the same content as {}, keeping one copy", video.getVideoS3Key(),
+                    asset.getVideoS3Key());
+            deleteQuietly(videosBucket, List.of(video.getVideoS3Key()));
+            video.setVideoS3Key(asset.getVideoS3Key());
+        }
+
+        // the source may have been deleted since, its artifacts live as long as the asset
+        Optional<Video> source = Optional.ofNullable(asset.getArtifactsVideoId())
+                .flatMap(videoRepository::findById)
+                .filter(existing -> existing.getVideoStatus() == VideoStatus.READY);
+        if (source.isEmpty()) {
+            return false;
+        }
+        video.setDuration(source.get().getDuration());
+        video.setMetadata(source.get().getMetadata());
+        video.setSegmentCount(source.get().getSegmentCount());
+        video.setKeyFrameCount(source.get().getKeyFrameCount());
+        video.setRenditions(source.get().getRenditions());
+        // the segment and frame documents are read from the source, not copied
+        video.setArtifactsVideoId(source.get().getId());
+        video.setSharedArtifacts(true);
+        video.setVideoStatus(VideoStatus.READY);
+        log.info("Reusing the segments and frames of video {}", source.get().getId());
+        return true;
+    }
+
+    /**
+     * Offer the artifacts of a video that just became READY to later uploads of the same content.
+     */
+    public void artifactsReady(Video video, List<VideoSegment> segments, List<VideoFrame> keyFrames) {
+        if (video.getContentAssetId() == null || video.isSharedArtifacts()) {
+            return;
+        }
+        List<String> segmentKeys = segments.stream().map(VideoSegment::getSegmentS3Key).toList();
+        List<String> frameKeys = frameObjectKeys(keyFrames);
+        if (contentAssetRepository.claimArtifacts(video.getContentAssetId(), video.getId(), segmentKeys, frameKeys)) {
+            videoRepository.markSharedArtifacts(video.getId());
+        }
+    }
+
+    /**
+     * Delete the objects of a deleted video that nothing else uses.
+     */
+    public void release(Video video) {
+        ContentAsset asset = video.getContentAssetId() == null
+                ? null
+                : contentAssetRepository.findById(video.getContentAssetId()).orElse(null);
+        boolean owner = asset != null && video.getId().equals(asset.getArtifactsVideoId());
+        if (!video.isSharedArtifacts() && !owner) {
+            deleteQuietly(segmentsBucket, segmentRepository.findByVideoId(video.getId(), Sort.unsorted()).stream()
+                    .map(VideoSegment::getSegmentS3Key).toList());
+            deleteQuietly(framesBucket, frameObjectKeys(frameRepository.findByVideoId(video.getId(),
+                    Sort.unsorted())));
+        }
+        if (!owner) {
+            // the owner's documents are read by every video sharing them
+            videoRepository.deleteArtifacts(video.getId());
+        }
+
+        if (video.getContentAssetId() == null) {
+            deleteQuietly(videosBucket, List.of(video.getVideoS3Key()));
+            return;
+        }
+        contentAssetRepository.release(video.getContentAssetId()).ifPresent(last -> {
+            log.info("Last reference to content {} gone, deleting its objects", last.getId());
+            deleteQuietly(videosBucket, List.of(last.getVideoS3Key()));
+            deleteQuietly(segmentsBucket, last.getSegmentKeys());
+            deleteQuietly(framesBucket, last.getFrameKeys());
+            if (last.getArtifactsVideoId() != null) {
+                videoRepository.deleteArtifacts(last.getArtifactsVideoId());
+            }
+        });
+    }
+
+    /**
+     * The frame objects plus the sprite sheets their thumbnails are on, each sheet once.
+     */
+    static List<String> frameObjectKeys(List<VideoFrame> keyFrames) {
+        return Stream.concat(keyFrames.stream().map(VideoFrame::getFrameS3Key),
+                        keyFrames.stream().map(VideoFrame::getThumbnailS3Key).filter(Objects::nonNull).distinct())
+                .toList();
+    }
+
+    private void deleteQuietly(String bucket, List<String> keys) {
+        try {
+            objectStore.delete(bucket, keys.stream().filter(key -> key != null).toList());
+        } catch (Exception e) {
+            // an orphaned object only costs storage, the references are already updated
+            log.warn("Failed to delete {} objects from {}", keys.size(), bucket, e);
+        }
+    }
+}
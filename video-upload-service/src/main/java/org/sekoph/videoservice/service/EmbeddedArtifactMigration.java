@@ -0,0 +1,65 @@
+package org.sekoph.videoservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the video, segment and key frame indexes at startup, then moves the segments and key frames of videos stored
+ * before they had their own collections out of the video documents, one video at a time. Safe to run on every node
+ * and to interrupt: a video keeps its embedded arrays until its documents are written, and a re-run replaces them.
+ */
+@Slf4j
+@Service
+public class EmbeddedArtifactMigration implements DisposableBean {
+
+    private final VideoRepository videoRepository;
+
+    private ExecutorService executor;
+
+    @Value("${video.migration.embedded-artifacts.enabled:true}")
+    private boolean enabled;
+
+    public EmbeddedArtifactMigration(VideoRepository videoRepository) {
+        this.videoRepository = videoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "embedded-artifact-migration"));
+        executor.execute(this::run);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void run() {
+        try {
+            videoRepository.ensureIndexes();
+            if (!enabled) {
+                return;
+            }
+            int migrated = 0;
+            while (!Thread.currentThread().isInterrupted() && videoRepository.migrateEmbeddedArtifacts() != null) {
+                migrated++;
+            }
+            if (migrated > 0) {
+                log.info("Moved the segments and key frames of {} videos to their own collections", migrated);
+            }
+        } catch (Exception e) {
+            // the next start carries on where this one stopped
+            log.error("Segment and key frame migration failed", e);
+        }
+    }
+}
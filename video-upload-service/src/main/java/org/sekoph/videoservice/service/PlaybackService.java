@@ -0,0 +1,149 @@
+package org.sekoph.videoservice.service;
+
+import org.sekoph.videoservice.exception.VideoNotReadyException;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.processing.SegmentFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Builds HLS playlists from the stored segments of a video: a master playlist listing the renditions stored so far
+ * and one media playlist per rendition, plus a WebVTT track of thumbnails for seek previews. Segments and sprite
+ * sheets are fetched by the player straight from MinIO through presigned URLs, the service only serves the indexes.
+ */
+@Service
+public class PlaybackService {
+
+    private final VideoService videoService;
+    private final PresignedUrlService urlService;
+
+    @Value("${minio.bucket.segments}")
+    private String segmentsBucket;
+
+    @Value("${minio.bucket.frames}")
+    private String framesBucket;
+
+    public PlaybackService(VideoService videoService, PresignedUrlService urlService) {
+        this.videoService = videoService;
+        this.urlService = urlService;
+    }
+
+    /**
+     * The HLS master playlist of a video, listing every rendition that can be played already.
+     *
+     * @param requesterId user making the request, or null if it is anonymous; private videos are only played to
+     *                    their owner
+     */
+    public String masterPlaylist(String videoId, UUID requesterId) {
+        return masterPlaylist(videoService.getRenditions(videoId, requesterId));
+    }
+
+    /**
+     * The HLS media playlist of one rendition of a video, pointing at presigned segment URLs.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public String mediaPlaylist(String videoId, UUID requesterId, String quality) {
+        List<VideoSegment> segments = videoService.getPlaybackSegments(videoId, requesterId, quality);
+        if (segments.stream().anyMatch(segment -> segment.getFormat() != SegmentFormat.TS)) {
+            // standalone MP4 segments each restart at zero and cannot be played back to back
+            throw new VideoNotReadyException("Video " + videoId + " was not segmented for streaming");
+        }
+        Map<String, String> urls = urlService.signAll(segmentsBucket,
+                segments.stream().map(VideoSegment::getSegmentS3Key).toList());
+        return mediaPlaylist(segments, segment -> urls.get(segment.getSegmentS3Key()));
+    }
+
+    /**
+     * The WebVTT seek-preview track of a video: one cue per thumbnail, pointing at its tile on a presigned sprite
+     * sheet with a media fragment.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public String thumbnailTrack(String videoId, UUID requesterId) {
+        VideoService.Thumbnails thumbnails = videoService.getThumbnails(videoId, requesterId);
+        Map<String, String> urls = urlService.signAll(framesBucket,
+                thumbnails.frames().stream().map(VideoFrame::getThumbnailS3Key).distinct().toList());
+        return thumbnailTrack(thumbnails.frames(), thumbnails.duration() * 1000,
+                frame -> urls.get(frame.getThumbnailS3Key()));
+    }
+
+    /**
+     * How long a playlist may be reused, well before the URLs in it expire.
+     */
+    public Duration playlistMaxAge() {
+        return urlService.minValidity().dividedBy(2);
+    }
+
+    static String masterPlaylist(List<VideoRendition> renditions) {
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n");
+        for (VideoRendition rendition : renditions) {
+            // media playlists are served next to the master playlist, see PlaybackController
+            playlist.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(rendition.getBandwidth())
+                    .append(",AVERAGE-BANDWIDTH=").append(rendition.getAverageBandwidth())
+                    .append(",NAME=\"").append(rendition.getQuality()).append("\"\n")
+                    .append(rendition.getQuality()).append("/playlist.m3u8\n");
+        }
+        return playlist.toString();
+    }
+
+    static String mediaPlaylist(List<VideoSegment> segments, Function<VideoSegment, String> uri) {
+        long targetDuration = segments.stream()
+                .mapToLong(segment -> Math.ceilDiv(durationMs(segment), 1000))
+                .max()
+                .orElse(1);
+
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                .append("#EXT-X-TARGETDURATION:").append(targetDuration).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n");
+        for (VideoSegment segment : segments) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", durationMs(segment) / 1000.0))
+                    .append(uri.apply(segment)).append('\n');
+        }
+        return playlist.append("#EXT-X-ENDLIST\n").toString();
+    }
+
+    /**
+     * Every cue lasts until the next thumbnail, the last one until the end of the video.
+     *
+     * @param durationMs length of the video in milliseconds
+     */
+    static String thumbnailTrack(List<VideoFrame> frames, long durationMs, Function<VideoFrame, String> sheetUri) {
+        StringBuilder track = new StringBuilder("WEBVTT\n");
+        for (int i = 0; i < frames.size(); i++) {
+            VideoFrame frame = frames.get(i);
+            long start = frame.getTimeStamp() * 1000;
+            long end = i + 1 < frames.size() ? frames.get(i + 1).getTimeStamp() * 1000 : Math.max(durationMs, start);
+            track.append('\n')
+                    .append(cueTime(start)).append(" --> ").append(cueTime(end)).append('\n')
+                    .append(sheetUri.apply(frame))
+                    .append("#xywh=").append(frame.getThumbnailX()).append(',').append(frame.getThumbnailY())
+                    .append(',').append(frame.getThumbnailWidth()).append(',').append(frame.getThumbnailHeight())
+                    .append('\n');
+        }
+        return track.toString();
+    }
+
+    private static String cueTime(long ms) {
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d", ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60,
+                ms % 1000);
+    }
+
+    private static long durationMs(VideoSegment segment) {
+        return segment.getEndTimeMs() - segment.getStartTimeMs();
+    }
+}
@@ -0,0 +1,99 @@
+package org.sekoph.videoservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out presigned GET URLs for stored segments and frames. Signing is an HMAC over the request per object, so a
+ * page of hundreds of frames is signed as one batch and the URLs are cached until shortly before they expire: every
+ * URL handed out stays valid for at least {@code video.playback.url-min-validity-minutes}.
+ */
+@Service
+public class PresignedUrlService {
+
+    private final MinioClient minioClient;
+    private final Cache<ObjectRef, String> cache;
+    private final Duration expiry;
+    private final Duration minValidity;
+
+    public PresignedUrlService(MinioClient minioClient, MeterRegistry meterRegistry,
+                               @Value("${video.playback.url-expiry-minutes:60}") long expiryMinutes,
+                               @Value("${video.playback.url-min-validity-minutes:30}") long minValidityMinutes,
+                               @Value("${video.playback.url-cache-size:200000}") long maxEntries) {
+        if (minValidityMinutes >= expiryMinutes) {
+            throw new IllegalArgumentException("URLs must be valid longer than their minimum validity");
+        }
+        this.minioClient = minioClient;
+        this.expiry = Duration.ofMinutes(expiryMinutes);
+        this.minValidity = Duration.ofMinutes(minValidityMinutes);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expiry.minus(minValidity))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "presigned-urls");
+    }
+
+    public String sign(String bucket, String key) {
+        return cache.get(new ObjectRef(bucket, key), this::presign);
+    }
+
+    /**
+     * Sign every key of a bucket, reusing the cached URLs.
+     *
+     * @return the URL of every key, in the order of the keys
+     */
+    public Map<String, String> signAll(String bucket, Collection<String> keys) {
+        List<ObjectRef> refs = keys.stream().map(key -> new ObjectRef(bucket, key)).toList();
+        Map<ObjectRef, String> signed = cache.getAll(refs, missing -> {
+            Map<ObjectRef, String> urls = new HashMap<>();
+            for (ObjectRef ref : missing) {
+                urls.put(ref, presign(ref));
+            }
+            return urls;
+        });
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        refs.forEach(ref -> urls.put(ref.key(), signed.get(ref)));
+        return urls;
+    }
+
+    /**
+     * How long every URL handed out is still valid, at least.
+     */
+    public Duration minValidity() {
+        return minValidity;
+    }
+
+    private String presign(ObjectRef ref) {
+        try {
+            return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(ref.bucket())
+                    .object(ref.key())
+                    .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
+                    .build());
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to sign URL of " + ref.key(), e);
+        }
+    }
+
+    record ObjectRef(String bucket, String key) {
+    }
+}
@@ -0,0 +1,298 @@
+package org.sekoph.videoservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.JobStatus;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.processing.PipelineStage;
+import org.sekoph.videoservice.repository.ProcessingJobStore;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Claims processing jobs from the {@link ProcessingJobStore} and runs them, renewing the lease of every running job
+ * until it finishes. Failed jobs are retried with exponential backoff until they run out of attempts.
+ * <p>
+ * Every node with {@code video.jobs.enabled=true} pulls from the same queue, so an idle node picks up the VIDEO,
+ * SEGMENTS and FRAMES tasks of uploads received by other nodes, as well as tasks whose owner stopped renewing its
+ * lease. Nodes that only serve uploads run with the worker disabled.
+ * <p>
+ * With {@code video.processing.fan-out.enabled=true} a VIDEO job is instead processed end to end by the node that
+ * claimed it, running the segment pass and frame ranges in parallel, which suits single-node deployments.
+ */
+@Slf4j
+@Service
+public class ProcessingJobWorker implements DisposableBean {
+
+    private final ProcessingJobStore jobStore;
+    private final VideoService videoService;
+    private final VideoRepository videoRepository;
+    private final PipelineScheduler pipelineScheduler;
+    private final String workerId;
+    private final Map<String, Future<?>> activeJobs = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @Value("${video.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${video.jobs.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${video.jobs.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${video.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${video.jobs.initial-backoff-seconds:10}")
+    private long initialBackoffSeconds;
+
+    @Value("${video.jobs.max-backoff-seconds:1800}")
+    private long maxBackoffSeconds;
+
+    @Value("${video.jobs.recovery-interval-seconds:300}")
+    private long recoveryIntervalSeconds;
+
+    @Value("${video.processing.fan-out.enabled:false}")
+    private boolean fanOut;
+
+    public ProcessingJobWorker(ProcessingJobStore jobStore, VideoService videoService,
+                               VideoRepository videoRepository, PipelineScheduler pipelineScheduler) {
+        this.jobStore = jobStore;
+        this.videoService = videoService;
+        this.videoRepository = videoRepository;
+        this.pipelineScheduler = pipelineScheduler;
+        this.workerId = hostName() + "-" + UUID.randomUUID();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Video processing worker disabled");
+            return;
+        }
+        log.info("Starting video processing worker {}", workerId);
+        scheduler = Executors.newScheduledThreadPool(2);
+        scheduler.execute(() -> {
+            initializeStore();
+            recover();
+        });
+        scheduler.scheduleWithFixedDelay(this::recover, recoveryIntervalSeconds, recoveryIntervalSeconds,
+                TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        long heartbeatMs = Duration.ofSeconds(leaseSeconds).toMillis() / 3;
+        scheduler.scheduleAtFixedRate(this::renewLeases, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (scheduler == null) {
+            return;
+        }
+        log.info("Shutting down video processing worker {}", workerId);
+        boolean hadActiveJobs = !activeJobs.isEmpty();
+        scheduler.shutdownNow();
+        pipelineScheduler.shutdown();
+        if (!hadActiveJobs) {
+            return;
+        }
+        try {
+            // Hand unfinished jobs straight back instead of making other workers wait for the lease to expire
+            int released = jobStore.releaseLeases(workerId);
+            if (released > 0) {
+                log.info("Released {} unfinished jobs", released);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release job leases for worker {}", workerId, e);
+        }
+    }
+
+    /**
+     * Make sure nothing is stuck, at startup and every {@code video.jobs.recovery-interval-seconds}: queue a job for
+     * every video left in UPLOADED or PROCESSING, for example by a node that crashed before it had a job store, and
+     * complete PROCESSING videos whose tasks are all done but that were never marked READY, because the node
+     * finishing the last task died or failed to complete the video. Stale PROCESSING jobs are re-claimed by
+     * {@link #poll()} once their lease has expired.
+     */
+    void recover() {
+        try {
+            List<Video> unfinished = videoRepository.findByVideoStatusIn(
+                    List.of(VideoStatus.UPLOADED, VideoStatus.PROCESSING));
+            int completed = 0;
+            for (Video video : unfinished) {
+                jobStore.enqueue(video.getId());
+                if (video.getVideoStatus() == VideoStatus.PROCESSING && isPlannedAndDone(video.getId())) {
+                    completeVideo(video.getId());
+                    completed++;
+                }
+            }
+            log.info("Job recovery checked {} unfinished videos, completed {}", unfinished.size(), completed);
+        } catch (Exception e) {
+            log.error("Job recovery failed", e);
+        }
+    }
+
+    // the VIDEO job enqueues the tasks before it completes, so no open task only means done once it has
+    private boolean isPlannedAndDone(String videoId) {
+        return jobStore.find(ProcessingJob.video(videoId).getId())
+                .filter(job -> job.getStatus() == JobStatus.COMPLETED)
+                .isPresent()
+                && jobStore.countOpenTasks(videoId) == 0;
+    }
+
+    private void initializeStore() {
+        try {
+            jobStore.initialize();
+        } catch (Exception e) {
+            log.error("Failed to initialize the job store", e);
+        }
+    }
+
+    void poll() {
+        try {
+            // each stage only claims what it can start, so a frame backlog never holds up probing new uploads
+            for (JobType type : JobType.values()) {
+                PipelineStage stage = PipelineStage.forJob(type);
+                while (pipelineScheduler.freeSlots(stage) > 0) {
+                    Optional<ProcessingJob> claimed = jobStore.claimNext(workerId, type,
+                            Duration.ofSeconds(leaseSeconds));
+                    if (claimed.isEmpty()) {
+                        break;
+                    }
+                    ProcessingJob job = claimed.get();
+                    // registered before it starts so run() can never remove it first
+                    FutureTask<Void> task = new FutureTask<>(() -> run(job), null);
+                    activeJobs.put(job.getId(), task);
+                    try {
+                        pipelineScheduler.submit(stage, task);
+                    } catch (RejectedExecutionException e) {
+                        // nobody runs it, stop renewing its lease and hand it back right away
+                        activeJobs.remove(job.getId());
+                        jobStore.retry(job.getId(), workerId, "Rejected by the " + stage + " stage", Instant.now());
+                        throw e;
+                    }
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            log.debug("Stage rejected a claimed job, released it", e);
+        } catch (Exception e) {
+            log.error("Failed to claim processing jobs", e);
+        }
+    }
+
+    void run(ProcessingJob job) {
+        String jobId = job.getId();
+        String videoId = job.getVideoId();
+        try {
+            log.info("Worker {} running {} job {} (attempt {})", workerId, job.getType(), jobId, job.getAttempts());
+            switch (job.getType()) {
+                case VIDEO -> {
+                    if (fanOut) {
+                        videoService.processVideo(videoId);
+                    } else {
+                        jobStore.enqueueAll(videoService.planVideo(videoId));
+                    }
+                }
+                case SEGMENTS -> videoService.segmentVideo(videoId, job.getRendition());
+                case FRAMES -> videoService.extractKeyFrames(videoId, job.getRangeStart(), job.getRangeEnd());
+            }
+        } catch (Exception e) {
+            handleFailure(job, e);
+            activeJobs.remove(jobId);
+            return;
+        }
+        try {
+            jobStore.complete(jobId, workerId);
+
+            // whichever node finishes the last task of the video finalizes it
+            if (job.getType() != JobType.VIDEO && jobStore.countOpenTasks(videoId) == 0) {
+                completeVideo(videoId);
+            }
+        } catch (Exception e) {
+            // not retried, the work is stored: an unmarked job is re-claimed once its lease runs out
+            log.error("Failed to complete job {}", jobId, e);
+        } finally {
+            activeJobs.remove(jobId);
+        }
+    }
+
+    private void completeVideo(String videoId) {
+        try {
+            videoService.completeVideo(videoId);
+        } catch (Exception e) {
+            log.error("Failed to complete video {}, retried on the next recovery", videoId, e);
+        }
+    }
+
+    private void handleFailure(ProcessingJob job, Exception e) {
+        String jobId = job.getId();
+        if (e instanceof InterruptedException || Thread.currentThread().isInterrupted()) {
+            // shutdown or lost lease, the job is released on shutdown or already owned by another worker
+            log.warn("Job {} interrupted", jobId);
+            return;
+        }
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        try {
+            if (job.getAttempts() >= maxAttempts) {
+                log.error("Job {} failed after {} attempts", jobId, job.getAttempts(), e);
+                jobStore.fail(jobId, workerId, error);
+                videoService.markVideoFailed(job.getVideoId());
+            } else {
+                Duration backoff = backoff(job.getAttempts());
+                log.warn("Job {} failed on attempt {}, retrying in {}s", jobId, job.getAttempts(),
+                        backoff.toSeconds(), e);
+                jobStore.retry(jobId, workerId, error, Instant.now().plus(backoff));
+            }
+        } catch (Exception storeError) {
+            // the lease runs out and the job gets picked up again
+            log.error("Failed to record failure of job {}", jobId, storeError);
+        }
+    }
+
+    Duration backoff(int attempts) {
+        long seconds = initialBackoffSeconds << Math.min(attempts - 1, 30);
+        seconds = Math.min(seconds, maxBackoffSeconds);
+        // up to 20% jitter so retries of a batch of failures don't line up
+        long jitterMs = ThreadLocalRandom.current().nextLong(seconds * 200 + 1);
+        return Duration.ofSeconds(seconds).plusMillis(jitterMs);
+    }
+
+    private void renewLeases() {
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        activeJobs.forEach((jobId, future) -> {
+            try {
+                if (!jobStore.renewLease(jobId, workerId, lease)) {
+                    log.warn("Lost lease on job {}, cancelling it", jobId);
+                    future.cancel(true);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to renew lease on job {}", jobId, e);
+            }
+        });
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+}
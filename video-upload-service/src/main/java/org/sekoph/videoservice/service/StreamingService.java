@@ -0,0 +1,177 @@
+package org.sekoph.videoservice.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoNotFoundException;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Streams originals and segments out of the object store for clients that cannot be handed presigned URLs, for
+ * example because the video is private. Single byte ranges are honoured, with If-Range, and only the requested range
+ * is read from the store. The body is handed over with {@link InputStream#transferTo}, through one small buffer per
+ * request, so memory use does not grow with the size of the objects or the ranges being read.
+ */
+@Slf4j
+@Service
+public class StreamingService {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final VideoService videoService;
+    private final ObjectStore objectStore;
+
+    @Value("${minio.bucket.videos}")
+    private String videosBucket;
+
+    @Value("${minio.bucket.segments}")
+    private String segmentsBucket;
+
+    public StreamingService(VideoService videoService, ObjectStore objectStore) {
+        this.videoService = videoService;
+        this.objectStore = objectStore;
+    }
+
+    /**
+     * The stored original of a video.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public StoredObject original(String videoId, UUID requesterId) {
+        Video video = videoService.getStreamableVideo(videoId, requesterId);
+        return stat(videosBucket, video.getVideoS3Key(), videoId);
+    }
+
+    /**
+     * A stored segment of a video.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public StoredObject segment(String videoId, String segmentId, UUID requesterId) {
+        VideoSegment segment = videoService.getStreamableSegment(videoId, segmentId, requesterId);
+        return stat(segmentsBucket, segment.getSegmentS3Key(), videoId);
+    }
+
+    /**
+     * Write the object, or the single range the request asks for, to the response.
+     */
+    public void stream(StoredObject object, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // answers If-None-Match and If-Modified-Since with 304, If-Match and If-Unmodified-Since with 412
+        if (new ServletWebRequest(request, response).checkNotModified(object.etag(), object.lastModified())) {
+            return;
+        }
+        response.setContentType(object.contentType());
+
+        long offset = 0;
+        long length = object.size();
+        HttpRange range = requestedRange(request, object);
+        if (range != null) {
+            offset = range.getRangeStart(object.size());
+            length = range.getRangeEnd(object.size()) - offset + 1;
+            if (offset >= object.size() || length <= 0) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + object.size());
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + offset + "-" + (offset + length - 1) + "/" + object.size());
+        }
+        response.setContentLengthLong(length);
+        if (length == 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        InputStream body = open(object, offset, length);
+        try (body; OutputStream out = response.getOutputStream()) {
+            body.transferTo(out);
+        } catch (IOException e) {
+            // the response is committed, there is nothing left to report to the client
+            log.debug("Streaming {} stopped: {}", object.key(), e.getMessage());
+        }
+    }
+
+    /**
+     * The single range to serve, or null to serve the whole object. Ranges that cannot be parsed, several ranges at
+     * once and ranges whose If-Range validator no longer matches are ignored, the whole object is sent instead.
+     */
+    static HttpRange requestedRange(HttpServletRequest request, StoredObject object) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), object)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.getFirst() : null;
+    }
+
+    private static boolean ifRangeMatches(String ifRange, StoredObject object) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // strong comparison, a weak validator never matches
+            return ifRange.equals(object.etag());
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_RANGE, ifRange);
+        try {
+            // HTTP dates have a resolution of one second
+            return headers.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == object.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private InputStream open(StoredObject object, long offset, long length) {
+        try {
+            return ObjectStore.await(objectStore.get(object.bucket(), object.key(), offset, length));
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to read " + object.key(), e);
+        }
+    }
+
+    private StoredObject stat(String bucket, String key, String videoId) {
+        Optional<ObjectStore.ObjectInfo> found;
+        try {
+            found = objectStore.stat(bucket, key);
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to look up " + key, e);
+        }
+        ObjectStore.ObjectInfo stat = found.orElseThrow(() -> new VideoNotFoundException(videoId));
+        String contentType = stat.contentType() != null ? stat.contentType() : DEFAULT_CONTENT_TYPE;
+        return new StoredObject(bucket, key, stat.size(), "\"" + stat.etag() + "\"", stat.lastModified(),
+                contentType);
+    }
+
+    /**
+     * An object as stored in the object store.
+     *
+     * @param etag         quoted strong entity tag
+     * @param lastModified last modification time in epoch milliseconds
+     */
+    public record StoredObject(String bucket, String key, long size, String etag, long lastModified,
+                               String contentType) {
+    }
+}
@@ -0,0 +1,399 @@
+package org.sekoph.videoservice.service;
+
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.dto.UploadSessionResponseDTO;
+import org.sekoph.videoservice.dto.VideoRequestDTO;
+import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.exception.UploadSessionException;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.sekoph.videoservice.mapper.VideoMapper;
+import org.sekoph.videoservice.minIO.IngestInputStream;
+import org.sekoph.videoservice.minIO.MultipartUploads;
+import org.sekoph.videoservice.model.UploadPart;
+import org.sekoph.videoservice.model.UploadSession;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.repository.UploadSessionRepository;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable uploads. A session is created with the size of the file, then the client sends it as fixed-size chunks
+ * in any order, several at a time if it likes, and re-sends whichever chunks did not make it. Every chunk is a part of
+ * one MinIO multipart upload, so completing the session assembles the file inside MinIO without copying it. It is
+ * read back once to hash it, which lets the same content uploaded twice share its original and artifacts.
+ * <p>
+ * Sessions live in MongoDB, so any node can take any chunk. Sessions nobody touched for
+ * {@code video.uploads.session-ttl-hours} are aborted along with their parts, or with the assembled object if they
+ * were abandoned after the parts were composed.
+ */
+@Slf4j
+@Service
+public class UploadSessionService implements DisposableBean {
+
+    // MinIO limits
+    private static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    private static final int MAX_PARTS = 10_000;
+    private static final int SWEEP_BATCH = 100;
+
+    private final UploadSessionRepository sessionRepository;
+    private final VideoRepository videoRepository;
+    private final MultipartUploads multipartUploads;
+    private final ObjectStore objectStore;
+    private final VideoService videoService;
+    private final PipelineScheduler pipelineScheduler;
+
+    private ScheduledExecutorService sweeper;
+
+    @Value("${minio.bucket.videos}")
+    private String videosBucket;
+
+    @Value("${video.uploads.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${video.ingest.max-size:50GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${video.uploads.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Value("${video.uploads.sweep-interval-minutes:15}")
+    private long sweepIntervalMinutes;
+
+    public UploadSessionService(UploadSessionRepository sessionRepository, VideoRepository videoRepository,
+                                MultipartUploads multipartUploads, ObjectStore objectStore,
+                                VideoService videoService, PipelineScheduler pipelineScheduler) {
+        this.sessionRepository = sessionRepository;
+        this.videoRepository = videoRepository;
+        this.multipartUploads = multipartUploads;
+        this.objectStore = objectStore;
+        this.videoService = videoService;
+        this.pipelineScheduler = pipelineScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "upload-session-sweeper"));
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMinutes, sweepIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Open a session for a file of {@code length} bytes. The session belongs to the user of the request, only they
+     * can send its chunks, complete it or abort it.
+     */
+    public UploadSessionResponseDTO createSession(VideoRequestDTO videoRequestDTO, long length) {
+        if (videoRequestDTO.getUserId() == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (length <= 0 || length > maxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("Upload length must be between 1 and " + maxUploadSize.toBytes());
+        }
+        String filename = videoRequestDTO.getFilename();
+        int dot = filename == null ? -1 : filename.lastIndexOf('.');
+        ContainerFormat declaredFormat = ContainerFormat.fromExtension(dot < 0 ? "" : filename.substring(dot + 1))
+                .orElseThrow(() -> new IllegalArgumentException("Invalid video file format"));
+
+        // big files get bigger chunks so they fit in the part limit, in whole megabytes
+        long megabyte = DataSize.ofMegabytes(1).toBytes();
+        long sessionChunkSize = Math.max(Math.max(chunkSize.toBytes(), MIN_PART_SIZE),
+                Math.ceilDiv(Math.ceilDiv(length, MAX_PARTS), megabyte) * megabyte);
+
+        try (PipelineScheduler.Admission admission = pipelineScheduler.admitUpload()) {
+            String objectKey = "video_" + UUID.randomUUID() + "." + declaredFormat.getExtension();
+            String uploadId;
+            try {
+                uploadId = multipartUploads.create(videosBucket, objectKey, declaredFormat.getContentType());
+            } catch (Exception e) {
+                throw new VideoProcessingException("Failed to start upload", e);
+            }
+
+            Instant now = Instant.now();
+            UploadSession session = new UploadSession();
+            session.setUploadId(uploadId);
+            session.setObjectKey(objectKey);
+            session.setTitle(videoRequestDTO.getTitle());
+            session.setDescription(videoRequestDTO.getDescription());
+            session.setUserID(videoRequestDTO.getUserId());
+            session.setVisibility(videoRequestDTO.getVisibilityStatus());
+            session.setOriginalFilename(filename);
+            session.setLength(length);
+            session.setChunkSize(sessionChunkSize);
+            session.setStatus(UploadSessionStatus.UPLOADING);
+            session.setCreatedAt(now);
+            session.setUpdatedAt(now);
+            session.setExpiresAt(now.plus(Duration.ofHours(sessionTtlHours)));
+            UploadSession saved = sessionRepository.save(session);
+            log.info("Upload session {} created for {} ({} bytes in {} chunks)", saved.getId(), filename, length,
+                    saved.getChunkCount());
+            return toDTO(saved);
+        }
+    }
+
+    /**
+     * Store the chunk starting at {@code offset}. Sending a chunk again replaces it.
+     *
+     * @param requesterId   user making the request
+     * @param contentLength size of the chunk, the chunk size of the session except for the last chunk
+     */
+    public UploadSessionResponseDTO uploadChunk(String sessionId, UUID requesterId, long offset, long contentLength,
+                                                InputStream body) {
+        UploadSession session = findSession(sessionId, requesterId);
+        if (session.getStatus() != UploadSessionStatus.UPLOADING) {
+            throw new UploadSessionException("Upload session is " + session.getStatus(), HttpStatus.CONFLICT);
+        }
+        if (offset < 0 || offset >= session.getLength() || offset % session.getChunkSize() != 0) {
+            throw new IllegalArgumentException("Chunks start at a multiple of " + session.getChunkSize()
+                    + " below " + session.getLength());
+        }
+        long expected = Math.min(session.getChunkSize(), session.getLength() - offset);
+        if (contentLength != expected) {
+            throw new IllegalArgumentException("Chunk at offset " + offset + " must be " + expected + " bytes");
+        }
+        int partNumber = (int) (offset / session.getChunkSize()) + 1;
+
+        ContainerFormat format = null;
+        String etag;
+        try (PipelineScheduler.Admission admission = pipelineScheduler.admitUpload()) {
+            IngestInputStream ingest = IngestInputStream.open(body, expected);
+            if (partNumber == 1) {
+                format = ingest.getFormat().orElseThrow(() -> new IllegalArgumentException("Invalid video file format"));
+            }
+            // MinIO signs and sends a part from memory, chunks are bounded by the session chunk size
+            byte[] data = ingest.readNBytes((int) expected);
+            if (data.length != expected) {
+                throw new IllegalArgumentException("Chunk at offset " + offset + " ended after " + data.length
+                        + " bytes");
+            }
+            etag = multipartUploads.uploadPart(videosBucket, session.getObjectKey(), session.getUploadId(),
+                    partNumber, data);
+        } catch (IOException e) {
+            throw new VideoProcessingException("Error while reading chunk", e);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to store chunk", e);
+        }
+
+        UploadPart part = new UploadPart();
+        part.setEtag(etag);
+        part.setSize(expected);
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(sessionTtlHours));
+        if (!sessionRepository.recordPart(sessionId, partNumber, part, format, expiresAt)) {
+            throw new UploadSessionException("Upload session no longer accepts chunks", HttpStatus.CONFLICT);
+        }
+
+        session.getParts().put(String.valueOf(partNumber), part);
+        session.setExpiresAt(expiresAt);
+        return toDTO(session);
+    }
+
+    public UploadSessionResponseDTO getSession(String sessionId, UUID requesterId) {
+        return toDTO(findSession(sessionId, requesterId));
+    }
+
+    /**
+     * Assemble the chunks into the video and queue it for processing. Completing a completed session returns its
+     * video again, completing a session whose video could not be registered retries the registration.
+     */
+    public VideoResponseDTO completeSession(String sessionId, UUID requesterId) {
+        UploadSession session = findSession(sessionId, requesterId);
+        if (session.getStatus() == UploadSessionStatus.COMPLETED) {
+            return videoRepository.findById(session.getVideoId())
+                    .map(VideoMapper::toDTO)
+                    .orElseThrow(() -> new UploadSessionException("Video of upload session no longer exists",
+                            HttpStatus.GONE));
+        }
+        if (session.getStatus() == UploadSessionStatus.ASSEMBLED) {
+            if (!sessionRepository.transition(sessionId, UploadSessionStatus.ASSEMBLED,
+                    UploadSessionStatus.COMPLETING)) {
+                throw new UploadSessionException("Upload session is already being completed", HttpStatus.CONFLICT);
+            }
+        } else {
+            assemble(session);
+        }
+
+        VideoRequestDTO videoRequestDTO = new VideoRequestDTO();
+        videoRequestDTO.setTitle(session.getTitle());
+        videoRequestDTO.setDescription(session.getDescription());
+        videoRequestDTO.setUserId(session.getUserID());
+        videoRequestDTO.setVisibilityStatus(session.getVisibility());
+        VideoResponseDTO video;
+        try {
+            video = videoService.registerVideo(videoRequestDTO, session.getOriginalFilename(),
+                    session.getObjectKey(), session.getContainerFormat(), session.getLength(), contentHash(session));
+        } catch (RuntimeException e) {
+            // the parts are gone once composed, so the object is kept for the next attempt or the sweep
+            sessionRepository.transition(sessionId, UploadSessionStatus.COMPLETING, UploadSessionStatus.ASSEMBLED);
+            throw new VideoProcessingException("Failed to register upload, complete the session again", e);
+        }
+        sessionRepository.markCompleted(sessionId, video.getId());
+        log.info("Upload session {} completed as video {}", sessionId, video.getId());
+        return video;
+    }
+
+    /**
+     * Give up on an upload and drop the chunks received so far.
+     */
+    public void abortSession(String sessionId, UUID requesterId) {
+        UploadSession session = findSession(sessionId, requesterId);
+        if (session.getStatus() == UploadSessionStatus.COMPLETED) {
+            throw new UploadSessionException("Upload session is already completed", HttpStatus.CONFLICT);
+        }
+        if (session.getStatus() == UploadSessionStatus.COMPLETING) {
+            throw new UploadSessionException("Upload session is being completed", HttpStatus.CONFLICT);
+        }
+        abort(session);
+    }
+
+    void sweep() {
+        try {
+            List<UploadSession> expired;
+            int aborted;
+            do {
+                expired = sessionRepository.findExpired(Instant.now(), SWEEP_BATCH);
+                aborted = 0;
+                for (UploadSession session : expired) {
+                    try {
+                        abort(session);
+                        aborted++;
+                    } catch (Exception e) {
+                        log.warn("Failed to abort abandoned upload session {}", session.getId(), e);
+                    }
+                }
+                if (aborted > 0) {
+                    log.info("Aborted {} abandoned upload sessions", aborted);
+                }
+                // failed sessions come back in the next query, leave them for the next sweep
+            } while (aborted == SWEEP_BATCH);
+        } catch (Exception e) {
+            log.error("Upload session sweep failed", e);
+        }
+    }
+
+    private void assemble(UploadSession session) {
+        List<Long> missing = missingOffsets(session);
+        if (!missing.isEmpty()) {
+            throw new UploadSessionException(missing.size() + " chunks are missing, first at offset "
+                    + missing.getFirst(), HttpStatus.CONFLICT);
+        }
+        if (!sessionRepository.transition(session.getId(), UploadSessionStatus.UPLOADING,
+                UploadSessionStatus.COMPLETING)) {
+            throw new UploadSessionException("Upload session is already being completed", HttpStatus.CONFLICT);
+        }
+
+        List<Part> parts = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= session.getChunkCount(); partNumber++) {
+            parts.add(new Part(partNumber, session.getParts().get(String.valueOf(partNumber)).getEtag()));
+        }
+        try {
+            multipartUploads.complete(videosBucket, session.getObjectKey(), session.getUploadId(), parts);
+        } catch (Exception e) {
+            sessionRepository.transition(session.getId(), UploadSessionStatus.COMPLETING,
+                    UploadSessionStatus.UPLOADING);
+            throw new VideoProcessingException("Failed to assemble upload", e);
+        }
+    }
+
+    /**
+     * Hash the assembled object, so a resumable upload is deduplicated like a single request one. Chunks arrive in
+     * any order and are hashed separately, the hash of the whole file needs one more read of it.
+     */
+    private String contentHash(UploadSession session) {
+        try (IngestInputStream object = IngestInputStream.open(ObjectStore.await(
+                objectStore.get(videosBucket, session.getObjectKey(), 0, session.getLength())), session.getLength())) {
+            object.transferTo(OutputStream.nullOutputStream());
+            if (object.getBytesRead() != session.getLength()) {
+                throw new IOException("Assembled upload has " + object.getBytesRead() + " of " + session.getLength()
+                        + " bytes");
+            }
+            return object.getSha256();
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to hash assembled upload", e);
+        }
+    }
+
+    private void abort(UploadSession session) {
+        boolean composed = session.getStatus() != UploadSessionStatus.UPLOADING;
+        if (composed) {
+            // a node that stopped after registering the video never got to mark the session completed
+            Optional<Video> video = videoRepository.findFirstByVideoS3Key(session.getObjectKey());
+            if (video.isPresent()) {
+                sessionRepository.markCompleted(session.getId(), video.get().getId());
+                return;
+            }
+        }
+        try {
+            multipartUploads.abort(videosBucket, session.getObjectKey(), session.getUploadId());
+            if (composed) {
+                // the parts may already be composed into the object, which no video refers to
+                objectStore.delete(videosBucket, List.of(session.getObjectKey()));
+            }
+        } catch (Exception e) {
+            throw new VideoProcessingException("Failed to abort upload session " + session.getId(), e);
+        }
+        sessionRepository.deleteById(session.getId());
+    }
+
+    private UploadSession findSession(String sessionId, UUID requesterId) {
+        return sessionRepository.findById(sessionId)
+                // other users' sessions look missing, ids are guessable
+                .filter(session -> session.getUserID() != null && session.getUserID().equals(requesterId))
+                .orElseThrow(() -> new UploadSessionException("Upload session not found: " + sessionId,
+                        HttpStatus.NOT_FOUND));
+    }
+
+    private List<Long> missingOffsets(UploadSession session) {
+        List<Long> missing = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= session.getChunkCount(); partNumber++) {
+            if (!session.getParts().containsKey(String.valueOf(partNumber))) {
+                missing.add((partNumber - 1) * session.getChunkSize());
+            }
+        }
+        return missing;
+    }
+
+    private UploadSessionResponseDTO toDTO(UploadSession session) {
+        List<Long> missing = missingOffsets(session);
+        UploadSessionResponseDTO dto = new UploadSessionResponseDTO();
+        dto.setId(session.getId());
+        dto.setStatus(session.getStatus());
+        dto.setLength(session.getLength());
+        dto.setChunkSize(session.getChunkSize());
+        dto.setReceivedBytes(session.getParts().values().stream().mapToLong(UploadPart::getSize).sum());
+        dto.setOffset(missing.isEmpty() ? session.getLength() : missing.getFirst());
+        dto.setMissingOffsets(missing);
+        dto.setVideoId(session.getVideoId());
+        dto.setExpiresAt(session.getExpiresAt());
+        return dto;
+    }
+}
@@ -0,0 +1,131 @@
+package org.sekoph.videoservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.repository.VideoChangeStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Videos read by the API, kept in memory so hot videos are not fetched from MongoDB on every request. The cache is
+ * bounded by the estimated size of its entries and by their number. Videos still in the pipeline expire after a few
+ * seconds, finished ones after {@code video.cache.ttl-seconds}.
+ * <p>
+ * This node's own status and metadata changes evict a video straight away, the {@link VideoChangeStream} carries the
+ * changes made on other nodes. Cached videos are shared between requests and must not be modified.
+ */
+@Slf4j
+@Service
+public class VideoCache implements DisposableBean, VideoChangeStream.Listener {
+
+    // object headers, ids, enums, dates and counters of a Video
+    private static final int BASE_WEIGHT = 512;
+
+    private final Cache<String, Video> cache;
+    private final VideoChangeStream changeStream;
+    private final Timer loadTimer;
+
+    public VideoCache(VideoChangeStream changeStream, MeterRegistry meterRegistry,
+                      @Value("${video.cache.max-weight:64MB}") DataSize maxWeight,
+                      @Value("${video.cache.max-entries:10000}") long maxEntries,
+                      @Value("${video.cache.ttl-seconds:300}") long ttlSeconds,
+                      @Value("${video.cache.processing-ttl-seconds:10}") long processingTtlSeconds) {
+        this.changeStream = changeStream;
+        // Caffeine bounds either weight or count: every entry weighs at least its share of the weight bound, so the
+        // weight bound also caps the number of entries
+        long minWeight = Math.max(1, maxWeight.toBytes() / maxEntries);
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        Duration processingTtl = Duration.ofSeconds(processingTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((String videoId, Video video) -> (int) Math.min(Integer.MAX_VALUE,
+                        Math.max(minWeight, estimateSize(video))))
+                .expireAfter(Expiry.writing((String videoId, Video video) -> inPipeline(video) ? processingTtl : ttl))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "videos");
+        this.loadTimer = Timer.builder("video.cache.load")
+                .description("Time to load a video missing from the cache")
+                .register(meterRegistry);
+        Gauge.builder("video.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of video lookups served from the cache")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        changeStream.start(this);
+    }
+
+    @Override
+    public void destroy() {
+        changeStream.close();
+    }
+
+    /**
+     * The cached video, or the one {@code loader} finds, which is cached.
+     */
+    public Optional<Video> get(String videoId, Function<String, Optional<Video>> loader) {
+        return Optional.ofNullable(cache.get(videoId,
+                id -> loadTimer.record(() -> loader.apply(id).orElse(null))));
+    }
+
+    /**
+     * Drop a video whose status or metadata changed. Waits for a load of the same video that is in progress, so the
+     * stale copy it read does not stay behind.
+     */
+    public void evict(String videoId) {
+        cache.invalidate(videoId);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // runs pending evictions, which Caffeine otherwise does on a later access
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public void changed(String videoId) {
+        evict(videoId);
+    }
+
+    @Override
+    public void reset() {
+        log.debug("Video changes may have been missed, clearing the video cache");
+        cache.invalidateAll();
+    }
+
+    private static boolean inPipeline(Video video) {
+        return video.getVideoStatus() == VideoStatus.UPLOADED || video.getVideoStatus() == VideoStatus.PROCESSING;
+    }
+
+    private static long estimateSize(Video video) {
+        return BASE_WEIGHT + 2L * (length(video.getTitle()) + length(video.getDescription())
+                + length(video.getOriginalFilename()) + length(video.getVideoS3Key()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -1,43 +1,100 @@
 package org.sekoph.videoservice.service;
 
-import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import io.minio.StatObjectArgs;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FilenameUtils;
+import org.sekoph.videoservice.dto.PageResponseDTO;
+import org.sekoph.videoservice.dto.VideoFrameResponseDTO;
 import org.sekoph.videoservice.dto.VideoRequestDTO;
 import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.dto.VideoSegmentResponseDto;
+import org.sekoph.videoservice.exception.VideoAccessDeniedException;
+import org.sekoph.videoservice.exception.VideoNotFoundException;
+import org.sekoph.videoservice.exception.VideoNotReadyException;
 import org.sekoph.videoservice.exception.VideoProcessingException;
 import org.sekoph.videoservice.mapper.VideoMapper;
-import org.sekoph.videoservice.minIO.UploadToMiniO;
+import org.sekoph.videoservice.exception.UploadTooLargeException;
+import org.sekoph.videoservice.minIO.IngestInputStream;
+import org.sekoph.videoservice.model.MediaMetadata;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.ProcessingStep;
 import org.sekoph.videoservice.model.Video;
 import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
 import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
 import org.sekoph.videoservice.model.enums.SegmentStatus;
 import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.model.enums.VisibleStatus;
+import org.sekoph.videoservice.processing.ArtifactUploader;
+import org.sekoph.videoservice.processing.FanOut;
+import org.sekoph.videoservice.processing.FrameExtractionEngine;
+import org.sekoph.videoservice.processing.FrameExtractionMode;
+import org.sekoph.videoservice.processing.MediaProbe;
+import org.sekoph.videoservice.processing.PipelineMetrics;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.processing.PipelineStage;
+import org.sekoph.videoservice.processing.Rendition;
+import org.sekoph.videoservice.processing.ScratchSpace;
+import org.sekoph.videoservice.processing.SegmentFormat;
+import org.sekoph.videoservice.processing.SegmentationEngine;
+import org.sekoph.videoservice.processing.SpriteSheetBuilder;
+import org.sekoph.videoservice.processing.TaskPlanner;
+import org.sekoph.videoservice.processing.VideoInput;
+import org.sekoph.videoservice.processing.VideoInputResolver;
+import org.sekoph.videoservice.repository.ProcessingJobStore;
+import org.sekoph.videoservice.repository.VideoFrameRepository;
 import org.sekoph.videoservice.repository.VideoRepository;
-import org.springframework.beans.factory.DisposableBean;
+import org.sekoph.videoservice.repository.VideoSegmentRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
-public class VideoService implements DisposableBean {
+public class VideoService {
+
+    private static final int COMPLETE_ATTEMPTS = 5;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private final VideoRepository videoRepository;
-    private final MinioClient minioClient;
-    private final ExecutorService executorService;
-    private final UploadToMiniO uploadToMiniO;
+    private final VideoSegmentRepository segmentRepository;
+    private final VideoFrameRepository frameRepository;
+    private final ObjectStore objectStore;
+    private final ProcessingJobStore jobStore;
+    private final SegmentationEngine segmentationEngine;
+    private final FrameExtractionEngine frameExtractionEngine;
+    private final MediaProbe mediaProbe;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineScheduler pipelineScheduler;
+    private final ContentAssetService contentAssetService;
+    private final VideoInputResolver videoInputResolver;
+    private final VideoCache videoCache;
+    private final PresignedUrlService urlService;
+    private final ArtifactUploader artifactUploader;
+    private final ScratchSpace scratchSpace;
 
     @Value("${minio.bucket.videos}")
     private String videosBucket;
@@ -48,65 +105,181 @@ public class VideoService implements DisposableBean {
     @Value("${minio.bucket.frames}")
     private String framesBucket;
 
-    @Value("${video.processing.segment-duration:300}")
+    @Value("${video.processing.segment-duration:6}")
     private int segmentDuration;
 
+    @Value("${video.processing.segment-format:TS}")
+    private SegmentFormat segmentFormat;
+
+    @Value("${video.processing.renditions:P240,P480,P720,P1080}")
+    private List<Rendition> renditions;
+
+    @Value("${video.processing.prioritize-first-rendition:true}")
+    private boolean prioritizeFirstRendition;
+
     @Value("${video.processing.frame-interval:10}")
     private int frameInterval;
 
-    @Value("${video.processing.thread-pool-size:4}")
-    private int threadPoolSize;
+    @Value("${video.processing.frame-mode:INTERVAL}")
+    private FrameExtractionMode frameMode;
+
+    @Value("${video.processing.scene-threshold:0.4}")
+    private double sceneThreshold;
+
+    @Value("${video.processing.frame-chunk-seconds:600}")
+    private long frameChunkSeconds;
+
+    @Value("${video.ingest.part-size:16MB}")
+    private DataSize uploadPartSize;
+
+    @Value("${video.ingest.max-size:50GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${video.processing.fan-out.frame-parallelism:0}")
+    private int fanOutFrameParallelism;
+
+    @Value("${video.processing.sprites.columns:10}")
+    private int spriteColumns;
+
+    @Value("${video.processing.sprites.rows:10}")
+    private int spriteRows;
+
+    @Value("${video.processing.sprites.tile-width:160}")
+    private int spriteTileWidth;
 
     @Autowired
-    public VideoService(VideoRepository videoRepository, MinioClient minioClient, UploadToMiniO uploadToMiniO) {
+    public VideoService(VideoRepository videoRepository, VideoSegmentRepository segmentRepository,
+                        VideoFrameRepository frameRepository, ObjectStore objectStore,
+                        ProcessingJobStore jobStore, SegmentationEngine segmentationEngine,
+                        FrameExtractionEngine frameExtractionEngine, PipelineScheduler pipelineScheduler,
+                        ContentAssetService contentAssetService, VideoInputResolver videoInputResolver,
+                        VideoCache videoCache, PresignedUrlService urlService, MediaProbe mediaProbe,
+                        PipelineMetrics pipelineMetrics, ArtifactUploader artifactUploader,
+                        ScratchSpace scratchSpace) {
         this.videoRepository = videoRepository;
-        this.minioClient = minioClient;
-        this.uploadToMiniO = uploadToMiniO;
-        this.executorService = Executors.newFixedThreadPool(4); // Use default value during construction
+        this.segmentRepository = segmentRepository;
+        this.frameRepository = frameRepository;
+        this.objectStore = objectStore;
+        this.jobStore = jobStore;
+        this.segmentationEngine = segmentationEngine;
+        this.frameExtractionEngine = frameExtractionEngine;
+        this.pipelineScheduler = pipelineScheduler;
+        this.contentAssetService = contentAssetService;
+        this.videoInputResolver = videoInputResolver;
+        this.videoCache = videoCache;
+        this.urlService = urlService;
+        this.mediaProbe = mediaProbe;
+        this.pipelineMetrics = pipelineMetrics;
+        this.artifactUploader = artifactUploader;
+        this.scratchSpace = scratchSpace;
     }
 
-    @Override
-    public void destroy() throws Exception {
-        log.info("Shutting down video processing executor service");
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    log.warn("Executor service did not terminate gracefully");
-                }
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
+    public VideoResponseDTO uploadVideo(VideoRequestDTO videoRequestDTO) {
+        validateVideoRequest(videoRequestDTO);
+
+        // Throws 429/503 before the body is copied to MinIO when the pipeline cannot keep up
+        try (PipelineScheduler.Admission admission = pipelineScheduler.admitUpload();
+             InputStream body = videoRequestDTO.getFile().getInputStream()) {
+            return storeVideo(videoRequestDTO, videoRequestDTO.getFile().getOriginalFilename(), body);
+        } catch (IOException e) {
+            throw new VideoProcessingException("Error while reading uploaded video", e);
         }
     }
 
-    public VideoResponseDTO uploadVideo(VideoRequestDTO videoRequestDTO) {
-        validateVideoRequest(videoRequestDTO);
+    /**
+     * Store a video sent as the raw request body. The body goes straight into a MinIO multipart upload, so neither
+     * the heap nor the temp directory has to hold the whole file.
+     *
+     * @param videoRequestDTO metadata of the video, the file is ignored
+     * @param body            the video itself
+     */
+    public VideoResponseDTO uploadVideoStream(VideoRequestDTO videoRequestDTO, InputStream body) {
+        String filename = videoRequestDTO.getFilename() != null ? videoRequestDTO.getFilename() : "upload";
+        try (PipelineScheduler.Admission admission = pipelineScheduler.admitUpload()) {
+            return storeVideo(videoRequestDTO, filename, body);
+        }
+    }
 
-        String originalFilename = videoRequestDTO.getFile().getOriginalFilename();
+    private VideoResponseDTO storeVideo(VideoRequestDTO videoRequestDTO, String originalFilename, InputStream body) {
         log.info("Processing video upload for file: {}", originalFilename);
-        String extension = FilenameUtils.getExtension(originalFilename);
-        String s3Key = "video_" + UUID.randomUUID().toString() + "." + extension;
 
-        // Upload the original file to Minio
+        // The container is identified from its first bytes, the name of the file can be anything
+        IngestInputStream ingest;
+        try {
+            ingest = IngestInputStream.open(body, maxUploadSize.toBytes());
+        } catch (IOException e) {
+            throw new VideoProcessingException("Error while reading uploaded video", e);
+        }
+        ContainerFormat format = ingest.getFormat()
+                .orElseThrow(() -> new IllegalArgumentException("Invalid video file format"));
+        String s3Key = "video_" + UUID.randomUUID().toString() + "." + format.getExtension();
+
+        // Upload the original file to the object store, hashing it on the way
         try{
-            uploadToMiniO.uploadFile(videosBucket, s3Key, videoRequestDTO.getFile(), "video/" + extension);
+            objectStore.put(videosBucket, s3Key, ingest, format.getContentType(), uploadPartSize.toBytes());
         }catch (Exception e){
+            // the client's fault, the store has already dropped the partial upload
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UploadTooLargeException tooLarge) {
+                    throw tooLarge;
+                }
+            }
             log.error("Error while uploading video", e);
             throw new VideoProcessingException("Error while uploading video", e);
         }
 
+        return registerVideo(videoRequestDTO, originalFilename, s3Key, format, ingest.getBytesRead(),
+                ingest.getSha256());
+    }
+
+    /**
+     * Save a video whose original is already stored in the videos bucket and queue it for processing.
+     *
+     * @param contentHash SHA-256 of the original, or null if it is not known
+     */
+    public VideoResponseDTO registerVideo(VideoRequestDTO videoRequestDTO, String originalFilename, String s3Key,
+                                          ContainerFormat format, long fileSize, String contentHash) {
         Video newVideo = createVideoEntity(videoRequestDTO, originalFilename, s3Key);
+        newVideo.setContentHash(contentHash);
+        newVideo.setFileSize(fileSize);
+        newVideo.setContainerFormat(format);
+        // Same content uploaded before: share its original and, if it is processed, its segments and frames
+        boolean reused = contentAssetService.attach(newVideo);
         Video savedVideo = videoRepository.save(newVideo);
 
         log.info("Video entity created with ID: {}", savedVideo.getId());
-        executorService.execute(() -> processVideo(savedVideo));
+        if (!reused) {
+            // Persisted job, picked up by a ProcessingJobWorker and survives restarts
+            jobStore.enqueue(savedVideo.getId());
+        }
 
         return VideoMapper.toDTO(savedVideo);
     }
 
+    /**
+     * Soft delete a video and remove the objects no other video shares with it. Only its owner may delete it.
+     *
+     * @param requesterId user making the request
+     * @throws VideoAccessDeniedException if the requester does not own the video
+     */
+    public void deleteVideo(String videoId, UUID requesterId) {
+        Video video = findVideo(videoId);
+        if (!isOwner(video, requesterId)) {
+            // private videos look missing to anyone else, as on every other endpoint
+            if (video.getVisibility() == VisibleStatus.PRIVATE) {
+                throw new VideoNotFoundException(videoId);
+            }
+            throw new VideoAccessDeniedException(videoId);
+        }
+        if (!videoRepository.markDeleted(videoId)) {
+            log.debug("Video ID: {} was already deleted", videoId);
+            return;
+        }
+        videoCache.evict(videoId);
+        contentAssetService.release(video);
+        log.info("Deleted video ID: {}", videoId);
+    }
+
     private void validateVideoRequest(VideoRequestDTO videoRequestDTO) {
         if (videoRequestDTO.getFile() == null || videoRequestDTO.getFile().isEmpty()) {
             throw new IllegalArgumentException("Video file is required");
@@ -144,226 +317,709 @@ public class VideoService implements DisposableBean {
         return newVideo;
     }
 
-    private void processVideo(Video savedVideo) {
-        try {
-            log.info("Starting video processing for video ID: {}", savedVideo.getId());
-            updateVideoStatus(savedVideo, VideoStatus.PROCESSING);
+    /**
+     * Probe an uploaded video and plan the tasks that process it. Run by the worker that claims the video's VIDEO
+     * job, the returned SEGMENTS and FRAMES tasks can then be claimed by any worker node.
+     *
+     * @param videoId id of the video to process
+     * @return the tasks to enqueue
+     * @throws Exception if probing fails, the worker decides whether to retry
+     */
+    public List<ProcessingJob> planVideo(String videoId) throws Exception {
+        Video savedVideo = findVideo(videoId);
+        probeVideo(savedVideo);
+        return planTasks(savedVideo, frameChunkSeconds);
+    }
 
-            // Step 1: Extract video metadata
+    /**
+     * Fan-out mode: probe the video, then run its segmentation pass and all of its frame ranges concurrently on this
+     * node instead of queueing them for the cluster. The frame ranges are sized so every core gets one, rounded up to
+     * whole sprite sheets. No more passes and ranges run at a time than the segment and frame stage pools have
+     * threads, and the first failing task cancels the others so the worker can retry the whole video straight away.
+     *
+     * @param videoId id of the video to process
+     * @throws Exception the first task failure, the worker decides whether to retry
+     */
+    public void processVideo(String videoId) throws Exception {
+        Video savedVideo = findVideo(videoId);
+        probeVideo(savedVideo);
+
+        int frameParallelism = fanOutFrameParallelism > 0
+                ? fanOutFrameParallelism
+                : Runtime.getRuntime().availableProcessors();
+        long chunk = Math.min(frameChunkSeconds, Math.ceilDiv(savedVideo.getDuration(), frameParallelism));
+        List<ProcessingJob> tasks = planTasks(savedVideo, chunk);
+
+        // forked first rendition first, as many passes and ranges at a time as the queued pipeline runs on its
+        // segment and frame pools; ffmpeg processes of all videos together are capped by the process limiter
+        Semaphore segmentSlots = new Semaphore(pipelineScheduler.getThreads(PipelineStage.SEGMENT));
+        Semaphore frameSlots = new Semaphore(pipelineScheduler.getThreads(PipelineStage.FRAME));
+        try (FanOut fanOut = new FanOut("video-" + videoId)) {
+            for (ProcessingJob task : tasks) {
+                switch (task.getType()) {
+                    case SEGMENTS -> fanOut.fork(segmentSlots, () -> segmentVideo(savedVideo, task.getRendition()));
+                    case FRAMES -> fanOut.fork(frameSlots,
+                            () -> extractKeyFrames(savedVideo, task.getRangeStart(), task.getRangeEnd()));
+                    default -> throw new IllegalStateException("Unexpected task type: " + task.getType());
+                }
+            }
+            fanOut.join();
+        }
+        completeVideo(videoId);
+    }
+
+    private void probeVideo(Video savedVideo) throws Exception {
+        log.info("Starting video processing for video ID: {}", savedVideo.getId());
+        videoRepository.updateStatus(savedVideo.getId(), VideoStatus.PROCESSING);
+        videoCache.evict(savedVideo.getId());
+
+        // Step 1: Extract video metadata
+        timed(savedVideo, "probe", null, () -> {
             extractVideoMetadata(savedVideo);
-            log.info("Video metadata extracted for video ID: {}", savedVideo.getId());
+            return null;
+        });
+        log.info("Video metadata extracted for video ID: {}", savedVideo.getId());
+    }
 
-            // Step 2: Segment the video
-            segmentVideo(savedVideo);
-            log.info("Video segmentation completed for video ID: {}", savedVideo.getId());
+    private List<ProcessingJob> planTasks(Video savedVideo, long frameChunkSeconds) {
+        // Step 2: one segmentation pass per rendition, frame extraction split into ranges that decode in parallel
+        List<ProcessingJob> tasks = new TaskPlanner(renditions, prioritizeFirstRendition, frameInterval,
+                spriteColumns * spriteRows).plan(savedVideo, frameChunkSeconds);
+        log.info("Planned {} tasks for video ID: {}", tasks.size(), savedVideo.getId());
+        return tasks;
+    }
 
-            // Step 3: Extract key frames
-            extractKeyFrames(savedVideo);
-            log.info("Key frame extraction completed for video ID: {}", savedVideo.getId());
+    /**
+     * SEGMENTS task: encode one rendition of the whole video and cut it into segments in one pass. The rendition can
+     * be played as soon as the task is done, whether or not the others are.
+     *
+     * @param rendition rendition to produce, null for tasks queued before the ladder, which copy the source
+     */
+    public void segmentVideo(String videoId, Rendition rendition) throws Exception {
+        Video savedVideo = findVideo(videoId);
+        if (savedVideo.getVideoStatus() == VideoStatus.FAILED) {
+            log.info("Skipping segmentation of failed video ID: {}", videoId);
+            return;
+        }
+        segmentVideo(savedVideo, rendition != null ? rendition : Rendition.SOURCE);
+        log.info("Video segmentation completed for video ID: {} rendition {}", savedVideo.getId(), rendition);
+    }
 
-            updateVideoStatus(savedVideo, VideoStatus.READY);
-            log.info("Video processing completed successfully for video ID: {}", savedVideo.getId());
+    /**
+     * FRAMES task: extract the key frames between two points of the video.
+     *
+     * @param rangeStart first second of the range
+     * @param rangeEnd   end of the range in seconds, or null for the end of the video
+     */
+    public void extractKeyFrames(String videoId, long rangeStart, Long rangeEnd) throws Exception {
+        Video savedVideo = findVideo(videoId);
+        if (savedVideo.getVideoStatus() == VideoStatus.FAILED) {
+            log.info("Skipping key frame extraction of failed video ID: {}", videoId);
+            return;
+        }
+        extractKeyFrames(savedVideo, rangeStart, rangeEnd);
+        log.info("Key frame extraction completed for video ID: {} range {}-{}", savedVideo.getId(), rangeStart,
+                rangeEnd);
+    }
 
-        } catch (Exception e) {
-            log.error("Video processing failed for video ID: {}", savedVideo.getId(), e);
-            updateVideoStatus(savedVideo, VideoStatus.FAILED);
-            // Consider publishing an event or notification here
+    /**
+     * Called once every task of the video has completed: put segments and frames in order and mark it READY. The
+     * write only succeeds on the version that was read, a duplicate task still writing frames makes it read again.
+     *
+     * @throws VideoProcessingException if the video kept changing; it stays PROCESSING until completed again
+     */
+    public void completeVideo(String videoId) {
+        for (int attempt = 1; attempt <= COMPLETE_ATTEMPTS; attempt++) {
+            Video savedVideo = findVideo(videoId);
+            if (savedVideo.getVideoStatus() != VideoStatus.PROCESSING) {
+                log.warn("Video ID: {} was no longer processing, not marking it ready", videoId);
+                return;
+            }
+
+            // each rendition is numbered on its own
+            List<VideoSegment> segments = segmentRepository.findByVideoId(videoId, Sort.by("quality", "startTimeMs"));
+            Map<String, Integer> nextNumbers = new HashMap<>();
+            for (VideoSegment segment : segments) {
+                segment.setSegmentNumber(nextNumbers.merge(String.valueOf(segment.getQuality()), 1, Integer::sum) - 1);
+            }
+
+            List<VideoFrame> keyFrames = frameRepository.findByVideoId(videoId, Sort.by("timeStamp", "id"));
+            for (int i = 0; i < keyFrames.size(); i++) {
+                keyFrames.get(i).setFrameNumber((long) i);
+            }
+
+            LocalDateTime startedAt = LocalDateTime.now();
+            long start = System.nanoTime();
+            boolean finished = videoRepository.finishProcessing(videoId, savedVideo.getVersion(), segments, keyFrames);
+            recordStage(savedVideo, "save", "complete", startedAt, System.nanoTime() - start, true);
+            if (finished) {
+                videoCache.evict(videoId);
+                contentAssetService.artifactsReady(savedVideo, segments, keyFrames);
+                log.info("Video processing completed successfully for video ID: {}", videoId);
+                return;
+            }
+            log.debug("Video ID: {} changed while completing it, attempt {}", videoId, attempt);
         }
+        throw new VideoProcessingException("Video ID: " + videoId + " kept changing, gave up marking it ready after "
+                + COMPLETE_ATTEMPTS + " attempts");
     }
 
-    private void updateVideoStatus(Video video, VideoStatus status) {
-        video.setVideoStatus(status);
-        video.setUpdatedAt(LocalDateTime.now());
-        videoRepository.save(video);
+    /**
+     * A single video. Its segments and key frames are only loaded when asked for, the paged endpoints are the way to
+     * read them for long videos.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     * @see #getReadableVideo
+     */
+    public VideoResponseDTO getVideo(String videoId, UUID requesterId, boolean withSegments, boolean withKeyFrames) {
+        Video video = getReadableVideo(videoId, requesterId);
+        String artifactsId = artifactsOf(video);
+        return VideoMapper.toDTO(video,
+                withSegments
+                        ? () -> segmentDTOs(segmentRepository.findByVideoId(artifactsId,
+                        Sort.by("quality", "segmentNumber")))
+                        : null,
+                withKeyFrames
+                        ? () -> frameDTOs(frameRepository.findByVideoId(artifactsId, Sort.by("timeStamp", "id")))
+                        : null);
     }
 
-    private void extractVideoMetadata(Video savedVideo) throws Exception {
-        log.debug("Extracting metadata for video: {}", savedVideo.getOriginalFilename());
+    /**
+     * One page of a user's videos, newest first. Private and unlisted videos are only listed to the user.
+     *
+     * @param requesterId user asking for the list, or null if it is anonymous
+     * @param cursor      {@code nextCursor} of the previous page, or null for the first page
+     */
+    public PageResponseDTO<VideoResponseDTO> getVideosByUser(UUID userId, UUID requesterId, String cursor,
+                                                             int limit) {
+        VideoCursor after = VideoCursor.decode(cursor);
+        return videoPage(videoRepository.findPageByUser(userId, userId.equals(requesterId), after.createdAt(),
+                after.id(), pageSize(limit)), limit);
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffprobe",
-                "-v", "error",
-                "-show_entries", "format=duration",
-                "-of", "default=noprint_wrappers=1:nokey=1",
-                getVideoPath(savedVideo)
-        );
+    /**
+     * One page of the videos in a status, newest first. Private and unlisted videos are only listed to their owner.
+     *
+     * @param requesterId user asking for the list, or null if it is anonymous
+     * @param cursor      {@code nextCursor} of the previous page, or null for the first page
+     */
+    public PageResponseDTO<VideoResponseDTO> getVideosByStatus(VideoStatus status, UUID requesterId, String cursor,
+                                                               int limit) {
+        VideoCursor after = VideoCursor.decode(cursor);
+        return videoPage(videoRepository.findPageByStatus(status, requesterId, after.createdAt(), after.id(),
+                pageSize(limit)), limit);
+    }
 
-        Process process = pb.start();
+    private PageResponseDTO<VideoResponseDTO> videoPage(List<Video> videos, int limit) {
+        String nextCursor = videos.size() < pageSize(limit) ? null : VideoCursor.of(videos.getLast()).encode();
+        return new PageResponseDTO<>(videos.stream().map(VideoMapper::toDTO).toList(), nextCursor);
+    }
 
-        StringBuilder output = new StringBuilder();
-        StringBuilder errorOutput = new StringBuilder();
+    /**
+     * Position in a newest-first list of videos: creation time and id of the last video returned, opaque to clients.
+     */
+    record VideoCursor(LocalDateTime createdAt, String id) {
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-             BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+        static VideoCursor of(Video video) {
+            return new VideoCursor(video.getCreatedAt(), video.getId());
+        }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
+        static VideoCursor decode(String cursor) {
+            if (cursor == null) {
+                return new VideoCursor(null, null);
             }
+            return parseCursor(cursor, () -> {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                return new VideoCursor(LocalDateTime.parse(value.substring(0, separator)),
+                        value.substring(separator + 1));
+            });
+        }
 
-            while ((line = errorReader.readLine()) != null) {
-                errorOutput.append(line).append("\n");
-            }
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
         }
+    }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new VideoProcessingException("FFprobe failed with exit code: " + exitCode +
-                    ". Error: " + errorOutput.toString());
+    /**
+     * A video whose details, segments and frames may be handed to the requester, with presigned URLs to them. Private
+     * videos are only shown to their owner and look like missing videos to everyone else.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public Video getReadableVideo(String videoId, UUID requesterId) {
+        Video video = findVisibleVideo(videoId);
+        if (video.getVisibility() == VisibleStatus.PRIVATE && !isOwner(video, requesterId)) {
+            throw new VideoNotFoundException(videoId);
         }
+        return video;
+    }
 
-        try {
-            double duration = Double.parseDouble(output.toString().trim());
-            savedVideo.setDuration((long) duration);
-            savedVideo.setUpdatedAt(LocalDateTime.now());
-            videoRepository.save(savedVideo);
-            log.debug("Video duration set to: {} seconds", duration);
-        } catch (NumberFormatException e) {
-            throw new VideoProcessingException("Failed to parse video duration: " + output.toString(), e);
+    /**
+     * A video whose original may be streamed to the requester, under the same rules as {@link #getReadableVideo}.
+     *
+     * @param requesterId user making the request, or null if it is anonymous
+     */
+    public Video getStreamableVideo(String videoId, UUID requesterId) {
+        return getReadableVideo(videoId, requesterId);
+    }
+
+    /**
+     * A stored segment of a video that may be streamed to the requester.
+     *
+     * @param segmentId {@code segmentId} of the segment as listed by the segment endpoints
+     * @see #getStreamableVideo
+     */
+    public VideoSegment getStreamableSegment(String videoId, String segmentId, UUID requesterId) {
+        Video video = getStreamableVideo(videoId, requesterId);
+        return segmentRepository.findByVideoIdAndSegmentID(artifactsOf(video), segmentId)
+                .orElseThrow(() -> new VideoNotFoundException(videoId + " segment " + segmentId));
+    }
+
+    /**
+     * The renditions of a video that can be played, lowest bitrate first. Available while the video is still
+     * processing, as soon as its first rendition is stored.
+     *
+     * @throws VideoNotReadyException if no rendition is stored yet
+     * @see #getReadableVideo
+     */
+    public List<VideoRendition> getRenditions(String videoId, UUID requesterId) {
+        Video video = getReadableVideo(videoId, requesterId);
+        List<VideoRendition> available = renditionsOf(video);
+        if (available.isEmpty()) {
+            throw new VideoNotReadyException(videoId, video.getVideoStatus());
         }
+        return available;
     }
 
-    private void segmentVideo(Video savedVideo) throws Exception {
-        log.debug("Starting video segmentation for video ID: {}", savedVideo.getId());
+    /**
+     * Every segment of a stored rendition in playback order, for building its playlist.
+     *
+     * @see #getReadableVideo
+     */
+    public List<VideoSegment> getPlaybackSegments(String videoId, UUID requesterId, String quality) {
+        Video video = getReadableVideo(videoId, requesterId);
+        if (video.getRenditions() == null || !video.getRenditions().containsKey(quality)) {
+            throw new VideoNotReadyException("Rendition " + quality + " of video " + videoId + " is not available");
+        }
+        return segmentRepository.findByVideoIdAndQuality(artifactsOf(video), quality, Sort.by("segmentNumber"));
+    }
 
-        List<VideoSegment> segments = new ArrayList<>();
-        long videoDuration = savedVideo.getDuration();
-        int segmentNumber = 0;
+    /**
+     * The key frames of a READY video that have a thumbnail on a sprite sheet, in playback order, for building its
+     * seek-preview track.
+     *
+     * @throws VideoNotReadyException if the video is not READY or has no thumbnails
+     * @see #getReadableVideo
+     */
+    public Thumbnails getThumbnails(String videoId, UUID requesterId) {
+        Video video = getReadableVideo(videoId, requesterId);
+        if (video.getVideoStatus() != VideoStatus.READY) {
+            throw new VideoNotReadyException(videoId, video.getVideoStatus());
+        }
+        List<VideoFrame> frames = frameRepository.findByVideoId(artifactsOf(video), Sort.by("timeStamp", "id"))
+                .stream()
+                .filter(frame -> frame.getThumbnailS3Key() != null)
+                .toList();
+        if (frames.isEmpty()) {
+            throw new VideoNotReadyException("Video " + videoId + " has no thumbnails");
+        }
+        return new Thumbnails(video.getDuration(), frames);
+    }
 
-        for (long start = 0; start < videoDuration; start += segmentDuration) {
-            long end = Math.min(start + segmentDuration, videoDuration);
+    /**
+     * @param duration length of the video in seconds
+     */
+    public record Thumbnails(long duration, List<VideoFrame> frames) {
+    }
 
-            VideoSegment segment = createVideoSegment(savedVideo, start, end, segmentNumber);
-            segments.add(segment);
-            segmentNumber++;
+    /**
+     * One page of a video's segments of one rendition in playback order.
+     *
+     * @param quality rendition to list, or null for the best one stored
+     * @param cursor  {@code nextCursor} of the previous page, or null for the first page
+     * @see #getReadableVideo
+     */
+    public PageResponseDTO<VideoSegmentResponseDto> getSegments(String videoId, UUID requesterId, String quality,
+                                                                String cursor, int limit) {
+        Video video = getReadableVideo(videoId, requesterId);
+        if (quality == null) {
+            // videos segmented before the ladder have no renditions, their segments have no quality either
+            List<VideoRendition> available = renditionsOf(video);
+            quality = available.isEmpty() ? null : available.getLast().getQuality();
         }
+        int afterNumber = cursor == null ? -1 : parseCursor(cursor, () -> Integer.parseInt(cursor));
+        List<VideoSegment> segments =
+                segmentRepository.findByVideoIdAndQualityAndSegmentNumberGreaterThanOrderBySegmentNumber(
+                        artifactsOf(video), quality, afterNumber, PageRequest.ofSize(pageSize(limit)));
+
+        String nextCursor = segments.size() < pageSize(limit)
+                ? null
+                : String.valueOf(segments.getLast().getSegmentNumber());
+        return new PageResponseDTO<>(segmentDTOs(segments), nextCursor);
+    }
 
-        savedVideo.setSegments(segments);
-        videoRepository.save(savedVideo);
-        log.debug("Created {} segments for video ID: {}", segments.size(), savedVideo.getId());
+    /**
+     * One page of the key frames between two points of a video.
+     *
+     * @param from   first second of the range
+     * @param to     end of the range in seconds, or null for the end of the video
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     * @see #getReadableVideo
+     */
+    public PageResponseDTO<VideoFrameResponseDTO> getKeyFrames(String videoId, UUID requesterId, long from, Long to,
+                                                               String cursor, int limit) {
+        Video video = getReadableVideo(videoId, requesterId);
+        Long afterTimestamp = null;
+        String afterId = null;
+        if (cursor != null) {
+            // timestamp and id of the last frame returned
+            int separator = cursor.indexOf(':');
+            afterTimestamp = parseCursor(cursor, () -> Long.parseLong(cursor.substring(0, separator)));
+            afterId = cursor.substring(separator + 1);
+        }
+        List<VideoFrame> keyFrames = frameRepository.findRange(artifactsOf(video), from, to, afterTimestamp, afterId,
+                pageSize(limit));
+
+        String nextCursor = keyFrames.size() < pageSize(limit)
+                ? null
+                : keyFrames.getLast().getTimeStamp() + ":" + keyFrames.getLast().getId();
+        return new PageResponseDTO<>(frameDTOs(keyFrames), nextCursor);
     }
 
-    private VideoSegment createVideoSegment(Video savedVideo, long start, long end, int segmentNumber)
-            throws Exception {
+    // every page is signed as one batch, URLs of objects listed recently come from the cache
+    private List<VideoSegmentResponseDto> segmentDTOs(List<VideoSegment> segments) {
+        Map<String, String> urls = urlService.signAll(segmentsBucket,
+                segments.stream().map(VideoSegment::getSegmentS3Key).toList());
+        return segments.stream().map(segment -> VideoMapper.toSegmentDTO(segment, urls)).toList();
+    }
 
-        String segmentID = UUID.randomUUID().toString();
-        String segmentKey = "segment_" + segmentID + ".mp4";
+    private List<VideoFrameResponseDTO> frameDTOs(List<VideoFrame> keyFrames) {
+        Map<String, String> urls = urlService.signAll(framesBucket,
+                keyFrames.stream().map(VideoFrame::getFrameS3Key).toList());
+        return keyFrames.stream().map(frame -> VideoMapper.toFrameDTO(frame, urls)).toList();
+    }
+
+    private static int pageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static <T> T parseCursor(String cursor, Supplier<T> parser) {
+        try {
+            return parser.get();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static List<VideoRendition> renditionsOf(Video video) {
+        if (video.getRenditions() == null) {
+            return List.of();
+        }
+        return video.getRenditions().values().stream()
+                .sorted(Comparator.comparingLong(VideoRendition::getBandwidth))
+                .toList();
+    }
+
+    private static boolean isOwner(Video video, UUID requesterId) {
+        return requesterId != null && requesterId.equals(video.getUserID());
+    }
+
+    // segments and frames of a video that reuses another's artifacts are stored under that video
+    private static String artifactsOf(Video video) {
+        return video.getArtifactsVideoId() != null ? video.getArtifactsVideoId() : video.getId();
+    }
+
+    /**
+     * Mark a video FAILED once one of its jobs has run out of attempts.
+     */
+    public void markVideoFailed(String videoId) {
+        videoRepository.updateStatus(videoId, VideoStatus.FAILED);
+        videoCache.evict(videoId);
+        // Consider publishing an event or notification here
+    }
 
-        // Create temporary file for the segment
-        File tempSegmentFile = File.createTempFile(segmentID, ".mp4");
-        tempSegmentFile.deleteOnExit();
+    private Video findVisibleVideo(String videoId) {
+        return videoCache.get(videoId, videoRepository::findVisible)
+                .orElseThrow(() -> new VideoNotFoundException(videoId));
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffmpeg",
-                "-i", getVideoPath(savedVideo),
-                "-ss", String.valueOf(start),
-                "-t", String.valueOf(end - start),
-                "-c", "copy",
-                "-avoid_negative_ts", "make_zero",
-                tempSegmentFile.getAbsolutePath()
-        );
+    private Video findVideo(String videoId) {
+        return videoRepository.findById(videoId)
+                .orElseThrow(() -> new VideoProcessingException("Video not found: " + videoId));
+    }
 
-        Process process = pb.start();
-        int exitCode = process.waitFor();
+    private void extractVideoMetadata(Video savedVideo) throws Exception {
+        log.debug("Extracting metadata for video: {}", savedVideo.getOriginalFilename());
 
-        if (exitCode != 0) {
-            throw new VideoProcessingException("FFmpeg segmentation failed for segment " + segmentNumber +
-                    " with exit code: " + exitCode);
+        MediaMetadata metadata;
+        try (VideoInput input = openInput(savedVideo)) {
+            metadata = mediaProbe.probe(input.location());
         }
+        savedVideo.setMetadata(metadata);
+        savedVideo.setDuration((long) metadata.getDuration());
+        videoRepository.updateMetadata(savedVideo.getId(), metadata);
+        videoCache.evict(savedVideo.getId());
+        log.debug("Video duration set to: {} seconds, {} key frames", metadata.getDuration(),
+                metadata.getKeyframeCount());
+    }
 
-        // Upload segment to minIO
-        try (InputStream inputStream = new FileInputStream(tempSegmentFile)) {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(segmentsBucket)
-                            .object(segmentKey)
-                            .stream(inputStream, tempSegmentFile.length(), -1)
-                            .contentType("video/mp4")
-                            .build()
-            );
+    private void segmentVideo(Video savedVideo, Rendition rendition) throws Exception {
+        timed(savedVideo, "segment", rendition.getQuality(), () -> {
+            segmentRendition(savedVideo, rendition);
+            return null;
+        });
+    }
+
+    private void segmentRendition(Video savedVideo, Rendition rendition) throws Exception {
+        log.debug("Starting video segmentation for video ID: {} rendition {}", savedVideo.getId(), rendition);
+
+        List<CompletableFuture<VideoSegment>> uploads = new ArrayList<>();
+        ScratchSpace.Workspace workspace = scratchSpace.open(savedVideo.getId(), "segments_" + rendition.getQuality());
+        Path outputDirectory = workspace.directory();
+
+        // every rendition of a video is cut at the same points, on the source key frames when it has a fixed GOP
+        double duration = Rendition.segmentDuration(segmentDuration, savedVideo.getMetadata());
+        try (VideoInput input = openInput(savedVideo)) {
+            // One ffmpeg pass over the input, segments are uploaded on the upload stage while ffmpeg keeps cutting
+            segmentationEngine.segment(input.location(), outputDirectory, duration, segmentFormat,
+                    rendition.codecOptions(duration, savedVideo.getMetadata()),
+                    segmentFile -> uploads.add(pipelineScheduler.submitUpload(
+                            () -> createVideoSegment(savedVideo, segmentFile, rendition))));
+        } finally {
+            // uploads still read from the directory, let them finish even when ffmpeg failed
+            drain(uploads);
+            workspace.close();
         }
 
+        List<VideoSegment> segments = awaitUploads(uploads);
+
+        List<String> replaced = timed(savedVideo, "save", rendition.getQuality(), () -> {
+            List<String> replacedKeys = videoRepository.replaceSegments(savedVideo.getId(), rendition.getQuality(),
+                    segments);
+            videoRepository.putRendition(savedVideo.getId(), toRendition(rendition, segments));
+            return replacedKeys;
+        });
+        // a retried task stored its segments under new keys, nothing reads the earlier attempt's any more
+        deleteReplaced(savedVideo, segmentsBucket, replaced);
+        videoCache.evict(savedVideo.getId());
+        log.debug("Created {} {} segments for video ID: {}", segments.size(), rendition.getQuality(),
+                savedVideo.getId());
+    }
+
+    static VideoRendition toRendition(Rendition rendition, List<VideoSegment> segments) {
+        long peak = 0;
+        long totalBytes = 0;
+        long totalMs = 0;
+        for (VideoSegment segment : segments) {
+            long durationMs = Math.max(1, segment.getEndTimeMs() - segment.getStartTimeMs());
+            peak = Math.max(peak, segment.getFileSize() * 8 * 1000 / durationMs);
+            totalBytes += segment.getFileSize();
+            totalMs += durationMs;
+        }
+
+        VideoRendition videoRendition = new VideoRendition();
+        videoRendition.setQuality(rendition.getQuality());
+        videoRendition.setHeight(rendition.getHeight());
+        videoRendition.setBandwidth(peak);
+        videoRendition.setAverageBandwidth(totalMs == 0 ? 0 : totalBytes * 8 * 1000 / totalMs);
+        videoRendition.setSegmentCount(segments.size());
+        videoRendition.setCompletedAt(LocalDateTime.now());
+        return videoRendition;
+    }
+
+    private VideoSegment createVideoSegment(Video savedVideo, SegmentationEngine.SegmentFile segmentFile,
+                                            Rendition rendition) throws Exception {
+        String segmentID = UUID.randomUUID().toString();
+        String segmentKey = "segment_" + segmentID + "." + segmentFormat.getExtension();
+
+        // Upload segment to minIO
+        long fileSize = uploadFile(savedVideo, "segment", segmentsBucket, segmentKey, segmentFile.file(),
+                segmentFormat.getContentType());
+
         VideoSegment videoSegment = new VideoSegment();
         videoSegment.setSegmentID(segmentID);
-        videoSegment.setSegmentNumber(segmentNumber);
+        videoSegment.setSegmentNumber(segmentFile.segmentNumber());
         videoSegment.setStatus(SegmentStatus.READY); // Updated to READY after successful processing
         videoSegment.setSegmentS3Key(segmentKey);
-        videoSegment.setStartTime(start);
-        videoSegment.setEndTime(end);
-        videoSegment.setFileSize(tempSegmentFile.length());
+        videoSegment.setFormat(segmentFormat);
+        videoSegment.setQuality(rendition.getQuality());
+        videoSegment.setStartTime((long) segmentFile.startTime());
+        videoSegment.setEndTime((long) Math.ceil(segmentFile.endTime()));
+        videoSegment.setStartTimeMs(Math.round(segmentFile.startTime() * 1000));
+        videoSegment.setEndTimeMs(Math.round(segmentFile.endTime() * 1000));
+        videoSegment.setFileSize(fileSize);
         videoSegment.setCreatedAt(LocalDateTime.now());
 
         return videoSegment;
     }
 
-    private void extractKeyFrames(Video savedVideo) throws Exception {
+    private void extractKeyFrames(Video savedVideo, long rangeStart, Long rangeEnd) throws Exception {
+        timed(savedVideo, "frames", rangeStart + "-" + (rangeEnd == null ? "end" : rangeEnd), () -> {
+            extractRange(savedVideo, rangeStart, rangeEnd);
+            return null;
+        });
+    }
+
+    private void extractRange(Video savedVideo, long rangeStart, Long rangeEnd) throws Exception {
         log.debug("Starting key frame extraction for video ID: {}", savedVideo.getId());
 
-        List<VideoFrame> keyFrames = new ArrayList<>();
-        long videoDuration = savedVideo.getDuration();
-        int frameNumber = 0;
+        List<CompletableFuture<VideoFrame>> uploads = new ArrayList<>();
+        List<SpriteSheetBuilder.Tile> tiles = new ArrayList<>();
+        List<CompletableFuture<String>> sheetUploads = new ArrayList<>();
+        ScratchSpace.Workspace workspace = scratchSpace.open(savedVideo.getId(),
+                "frames_" + rangeStart + "-" + (rangeEnd == null ? "end" : rangeEnd));
+        Path outputDirectory = workspace.directory();
+
+        try (VideoInput input = openInput(savedVideo)) {
+            Path spriteDirectory = Files.createDirectory(outputDirectory.resolve("sprites"));
+            // thumbnails are served from a few sprite sheets instead of one object per frame
+            SpriteSheetBuilder sprites = new SpriteSheetBuilder(spriteDirectory, spriteColumns, spriteRows,
+                    spriteTileWidth,
+                    sheet -> sheetUploads.add(pipelineScheduler.submitUpload(() -> uploadSprite(savedVideo, sheet))));
+
+            // One decode pass for every thumbnail in the range, frames are uploaded while ffmpeg keeps decoding
+            frameExtractionEngine.extract(input.location(), outputDirectory, frameMode, frameInterval,
+                    sceneThreshold, rangeStart, rangeEnd == null ? 0 : rangeEnd,
+                    frameFile -> {
+                        // tiled before the upload, which deletes the file
+                        tiles.add(sprites.add(frameFile.file()));
+                        uploads.add(pipelineScheduler.submitUpload(() -> createVideoFrame(savedVideo, frameFile)));
+                    });
+            sprites.finish();
+        } finally {
+            drain(uploads);
+            drain(sheetUploads);
+            workspace.close();
+        }
 
-        for (long timestamp = 0; timestamp < videoDuration; timestamp += frameInterval) {
-            VideoFrame frame = createVideoFrame(savedVideo, timestamp, frameNumber);
-            keyFrames.add(frame);
-            frameNumber++;
+        List<VideoFrame> keyFrames = awaitUploads(uploads);
+        List<String> sheetKeys = awaitUploads(sheetUploads);
+        for (int i = 0; i < keyFrames.size(); i++) {
+            SpriteSheetBuilder.Tile tile = tiles.get(i);
+            VideoFrame frame = keyFrames.get(i);
+            frame.setThumbnailS3Key(sheetKeys.get(tile.sheet()));
+            frame.setThumbnailX(tile.x());
+            frame.setThumbnailY(tile.y());
+            frame.setThumbnailWidth(tile.width());
+            frame.setThumbnailHeight(tile.height());
         }
 
-        savedVideo.setKeyFrames(keyFrames);
-        videoRepository.save(savedVideo);
+        List<String> replaced = timed(savedVideo, "save", "frames",
+                () -> videoRepository.replaceKeyFrames(savedVideo.getId(), rangeStart, rangeEnd, keyFrames));
+        deleteReplaced(savedVideo, framesBucket, replaced);
         log.debug("Extracted {} key frames for video ID: {}", keyFrames.size(), savedVideo.getId());
     }
 
-    private VideoFrame createVideoFrame(Video savedVideo, long timestamp, int frameNumber) throws Exception {
+    private VideoFrame createVideoFrame(Video savedVideo, FrameExtractionEngine.FrameFile frameFile)
+            throws Exception {
         String frameID = UUID.randomUUID().toString();
         String frameKey = "frame_" + frameID + ".jpg";
 
-        // Create temporary file for the frame
-        File tempFrameFile = File.createTempFile(frameID, ".mp4");
-        tempFrameFile.deleteOnExit();
+        // Upload to minIO
+        long fileSize = uploadFile(savedVideo, "frame", framesBucket, frameKey, frameFile.file(), "image/jpeg");
 
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffmpeg",
-                "-i", getVideoPath(savedVideo),
-                "-ss", String.valueOf(timestamp),
-                "-vframes", "1",
-                "-q:v", "2",
-                tempFrameFile.getAbsolutePath()
-        );
+        VideoFrame videoFrame = new VideoFrame();
+        videoFrame.setFrameID(frameID);
+        videoFrame.setFrameNumber((long) frameFile.frameNumber());
+        videoFrame.setTimeStamp((long) frameFile.timestamp());
+        videoFrame.setIsKeyFrame(frameFile.keyFrame());
+        videoFrame.setFrameType(frameFile.frameType() + "-frame");
+        videoFrame.setFrameS3Key(frameKey);
+        videoFrame.setFileSize(fileSize);
+        videoFrame.setWidth(frameFile.width());
+        videoFrame.setHeight(frameFile.height());
+        videoFrame.setCreatedAt(LocalDateTime.now());
 
-        Process process = pb.start();
-        int exitCode = process.waitFor();
+        return videoFrame;
+    }
 
-        if (exitCode != 0) {
-            throw new VideoProcessingException("FFmpeg frame extraction failed for frame " + frameNumber +
-                    " at timestamp " + timestamp + " with exit code: " + exitCode);
+    private String uploadSprite(Video savedVideo, SpriteSheetBuilder.SpriteSheet sheet) throws Exception {
+        String spriteKey = "sprite_" + UUID.randomUUID() + ".jpg";
+        uploadFile(savedVideo, "sprite", framesBucket, spriteKey, sheet.file(), "image/jpeg");
+        return spriteKey;
+    }
+
+    private void deleteReplaced(Video savedVideo, String bucket, List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            objectStore.delete(bucket, keys);
+        } catch (Exception e) {
+            // an orphaned object only costs storage, the documents already point at the new ones
+            log.warn("Failed to delete {} replaced objects of video ID: {} from {}", keys.size(), savedVideo.getId(),
+                    bucket, e);
         }
+    }
 
-        // Upload to minIO
+    /**
+     * Put a processing output into the object store, retrying transient failures, and delete the local file.
+     *
+     * @param kind segment, frame or sprite, for the upload metrics
+     * @return the size of the file
+     */
+    private long uploadFile(Video savedVideo, String kind, String bucket, String key, Path file, String contentType)
+            throws Exception {
+        return artifactUploader.upload(kind, PipelineMetrics.sizeBucket(savedVideo.getFileSize()), bucket, key, file,
+                contentType);
+    }
 
-        try(InputStream inputStream = new FileInputStream(tempFrameFile)) {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(framesBucket)
-                            .object(frameKey)
-                            .stream(inputStream, tempFrameFile.length(), -1)
-                            .contentType("image/jpeg")
-                            .build()
-            );
+    /**
+     * Run a stage of a video, timing it and adding it to the video's timeline.
+     *
+     * @param detail rendition or range the stage works on, null for the whole video
+     */
+    private <T> T timed(Video savedVideo, String stage, String detail, Callable<T> work) throws Exception {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = work.call();
+            success = true;
+            return result;
+        } finally {
+            recordStage(savedVideo, stage, detail, startedAt, System.nanoTime() - start, success);
         }
+    }
 
+    private void recordStage(Video savedVideo, String stage, String detail, LocalDateTime startedAt, long nanos,
+                             boolean success) {
+        pipelineMetrics.recordStage(stage, PipelineMetrics.sizeBucket(savedVideo.getFileSize()), success, nanos);
 
-        VideoFrame videoFrame = new VideoFrame();
-        videoFrame.setFrameID(frameID);
-        videoFrame.setFrameNumber((long) frameNumber); // Fixed: using frameNumber instead of fileSize
-        videoFrame.setTimeStamp(timestamp);
-        videoFrame.setIsKeyFrame(true);
-        videoFrame.setFrameType("I-frame");
-        videoFrame.setFrameS3Key(frameKey);
-        videoFrame.setFileSize(tempFrameFile.length());
-        videoFrame.setCreatedAt(LocalDateTime.now());
+        ProcessingStep step = new ProcessingStep();
+        step.setStage(stage);
+        step.setDetail(detail);
+        step.setStartedAt(startedAt);
+        step.setDurationMs(TimeUnit.NANOSECONDS.toMillis(nanos));
+        step.setSuccess(success);
+        try {
+            videoRepository.appendTimeline(savedVideo.getId(), step);
+        } catch (RuntimeException e) {
+            // the timeline is for analysis, losing a step must not fail the video
+            log.warn("Failed to record {} step of video ID: {}", stage, savedVideo.getId(), e);
+        }
+    }
 
-        return videoFrame;
+    private void drain(List<? extends CompletableFuture<?>> uploads) {
+        CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+    }
+
+    /**
+     * Results of finished uploads in submission order.
+     *
+     * @throws VideoProcessingException with the first upload failure
+     */
+    private <T> List<T> awaitUploads(List<CompletableFuture<T>> uploads) {
+        try {
+            return uploads.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            throw new VideoProcessingException("Failed to upload processing output", e.getCause());
+        }
     }
 
 //    private long getObjectSize(String bucket, String objectKey) throws Exception {
@@ -379,8 +1035,9 @@ public class VideoService implements DisposableBean {
 //        return "minio/" + framesBucket + "/" + frameKey;
 //    }
 
-    private String getVideoPath(Video savedVideo) {
-        return "minio/" + videosBucket + "/" + savedVideo.getOriginalFilename();
+    private VideoInput openInput(Video savedVideo) throws Exception {
+        // the stored original, shared with other uploads of the same content
+        return videoInputResolver.resolve(videosBucket, savedVideo.getVideoS3Key());
     }
 
 //    private String getSegmentPath(String segmentKey) {
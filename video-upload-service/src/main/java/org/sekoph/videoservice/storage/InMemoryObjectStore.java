@@ -0,0 +1,101 @@
+package org.sekoph.videoservice.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Objects on the heap, for tests and load runs of the pipeline without MinIO ({@code video.storage.backend=memory}).
+ * Puts and gets complete before they return. Nothing survives a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "video.storage.backend", havingValue = "memory")
+public class InMemoryObjectStore implements ObjectStore {
+
+    private final Map<String, StoredBytes> objects = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    public InMemoryObjectStore() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryObjectStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String bucket, String key, Path file, String contentType) {
+        try {
+            store(bucket, key, Files.readAllBytes(file), contentType);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void put(String bucket, String key, InputStream data, String contentType, long partSize)
+            throws IOException {
+        store(bucket, key, data.readAllBytes(), contentType);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> get(String bucket, String key, long offset, long length) {
+        StoredBytes object = objects.get(bucket + "/" + key);
+        if (object == null) {
+            return CompletableFuture.failedFuture(new NoSuchFileException(bucket + "/" + key));
+        }
+        int start = (int) Math.min(offset, object.data().length);
+        int end = length < 0 ? object.data().length : (int) Math.min(object.data().length, offset + length);
+        return CompletableFuture.completedFuture(new ByteArrayInputStream(object.data(), start, end - start));
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String bucket, String key) {
+        return Optional.ofNullable(objects.get(bucket + "/" + key))
+                .map(object -> new ObjectInfo(bucket, key, object.data().length, object.etag(),
+                        object.lastModified(), object.contentType()));
+    }
+
+    @Override
+    public void delete(String bucket, List<String> keys) {
+        for (String key : keys) {
+            objects.remove(bucket + "/" + key);
+        }
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    private void store(String bucket, String key, byte[] data, String contentType) {
+        objects.put(bucket + "/" + key, new StoredBytes(data, md5(data), clock.millis(), contentType));
+    }
+
+    // the ETag MinIO gives an object stored in one part
+    private static String md5(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredBytes(byte[] data, String etag, long lastModified, String contentType) {
+    }
+}
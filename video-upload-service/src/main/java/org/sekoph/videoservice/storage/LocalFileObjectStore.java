@@ -0,0 +1,235 @@
+package org.sekoph.videoservice.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Objects as files on local disk, one directory per bucket under {@code video.storage.local-root}, for single-node
+ * setups and scratch-tier artifacts ({@code video.storage.backend=local}).
+ * <p>
+ * Objects are written next to their final name and moved into place, so a reader never sees a partial object. Reads
+ * map the file into memory a window at a time instead of copying it through a buffer. The content type is kept in a
+ * user-defined file attribute where the file system supports them, and guessed from the name otherwise.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "video.storage.backend", havingValue = "local")
+public class LocalFileObjectStore implements ObjectStore, AutoCloseable {
+
+    private static final String CONTENT_TYPE_ATTRIBUTE = "content-type";
+
+    private final Path root;
+    // file IO blocks, one virtual thread per put or get
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LocalFileObjectStore(@Value("${video.storage.local-root:${java.io.tmpdir}/video-objects}") Path root)
+            throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+        log.info("Storing objects under {}", this.root);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String bucket, String key, Path file, String contentType) {
+        return async(() -> {
+            try (InputStream in = Files.newInputStream(file)) {
+                write(bucket, key, in, contentType);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void put(String bucket, String key, InputStream data, String contentType, long partSize)
+            throws IOException {
+        write(bucket, key, data, contentType);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> get(String bucket, String key, long offset, long length) {
+        return async(() -> {
+            FileChannel channel = FileChannel.open(resolve(bucket, key), StandardOpenOption.READ);
+            long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+            return new MappedInputStream(channel, offset, end, MappedInputStream.WINDOW_SIZE);
+        });
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String bucket, String key) throws IOException {
+        Path file = resolve(bucket, key);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        // changes whenever the file is replaced, like nginx's
+        String etag = Long.toHexString(lastModified) + "-" + Long.toHexString(attributes.size());
+        return Optional.of(new ObjectInfo(bucket, key, attributes.size(), etag, lastModified, contentType(file)));
+    }
+
+    @Override
+    public void delete(String bucket, List<String> keys) {
+        int failed = 0;
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(resolve(bucket, key));
+            } catch (IOException e) {
+                log.error("Failed to delete {} from {}", key, bucket, e);
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            throw new VideoProcessingException("Failed to delete " + failed + " objects from " + bucket);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> async(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // completed with the exception itself rather than a CompletionException around it
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void write(String bucket, String key, InputStream data, String contentType) throws IOException {
+        Path file = resolve(bucket, key);
+        Files.createDirectories(file.getParent());
+        Path partial = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            Files.copy(data, partial);
+            if (contentType != null) {
+                UserDefinedFileAttributeView view = Files.getFileAttributeView(partial,
+                        UserDefinedFileAttributeView.class);
+                if (view != null && Files.getFileStore(partial).supportsFileAttributeView(
+                        UserDefinedFileAttributeView.class)) {
+                    view.write(CONTENT_TYPE_ATTRIBUTE, StandardCharsets.UTF_8.encode(contentType));
+                }
+            }
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private static String contentType(Path file) throws IOException {
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        if (view != null && Files.getFileStore(file).supportsFileAttributeView(UserDefinedFileAttributeView.class)
+                && view.list().contains(CONTENT_TYPE_ATTRIBUTE)) {
+            ByteBuffer value = ByteBuffer.allocate(view.size(CONTENT_TYPE_ATTRIBUTE));
+            view.read(CONTENT_TYPE_ATTRIBUTE, value);
+            return StandardCharsets.UTF_8.decode(value.flip()).toString();
+        }
+        return Files.probeContentType(file);
+    }
+
+    /**
+     * The file of an object. Keys may contain slashes but must stay inside their bucket.
+     */
+    private Path resolve(String bucket, String key) {
+        Path directory = root.resolve(bucket).normalize();
+        Path file = directory.resolve(key).normalize();
+        if (!directory.getParent().equals(root) || !file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("Invalid object " + bucket + "/" + key);
+        }
+        return file;
+    }
+
+    /**
+     * Reads a range of a file through memory mappings of at most a window of bytes each, so a range of any length is
+     * read without mapping all of it at once. Closing the stream closes the file.
+     */
+    static final class MappedInputStream extends InputStream {
+
+        static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long end;
+        private final long windowSize;
+        private long position;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel, long start, long end, long windowSize) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextWindow() ? window.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return window == null ? 0 : window.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            long size = Math.min(windowSize, end - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += size;
+            return true;
+        }
+    }
+}
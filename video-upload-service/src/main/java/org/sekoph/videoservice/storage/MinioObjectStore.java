@@ -0,0 +1,303 @@
+package org.sekoph.videoservice.storage;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.UploadObjectArgs;
+import io.minio.UploadPartResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Objects in MinIO, through the async client so puts and gets do not hold a thread while waiting on the network.
+ * <p>
+ * The configured buckets are created once the application is ready, and every bucket is remembered once it is known
+ * to exist, so uploads do not pay for a bucket lookup each. A bucket deleted behind the service's back is not
+ * recreated until a restart.
+ * <p>
+ * Files from {@code video.storage.multipart-threshold} up are sent as multipart uploads whose parts go out in
+ * parallel, each read straight from the file, where the client would send them one after the other.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "video.storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioObjectStore implements ObjectStore {
+
+    // answered by a MinIO that is busy, restarting or briefly unable to reach its drives
+    private static final Set<String> TRANSIENT_ERRORS = Set.of("InternalError", "SlowDown", "ServiceUnavailable",
+            "RequestTimeout", "XMinioServerNotInitialized", "XMinioReadQuorum", "XMinioWriteQuorum");
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final List<String> buckets;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int partConcurrency;
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param partSize        size of the parts of a parallel multipart upload, at least 5MB
+     * @param partConcurrency parts of one upload in flight at a time
+     */
+    public MinioObjectStore(MinioAsyncClient minioAsyncClient,
+                            @Value("${minio.bucket.videos}") String videosBucket,
+                            @Value("${minio.bucket.segments}") String segmentsBucket,
+                            @Value("${minio.bucket.frames}") String framesBucket,
+                            @Value("${video.storage.multipart-threshold:64MB}") DataSize multipartThreshold,
+                            @Value("${video.storage.multipart-part-size:16MB}") DataSize partSize,
+                            @Value("${video.storage.multipart-concurrency:4}") int partConcurrency) {
+        this.minioAsyncClient = minioAsyncClient;
+        this.buckets = List.of(videosBucket, segmentsBucket, framesBucket);
+        this.multipartThreshold = multipartThreshold.toBytes();
+        this.partSize = partSize.toBytes();
+        this.partConcurrency = partConcurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createBuckets() {
+        for (String bucket : buckets) {
+            try {
+                ObjectStore.await(ensureBucket(bucket));
+            } catch (Exception e) {
+                // checked again on the first upload to it
+                log.warn("Failed to create bucket {}", bucket, e);
+            }
+        }
+        log.info("Buckets {} ready", knownBuckets);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String bucket, String key, Path file, String contentType) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (size >= multipartThreshold) {
+            return ensureBucket(bucket).thenCompose(ready -> putParts(bucket, key, file, size, contentType));
+        }
+        return ensureBucket(bucket)
+                .thenCompose(ready -> call(() -> minioAsyncClient.uploadObject(UploadObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(key)
+                        .filename(file.toString())
+                        .contentType(contentType)
+                        .build())))
+                .thenApply(response -> null);
+    }
+
+    /**
+     * Streamed as a multipart upload; MinIO aborts it if reading the data fails.
+     *
+     * @param partSize size of each part, between 5MB and 5GB; objects can have up to 10000 parts
+     */
+    @Override
+    public void put(String bucket, String key, InputStream data, String contentType, long partSize)
+            throws Exception {
+        ObjectStore.await(ensureBucket(bucket));
+        ObjectStore.await(minioAsyncClient.putObject(PutObjectArgs.builder()
+                .bucket(bucket)
+                .object(key)
+                .stream(data, -1, partSize)
+                .contentType(contentType)
+                .build()));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> get(String bucket, String key, long offset, long length) {
+        GetObjectArgs.Builder args = GetObjectArgs.builder().bucket(bucket).object(key).offset(offset);
+        if (length >= 0) {
+            args.length(length);
+        }
+        return call(() -> minioAsyncClient.getObject(args.build())).thenApply(response -> response);
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String bucket, String key) throws Exception {
+        StatObjectResponse stat;
+        try {
+            stat = ObjectStore.await(minioAsyncClient.statObject(StatObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(key)
+                    .build()));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        return Optional.of(new ObjectInfo(bucket, key, stat.size(), stat.etag(),
+                stat.lastModified().toInstant().toEpochMilli(), stat.contentType()));
+    }
+
+    /**
+     * Deleted in batches of up to 1000 keys per request.
+     */
+    @Override
+    public void delete(String bucket, List<String> keys) throws Exception {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Iterable<Result<DeleteError>> results = minioAsyncClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(bucket)
+                        .objects(keys.stream().map(DeleteObject::new).toList())
+                        .build()
+        );
+        // the deletes are only sent while the results are iterated
+        int failed = 0;
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            log.error("Failed to delete {} from {}: {}", error.objectName(), bucket, error.message());
+            failed++;
+        }
+        if (failed > 0) {
+            throw new VideoProcessingException("Failed to delete " + failed + " objects from " + bucket);
+        }
+    }
+
+    /**
+     * Network errors, 5xx responses and MinIO error codes meaning the server is overloaded or not ready.
+     */
+    @Override
+    public boolean isTransient(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (cause instanceof ErrorResponseException error) {
+            return TRANSIENT_ERRORS.contains(error.errorResponse().code()) || error.response().code() >= 500;
+        }
+        return cause instanceof ServerException || ObjectStore.super.isTransient(cause);
+    }
+
+    /**
+     * Upload a file as {@link #partConcurrency} chains of parts, each chain sending its next part once the previous
+     * one is stored. The upload is aborted if any part fails, so no parts are left behind.
+     */
+    private CompletableFuture<Void> putParts(String bucket, String key, Path file, long size, String contentType) {
+        int partCount = (int) Math.ceilDiv(size, partSize);
+        return call(() -> minioAsyncClient.createMultipartUploadAsync(bucket, null, key,
+                ImmutableMultimap.of("Content-Type", contentType), null))
+                .thenCompose(created -> {
+                    String uploadId = created.result().uploadId();
+                    Part[] parts = new Part[partCount];
+                    List<CompletableFuture<Void>> chains = new ArrayList<>();
+                    for (int first = 0; first < Math.min(partConcurrency, partCount); first++) {
+                        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+                        for (int index = first; index < partCount; index += partConcurrency) {
+                            int partIndex = index;
+                            chain = chain.thenCompose(previous -> putPart(bucket, key, uploadId, file, size, partIndex)
+                                    .thenAccept(etag -> parts[partIndex] = new Part(partIndex + 1, etag)));
+                        }
+                        chains.add(chain);
+                    }
+                    return CompletableFuture.allOf(chains.toArray(new CompletableFuture[0]))
+                            .thenCompose(uploaded -> call(() -> minioAsyncClient.completeMultipartUploadAsync(bucket,
+                                    null, key, uploadId, parts, null, null)))
+                            .<Void>thenApply(response -> null)
+                            .whenComplete((done, e) -> {
+                                if (e != null) {
+                                    abort(bucket, key, uploadId);
+                                }
+                            });
+                });
+    }
+
+    /**
+     * Send one part, read from its own handle on the file while the request is written.
+     *
+     * @return the ETag of the part
+     */
+    private CompletableFuture<String> putPart(String bucket, String key, String uploadId, Path file, long size,
+                                              int partIndex) {
+        long offset = partIndex * partSize;
+        long length = Math.min(partSize, size - offset);
+        RandomAccessFile data;
+        try {
+            data = new RandomAccessFile(file.toFile(), "r");
+            data.seek(offset);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return call(() -> minioAsyncClient.uploadPartAsync(bucket, null, key, data, length, uploadId, partIndex + 1,
+                null, null))
+                .whenComplete((response, e) -> {
+                    try {
+                        data.close();
+                    } catch (IOException closeFailure) {
+                        log.warn("Failed to close {}", file, closeFailure);
+                    }
+                })
+                .thenApply(UploadPartResponse::etag);
+    }
+
+    private void abort(String bucket, String key, String uploadId) {
+        call(() -> minioAsyncClient.abortMultipartUploadAsync(bucket, null, key, uploadId, null, null))
+                .whenComplete((aborted, e) -> {
+                    if (e != null) {
+                        log.warn("Failed to abort multipart upload {} of {}", uploadId, key, e);
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> ensureBucket(String bucket) {
+        if (knownBuckets.contains(bucket)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return call(() -> minioAsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()))
+                .thenCompose(exists -> exists
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : call(() -> minioAsyncClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()))
+                        .exceptionally(e -> {
+                            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                            // created by a concurrent upload or another instance in the meantime
+                            if (cause instanceof ErrorResponseException error
+                                    && "BucketAlreadyOwnedByYou".equals(error.errorResponse().code())) {
+                                return null;
+                            }
+                            throw new CompletionException(cause);
+                        }))
+                .thenRun(() -> knownBuckets.add(bucket));
+    }
+
+    /**
+     * The async client still throws some failures, like an unreadable file, before it returns a future.
+     */
+    private static <T> CompletableFuture<T> call(Callable<CompletableFuture<T>> request) {
+        try {
+            return request.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.sekoph.videoservice.storage;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Where originals, segments and frames are kept. {@link MinioObjectStore} is the default, {@link LocalFileObjectStore}
+ * keeps objects on local disk and {@link InMemoryObjectStore} on the heap, for tests and load runs without MinIO
+ * ({@code video.storage.backend}).
+ * <p>
+ * Presigned URLs and multipart uploads spread over several requests are MinIO features and stay on the MinIO client,
+ * see {@code PresignedUrlService} and {@code MultipartUploads}.
+ */
+public interface ObjectStore {
+
+    /**
+     * Store a local file. The file is left in place.
+     *
+     * @return completes once the object is stored
+     */
+    CompletableFuture<Void> put(String bucket, String key, Path file, String contentType);
+
+    /**
+     * Store data of unknown length, read until its end. Reading happens on the calling thread, as the data usually
+     * comes from a request body.
+     *
+     * @param partSize how much of the data is held in memory at a time, where the backend buffers
+     * @throws Exception if reading the data or storing it fails
+     */
+    void put(String bucket, String key, InputStream data, String contentType, long partSize) throws Exception;
+
+    /**
+     * Open a range of an object.
+     *
+     * @param offset first byte to read
+     * @param length number of bytes to read, or -1 to read until the end
+     * @return completes with the data, to be closed by the caller
+     */
+    CompletableFuture<InputStream> get(String bucket, String key, long offset, long length);
+
+    /**
+     * Open a whole object.
+     */
+    default CompletableFuture<InputStream> get(String bucket, String key) {
+        return get(bucket, key, 0, -1);
+    }
+
+    /**
+     * Look up an object.
+     *
+     * @return empty if there is no such object
+     */
+    Optional<ObjectInfo> stat(String bucket, String key) throws Exception;
+
+    /**
+     * Delete objects in as few requests as the backend allows.
+     *
+     * @param keys keys to delete, missing objects are ignored
+     * @throws Exception if any object could not be deleted
+     */
+    void delete(String bucket, List<String> keys) throws Exception;
+
+    /**
+     * Whether a failed call may succeed if it is tried again. IO errors are, except for missing local files.
+     */
+    default boolean isTransient(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        return cause instanceof IOException
+                && !(cause instanceof NoSuchFileException || cause instanceof FileNotFoundException);
+    }
+
+    /**
+     * Wait for a put or get, rethrowing the exception it failed with.
+     */
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A stored object.
+     *
+     * @param etag         entity tag without quotes
+     * @param lastModified last modification time in epoch milliseconds
+     * @param contentType  MIME type given when the object was stored, null if unknown
+     */
+    record ObjectInfo(String bucket, String key, long size, String etag, long lastModified, String contentType) {
+    }
+}
@@ -0,0 +1,60 @@
+package org.sekoph.videoservice.minIO;
+
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.exception.UploadTooLargeException;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestInputStreamTest {
+
+    @Test
+    void sniffsTheFormatWithoutConsumingTheHeader() throws Exception {
+        byte[] video = mp4(1000);
+
+        IngestInputStream ingest = IngestInputStream.open(new ByteArrayInputStream(video), Long.MAX_VALUE);
+        byte[] read = ingest.readAllBytes();
+
+        assertEquals(Optional.of(ContainerFormat.MP4), ingest.getFormat());
+        assertArrayEquals(video, read);
+        assertEquals(video.length, ingest.getBytesRead());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(video)),
+                ingest.getSha256());
+    }
+
+    @Test
+    void recognisesContainersByContent() {
+        assertEquals(Optional.of(ContainerFormat.MOV), ContainerFormat.sniff(
+                "\0\0\0\u0014ftypqt  \0\0\0\0".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(Optional.of(ContainerFormat.MKV), ContainerFormat.sniff(
+                new byte[]{0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, 0, 0, 0, 0}));
+        assertEquals(Optional.of(ContainerFormat.AVI), ContainerFormat.sniff(
+                "RIFF\0\0\0\0AVI LIST".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(Optional.empty(), ContainerFormat.sniff("not a video at all".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Optional.empty(), ContainerFormat.sniff(new byte[0]));
+    }
+
+    @Test
+    void stopsReadingPastTheSizeLimit() throws IOException {
+        IngestInputStream ingest = IngestInputStream.open(new ByteArrayInputStream(mp4(1000)), 500);
+
+        assertThrows(UploadTooLargeException.class, ingest::readAllBytes);
+    }
+
+    private static byte[] mp4(int size) {
+        byte[] video = new byte[size];
+        byte[] header = "\0\0\0\u0018ftypisom".getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(header, 0, video, 0, header.length);
+        for (int i = header.length; i < size; i++) {
+            video[i] = (byte) i;
+        }
+        return video;
+    }
+}
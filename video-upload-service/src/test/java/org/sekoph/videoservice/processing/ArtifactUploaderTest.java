@@ -0,0 +1,75 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sekoph.videoservice.storage.InMemoryObjectStore;
+import org.sekoph.videoservice.storage.ObjectStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ArtifactUploaderTest {
+
+    @TempDir
+    Path dir;
+
+    private ObjectStore objectStore;
+    private SimpleMeterRegistry registry;
+    private ArtifactUploader uploader;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectStore = spy(new InMemoryObjectStore());
+        registry = new SimpleMeterRegistry();
+        uploader = new ArtifactUploader(objectStore, new PipelineMetrics(registry), 3, 1, 10);
+        file = Files.write(dir.resolve("segment.ts"), new byte[100]);
+    }
+
+    @Test
+    void transientFailuresAreRetriedAndTheFileDeletedOnceStored() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IOException("connection reset")))
+                .doCallRealMethod()
+                .when(objectStore).put(any(), any(), any(Path.class), any());
+
+        long size = uploader.upload("segment", "lt-100mb", "segments", "segment_1.ts", file, "video/mp2t");
+
+        assertEquals(100, size);
+        assertFalse(Files.exists(file));
+        assertTrue(objectStore.stat("segments", "segment_1.ts").isPresent());
+        assertEquals(1, registry.get("video.upload.retries").tag("kind", "segment").counter().count());
+        assertEquals(1, registry.get("video.upload").tag("kind", "segment").timer().count());
+    }
+
+    @Test
+    void otherFailuresKeepTheFile() {
+        doReturn(CompletableFuture.failedFuture(new IllegalArgumentException("invalid key")))
+                .when(objectStore).put(any(), any(), any(Path.class), any());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploader.upload("frame", "lt-100mb", "frames", "../frame_1.jpg", file, "image/jpeg"));
+
+        verify(objectStore, times(1)).put(any(), any(), any(Path.class), any());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void retriesStopAfterTheLastAttempt() {
+        doReturn(CompletableFuture.failedFuture(new IOException("connection refused")))
+                .when(objectStore).put(any(), any(), any(Path.class), any());
+
+        assertThrows(IOException.class,
+                () -> uploader.upload("sprite", "lt-100mb", "frames", "sprite_1.jpg", file, "image/jpeg"));
+
+        verify(objectStore, times(3)).put(any(), any(), any(Path.class), any());
+        assertTrue(Files.exists(file));
+    }
+}
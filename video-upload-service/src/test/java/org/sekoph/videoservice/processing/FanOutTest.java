@@ -0,0 +1,64 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutTest {
+
+    @Test
+    void runsTasksConcurrentlyUpToTheLimit() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Semaphore limit = new Semaphore(3);
+
+        try (FanOut fanOut = new FanOut("test")) {
+            for (int i = 0; i < 12; i++) {
+                fanOut.fork(limit, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                });
+            }
+            fanOut.join();
+        }
+
+        assertEquals(3, maxRunning.get());
+        assertEquals(3, limit.availablePermits());
+    }
+
+    @Test
+    void firstFailureCancelsSiblingsAndIsRethrown() {
+        CountDownLatch siblingStarted = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        Semaphore limit = new Semaphore(2);
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+            try (FanOut fanOut = new FanOut("test")) {
+                fanOut.fork(limit, () -> {
+                    siblingStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    }
+                });
+                fanOut.fork(limit, () -> {
+                    siblingStarted.await();
+                    throw new IllegalStateException("ffmpeg failed");
+                });
+                fanOut.join();
+            }
+        });
+
+        assertEquals("ffmpeg failed", thrown.getMessage());
+        assertEquals(1, interrupted.get());
+        assertEquals(2, limit.availablePermits());
+    }
+}
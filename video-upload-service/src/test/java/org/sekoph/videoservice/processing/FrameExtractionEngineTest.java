@@ -0,0 +1,96 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameExtractionEngineTest {
+
+    private final FrameExtractionEngine engine = new FrameExtractionEngine(FfmpegProcessLimiter.unlimited());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsShowInfoLinesOfCurrentAndOlderFfmpeg() {
+        FrameExtractionEngine.FrameInfo current = FrameExtractionEngine.parseShowInfo(
+                "[Parsed_showinfo_1 @ 0x55d5c8a0c2c0] n:   3 pts:  76800 pts_time:6.006   duration:    512 "
+                        + "duration_time:0.04 fmt:yuvj420p cl:left sar:1/1 s:1280x720 i:P iskey:1 type:I "
+                        + "checksum:5A1E1C2F plane_checksum:[1C6C2B3A 95A4B0E1 A2D5A013] mean:[104 127 128]");
+        assertEquals(new FrameExtractionEngine.FrameInfo(6.006, true, "I", 1280, 720), current);
+
+        FrameExtractionEngine.FrameInfo older = FrameExtractionEngine.parseShowInfo(
+                "[Parsed_showinfo_1 @ 0x1f2e3d0] n:  12 pts: 307200 pts_time:24      pos:  1843200 "
+                        + "fmt:yuv420p sar:1/1 s:640x360 i:P key:0 type:P checksum:0A0B0C0D");
+        assertEquals(new FrameExtractionEngine.FrameInfo(24, false, "P", 640, 360), older);
+    }
+
+    @Test
+    void unknownTimestampsAreZeroAndOtherOutputIsIgnored() {
+        FrameExtractionEngine.FrameInfo frame = FrameExtractionEngine.parseShowInfo(
+                "[Parsed_showinfo_2 @ 0x7f] n:   0 pts:NOPTS pts_time:NOPTS fmt:yuv420p sar:1/1 s:320x180 i:P "
+                        + "iskey:0 type:B checksum:00000000");
+        assertEquals(new FrameExtractionEngine.FrameInfo(0, false, "B", 320, 180), frame);
+
+        assertNull(FrameExtractionEngine.parseShowInfo(
+                "Stream #0:0(und): Video: h264 (High) (avc1 / 0x31637661), yuv420p, 1280x720, 2500 kb/s"));
+        assertNull(FrameExtractionEngine.parseShowInfo(
+                "[Parsed_showinfo_1 @ 0x55d5c8a0c2c0] config in time_base: 1/12800, frame_rate: 25/1"));
+    }
+
+    @Test
+    void intervalModeSamplesAFixedRateOverTheWholeInput() {
+        List<String> command = engine.buildCommand("/videos/in.mp4", dir, FrameExtractionMode.INTERVAL, 10, 0.4,
+                0, 0);
+
+        assertEquals(List.of(
+                "ffmpeg", "-hide_banner", "-nostdin", "-nostats", "-y",
+                "-i", "/videos/in.mp4",
+                "-an", "-sn", "-dn",
+                "-vf", "fps=1/10,showinfo",
+                "-fps_mode", "vfr",
+                "-q:v", "2",
+                dir.resolve("frame_%06d.jpg").toString()
+        ), command);
+    }
+
+    @Test
+    void keyframeModeSkipsNonKeyFramesInTheDecoder() {
+        List<String> command = engine.buildCommand("/videos/in.mp4", dir, FrameExtractionMode.KEYFRAME, 5, 0.4,
+                0, 0);
+
+        int skip = command.indexOf("-skip_frame");
+        assertTrue(skip >= 0 && skip < command.indexOf("-i"), "skip_frame is an input option");
+        assertEquals("nokey", command.get(skip + 1));
+        assertEquals("select='isnan(prev_selected_t)+gte(t-prev_selected_t,5)',showinfo",
+                command.get(command.indexOf("-vf") + 1));
+    }
+
+    @Test
+    void sceneModeSelectsTheFirstFrameAndSceneChanges() {
+        List<String> command = engine.buildCommand("/videos/in.mp4", dir, FrameExtractionMode.SCENE, 10, 0.4,
+                0, 0);
+
+        assertFalse(command.contains("-skip_frame"));
+        assertEquals("select='eq(n,0)+gt(scene,0.4)',showinfo", command.get(command.indexOf("-vf") + 1));
+    }
+
+    @Test
+    void rangesSeekTheInputAndLimitTheDuration() {
+        List<String> middle = engine.buildCommand("http://minio:9000/videos/in.mp4?X-Amz-Signature=abc", dir,
+                FrameExtractionMode.INTERVAL, 10, 0.4, 60, 120);
+        List<String> beforeInput = middle.subList(0, middle.indexOf("-i"));
+        assertEquals("60", beforeInput.get(beforeInput.indexOf("-ss") + 1));
+        assertEquals("60", beforeInput.get(beforeInput.indexOf("-t") + 1));
+        assertTrue(beforeInput.contains("-reconnect"), "a URL is reopened after network errors");
+
+        List<String> tail = engine.buildCommand("/videos/in.mp4", dir, FrameExtractionMode.INTERVAL, 10, 0.4,
+                120, 0);
+        assertEquals("120", tail.get(tail.indexOf("-ss") + 1));
+        assertFalse(tail.contains("-t"), "the last range reads until the end");
+    }
+}
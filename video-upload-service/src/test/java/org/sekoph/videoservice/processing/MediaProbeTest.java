@@ -0,0 +1,88 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.model.MediaMetadata;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaProbeTest {
+
+    private final MediaProbe probe = new MediaProbe(FfmpegProcessLimiter.unlimited(), true);
+
+    @Test
+    void readsStreamsFormatAndVideoKeyframes() throws Exception {
+        String json = """
+                {
+                    "packets": [
+                        {"codec_type": "video", "stream_index": 1, "pts_time": "0.000000", "flags": "K__"},
+                        {"codec_type": "audio", "stream_index": 2, "pts_time": "0.000000", "flags": "K__"},
+                        {"codec_type": "video", "stream_index": 1, "pts_time": "0.033367", "flags": "___"},
+                        {"codec_type": "video", "stream_index": 1, "pts_time": "4.004000", "flags": "K__"},
+                        {"codec_type": "video", "stream_index": 1, "pts_time": "2.002000", "flags": "K__"},
+                        {"codec_type": "video", "stream_index": 0, "pts_time": "0.000000", "flags": "K__"}
+                    ],
+                    "streams": [
+                        {"index": 0, "codec_name": "mjpeg", "codec_type": "video", "width": 600, "height": 600,
+                         "disposition": {"attached_pic": 1}},
+                        {"index": 1, "codec_name": "h264", "profile": "High", "codec_type": "video",
+                         "width": 1280, "height": 720, "pix_fmt": "yuv420p", "avg_frame_rate": "30000/1001",
+                         "bit_rate": "2500000", "disposition": {"attached_pic": 0}},
+                        {"index": 2, "codec_name": "aac", "codec_type": "audio", "sample_rate": "48000",
+                         "channels": 2, "bit_rate": "128000", "tags": {"language": "eng"}},
+                        {"index": 3, "codec_name": "mov_text", "codec_type": "subtitle"}
+                    ],
+                    "format": {"format_name": "mov,mp4,m4a,3gp,3g2,mj2", "duration": "5.005000",
+                               "size": "1600000", "bit_rate": "2557442"}
+                }
+                """;
+
+        MediaMetadata metadata = probe.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("mov,mp4,m4a,3gp,3g2,mj2", metadata.getFormatName());
+        assertEquals(5.005, metadata.getDuration(), 1e-9);
+        assertEquals(2557442, metadata.getBitRate());
+        MediaMetadata.VideoTrack video = metadata.getVideo();
+        assertEquals(1, video.getIndex(), "cover art is not the video track");
+        assertEquals("h264", video.getCodec());
+        assertEquals(720, video.getHeight());
+        assertEquals(29.97, video.getFrameRate(), 0.001);
+        assertEquals(1, metadata.getAudioTracks().size());
+        assertEquals("eng", metadata.getAudioTracks().getFirst().getLanguage());
+        assertEquals(List.of(0.0, 2.002, 4.004), metadata.getKeyframeTimes());
+        assertEquals(2.002, metadata.getKeyframeInterval(), 1e-9);
+    }
+
+    @Test
+    void variableGopHasNoFixedInterval() {
+        assertNull(MediaProbe.fixedInterval(List.of(0.0, 2.0, 4.0, 5.5)));
+        assertNull(MediaProbe.fixedInterval(List.of(0.0)));
+        assertEquals(2.0, MediaProbe.fixedInterval(List.of(0.0, 2.0, 4.0, 6.001)), 1e-9);
+    }
+
+    @Test
+    void fixedGopAlignsSegmentsAndLetsTheMatchingRungCopy() {
+        MediaMetadata source = new MediaMetadata();
+        MediaMetadata.VideoTrack video = new MediaMetadata.VideoTrack();
+        video.setCodec("h264");
+        video.setPixelFormat("yuv420p");
+        video.setHeight(700);
+        video.setBitRate(2_500_000);
+        source.setVideo(video);
+        source.setKeyframeInterval(2.002);
+
+        assertEquals(6.006, Rendition.segmentDuration(6, source), 1e-9);
+        assertEquals(6, Rendition.segmentDuration(6, null), 1e-9);
+        assertEquals(List.of(Rendition.P240, Rendition.P480, Rendition.P720),
+                Rendition.ladderFor(List.of(Rendition.P240, Rendition.P480, Rendition.P720, Rendition.P1080),
+                        source));
+
+        assertTrue(Rendition.P720.codecOptions(6.006, source).contains("copy"));
+        List<String> encoded = Rendition.P480.codecOptions(6.006, source);
+        assertTrue(encoded.contains("libx264"));
+        assertTrue(encoded.contains("expr:gte(t+0.001,n_forced*6.006)"));
+    }
+}
@@ -0,0 +1,40 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    @Test
+    void uploadsAreTimedPerKindAndSizeBucket() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry);
+
+        metrics.recordUpload("segment", PipelineMetrics.sizeBucket(300L * 1024 * 1024), 4_000_000,
+                TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(1, registry.get("video.upload").tags("kind", "segment", "size", "lt-1gb").timer().count());
+        assertEquals(8_000_000, registry.get("video.upload.throughput").summary().max(), 1);
+        assertEquals("unknown", PipelineMetrics.sizeBucket(null));
+        assertEquals("gte-10gb", PipelineMetrics.sizeBucket(20L * 1024 * 1024 * 1024));
+    }
+
+    @Test
+    void limiterTimesProcessesOnceBound() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FfmpegProcessLimiter limiter = new FfmpegProcessLimiter(2, 0);
+        limiter.bindTo(registry);
+
+        try (FfmpegProcessLimiter.Permit permit = limiter.acquire("segment")) {
+            assertEquals(1, registry.get("video.ffmpeg.active").gauge().value());
+        }
+
+        assertEquals(0, registry.get("video.ffmpeg.active").gauge().value());
+        assertEquals(1, registry.get("video.ffmpeg.process").tag("kind", "segment").timer().count());
+        assertEquals(1, registry.get("video.ffmpeg.wait").tag("kind", "segment").timer().count());
+    }
+}
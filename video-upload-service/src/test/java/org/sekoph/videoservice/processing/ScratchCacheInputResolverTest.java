@@ -0,0 +1,72 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ScratchCacheInputResolverTest {
+
+    @TempDir
+    Path scratchDir;
+
+    private ObjectStore objectStore;
+    private ScratchCacheInputResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectStore = mock(ObjectStore.class);
+        // every object is 100 bytes
+        when(objectStore.stat(anyString(), anyString())).thenAnswer(invocation -> Optional.of(
+                new ObjectStore.ObjectInfo(invocation.getArgument(0), invocation.getArgument(1), 100, "etag",
+                        1_700_000_000_000L, "video/mp4")));
+        when(objectStore.get(anyString(), anyString())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(new ByteArrayInputStream(new byte[100])));
+        resolver = new ScratchCacheInputResolver(objectStore, scratchDir, DataSize.ofBytes(250));
+    }
+
+    @Test
+    void downloadsEachObjectOnce() throws Exception {
+        try (VideoInput first = resolver.resolve("videos", "a.mp4");
+             VideoInput second = resolver.resolve("videos", "a.mp4")) {
+            assertEquals(first.location(), second.location());
+            assertEquals(100, Files.size(Path.of(first.location())));
+        }
+
+        verify(objectStore, times(1)).get("videos", "a.mp4");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        resolver.bindTo(registry);
+        assertEquals(100, registry.get("video.input.cache.used").gauge().value());
+        assertEquals(250, registry.get("video.input.cache.max").gauge().value());
+        assertEquals(1, registry.get("video.input.cache.entries").gauge().value());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryButNeverOneInUse() throws Exception {
+        VideoInput pinned = resolver.resolve("videos", "a.mp4");
+        resolver.resolve("videos", "b.mp4").close();
+        resolver.resolve("videos", "c.mp4").close();
+
+        // a is the oldest, but still being read
+        assertTrue(Files.exists(Path.of(pinned.location())));
+        assertEquals(2, resolver.getEntryCount());
+        assertEquals(200, resolver.getUsedBytes());
+
+        pinned.close();
+        resolver.resolve("videos", "d.mp4").close();
+        assertFalse(Files.exists(Path.of(pinned.location())));
+        assertTrue(resolver.getUsedBytes() <= 250);
+    }
+}
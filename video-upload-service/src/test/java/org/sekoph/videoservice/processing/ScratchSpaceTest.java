@@ -0,0 +1,62 @@
+package org.sekoph.videoservice.processing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchSpaceTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void orphansAreSweptAtStartup() throws Exception {
+        Path orphan = Files.createDirectories(root.resolve("video-1/segments_720p_123"));
+        Files.write(orphan.resolve("segment_000.ts"), new byte[100]);
+
+        ScratchSpace scratchSpace = new ScratchSpace(root, DataSize.ofMegabytes(1));
+
+        assertFalse(Files.exists(root.resolve("video-1")));
+        assertEquals(0, scratchSpace.getUsedBytes());
+    }
+
+    @Test
+    void videoDirectoryIsDeletedWithItsLastWorkspace() throws Exception {
+        ScratchSpace scratchSpace = new ScratchSpace(root, DataSize.ofMegabytes(1));
+        ScratchSpace.Workspace segments = scratchSpace.open("video-1", "segments_720p");
+        ScratchSpace.Workspace frames = scratchSpace.open("video-1", "frames_0-600");
+        Files.write(segments.directory().resolve("segment_000.ts"), new byte[100]);
+        assertEquals(root.resolve("video-1"), segments.directory().getParent());
+        assertEquals(1, scratchSpace.getActiveVideos());
+
+        segments.close();
+        segments.close();
+
+        assertFalse(Files.exists(segments.directory()));
+        assertTrue(Files.exists(frames.directory()));
+
+        frames.close();
+
+        assertFalse(Files.exists(root.resolve("video-1")));
+        assertEquals(0, scratchSpace.getActiveVideos());
+    }
+
+    @Test
+    void usageAboveTheLimitLeavesNoRoom() throws Exception {
+        ScratchSpace scratchSpace = new ScratchSpace(root, DataSize.ofBytes(150));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scratchSpace.bindTo(registry);
+        try (ScratchSpace.Workspace workspace = scratchSpace.open("video-1", "frames_0-600")) {
+            Files.write(workspace.directory().resolve("frame_000.jpg"), new byte[200]);
+
+            assertEquals(200, registry.get("video.scratch.used").gauge().value());
+            assertFalse(scratchSpace.hasRoom());
+        }
+    }
+}
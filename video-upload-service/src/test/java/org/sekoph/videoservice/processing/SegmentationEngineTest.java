@@ -0,0 +1,98 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentationEngineTest {
+
+    private final SegmentationEngine engine = new SegmentationEngine(FfmpegProcessLimiter.unlimited());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void copiesStreamsIntoStandaloneMp4Segments() {
+        List<String> command = engine.buildCommand("/videos/in.mp4", dir, 6, SegmentFormat.MP4,
+                List.of("-c", "copy"));
+
+        assertEquals(List.of(
+                "ffmpeg", "-hide_banner", "-nostdin", "-y",
+                "-i", "/videos/in.mp4",
+                "-c", "copy",
+                "-f", "segment",
+                "-segment_time", "6",
+                "-segment_time_delta", "0.001",
+                "-segment_list", dir.resolve("segments.csv").toString(),
+                "-segment_list_type", "csv",
+                "-avoid_negative_ts", "make_zero",
+                "-segment_format", "mp4", "-reset_timestamps", "1",
+                dir.resolve("segment_%05d.mp4").toString()
+        ), command);
+    }
+
+    @Test
+    void encodesTsSegmentsOfAUrlAlignedToTheGop() {
+        List<String> codecOptions = List.of("-c:v", "libx264", "-b:v", "1000k");
+
+        List<String> command = engine.buildCommand("http://minio:9000/videos/in.mp4?X-Amz-Signature=abc", dir,
+                6.006, SegmentFormat.TS, codecOptions);
+
+        int input = command.indexOf("-i");
+        assertTrue(command.subList(0, input).contains("-reconnect"), "a URL is reopened after network errors");
+        assertEquals(codecOptions, command.subList(input + 2, input + 2 + codecOptions.size()),
+                "codec options apply to the output");
+        assertEquals("6.006", command.get(command.indexOf("-segment_time") + 1));
+        assertEquals("mpegts", command.get(command.indexOf("-segment_format") + 1));
+        assertFalse(command.contains("-reset_timestamps"), "TS segments keep one continuous timeline");
+        assertEquals(dir.resolve("segment_%05d.ts").toString(), command.getLast());
+    }
+
+    @Test
+    void formatsSecondsWithoutTrailingZeros() {
+        assertEquals("6", SegmentationEngine.formatSeconds(6.0));
+        assertEquals("6.006", SegmentationEngine.formatSeconds(6.006));
+        assertEquals("0.5", SegmentationEngine.formatSeconds(0.50));
+    }
+
+    @Test
+    void segmentListReaderOnlyReturnsFinishedLines() throws Exception {
+        Path list = dir.resolve(SegmentationEngine.SEGMENT_LIST);
+        SegmentationEngine.SegmentListReader reader = new SegmentationEngine.SegmentListReader(list);
+        assertTrue(reader.readNewEntries().isEmpty(), "no list before the first segment is closed");
+
+        append(list, "segment_00000.ts,0.000000,6.006000\nsegment_00001.ts,6.0");
+        List<String[]> first = reader.readNewEntries();
+        assertEquals(1, first.size());
+        assertArrayEquals(new String[]{"segment_00000.ts", "0.000000", "6.006000"}, first.getFirst());
+
+        append(list, "06000,12.012000\n\nsegment_00002.ts,12.012000,14.500000\n");
+        List<String[]> rest = reader.readNewEntries();
+        assertEquals(2, rest.size(), "the partial line is completed and blank lines are skipped");
+        assertArrayEquals(new String[]{"segment_00001.ts", "6.006000", "12.012000"}, rest.get(0));
+        assertArrayEquals(new String[]{"segment_00002.ts", "12.012000", "14.500000"}, rest.get(1));
+        assertTrue(reader.readNewEntries().isEmpty());
+    }
+
+    @Test
+    void segmentListEntriesBecomeSegmentFiles() {
+        SegmentationEngine.SegmentFile segment = SegmentationEngine.toSegmentFile(dir, 1,
+                new String[]{"segment_00001.ts", "6.006000", "12.012000"});
+
+        assertEquals(new SegmentationEngine.SegmentFile(1, dir.resolve("segment_00001.ts"), 6.006, 12.012), segment);
+        assertThrows(VideoProcessingException.class,
+                () -> SegmentationEngine.toSegmentFile(dir, 2, new String[]{"segment_00002.ts"}));
+    }
+
+    private static void append(Path file, String text) throws Exception {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,58 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteSheetBuilderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tilesFramesRowByRowAndCropsTheLastSheet() throws Exception {
+        List<SpriteSheetBuilder.SpriteSheet> sheets = new ArrayList<>();
+        SpriteSheetBuilder builder = new SpriteSheetBuilder(dir, 3, 2, 160, sheets::add);
+        Path frame = frame(1280, 720);
+
+        List<SpriteSheetBuilder.Tile> tiles = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tiles.add(builder.add(frame));
+        }
+        assertEquals(1, sheets.size(), "a full sheet is written right away");
+        builder.finish();
+
+        assertEquals(new SpriteSheetBuilder.Tile(0, 0, 0, 160, 90), tiles.get(0));
+        assertEquals(new SpriteSheetBuilder.Tile(0, 160, 90, 160, 90), tiles.get(4));
+        assertEquals(new SpriteSheetBuilder.Tile(1, 160, 0, 160, 90), tiles.get(7));
+
+        assertEquals(List.of(6, 2), sheets.stream().map(SpriteSheetBuilder.SpriteSheet::tiles).toList());
+        BufferedImage full = ImageIO.read(sheets.get(0).file().toFile());
+        assertEquals(480, full.getWidth());
+        assertEquals(180, full.getHeight());
+        BufferedImage last = ImageIO.read(sheets.get(1).file().toFile());
+        assertEquals(480, last.getWidth());
+        assertEquals(90, last.getHeight());
+    }
+
+    @Test
+    void writesNothingWithoutFrames() throws Exception {
+        List<SpriteSheetBuilder.SpriteSheet> sheets = new ArrayList<>();
+        new SpriteSheetBuilder(dir, 10, 10, 160, sheets::add).finish();
+
+        assertTrue(sheets.isEmpty());
+    }
+
+    private Path frame(int width, int height) throws Exception {
+        Path file = dir.resolve("frame.jpg");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", file.toFile());
+        return file;
+    }
+}
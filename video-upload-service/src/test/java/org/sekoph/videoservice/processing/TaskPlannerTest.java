@@ -0,0 +1,49 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.JobType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskPlannerTest {
+
+    @Test
+    void frameRangesHoldWholeSpriteSheets() {
+        // 10 x 10 sheets of a frame every 10 seconds cover 1000 seconds each
+        TaskPlanner planner = new TaskPlanner(List.of(Rendition.P240, Rendition.P360), true, 10, 100);
+
+        List<ProcessingJob> ranges = frames(planner.plan(video(2500), 600));
+
+        assertEquals(List.of(0L, 1000L, 2000L), ranges.stream().map(ProcessingJob::getRangeStart).toList());
+        assertEquals(Arrays.asList(1000L, 2000L, null), ranges.stream().map(ProcessingJob::getRangeEnd).toList());
+    }
+
+    @Test
+    void shortVideosAreOneRange() {
+        TaskPlanner planner = new TaskPlanner(List.of(Rendition.P240), false, 2, 100);
+
+        List<ProcessingJob> tasks = planner.plan(video(30), 30);
+
+        assertEquals(1, tasks.stream().filter(task -> task.getType() == JobType.SEGMENTS).count());
+        List<ProcessingJob> ranges = frames(tasks);
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.getFirst().getRangeStart());
+        assertNull(ranges.getFirst().getRangeEnd());
+    }
+
+    private static List<ProcessingJob> frames(List<ProcessingJob> tasks) {
+        return tasks.stream().filter(task -> task.getType() == JobType.FRAMES).toList();
+    }
+
+    private static Video video(long duration) {
+        Video video = new Video();
+        video.setId("video-1");
+        video.setDuration(duration);
+        return video;
+    }
+}
@@ -0,0 +1,25 @@
+package org.sekoph.videoservice.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoInputTest {
+
+    @Test
+    void presignedUrlsAreNamedWithoutTheirSignature() {
+        assertEquals("videos/video_1.mp4", VideoInput.describe(
+                "http://minio:9000/videos/video_1.mp4?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Signature=abc"));
+        assertEquals("videos/video_1.mp4", VideoInput.describe("https://minio/videos/video_1.mp4"));
+        assertEquals("/tmp/video-scratch/videos_video_1.mp4",
+                VideoInput.describe("/tmp/video-scratch/videos_video_1.mp4"));
+    }
+
+    @Test
+    void onlyUrlsReconnect() {
+        assertTrue(VideoInput.inputOptions("http://minio:9000/videos/video_1.mp4").contains("-reconnect"));
+        assertEquals(List.of(), VideoInput.inputOptions("/tmp/video-scratch/videos_video_1.mp4"));
+    }
+}
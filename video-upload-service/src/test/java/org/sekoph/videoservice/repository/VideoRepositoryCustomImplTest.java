@@ -0,0 +1,127 @@
+package org.sekoph.videoservice.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.model.enums.VisibleStatus;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VideoRepositoryCustomImplTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private VideoRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(VideoFrame.class))).thenReturn(bulk);
+        repository = new VideoRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @Test
+    void replacesAFrameRangeInTheFrameCollectionAndBumpsTheVideoVersion() {
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        List<VideoFrame> frames = LongStream.range(60, 70).mapToObj(VideoRepositoryCustomImplTest::frame).toList();
+        // the previous attempt's frames share one sprite sheet
+        List<VideoFrame> previous = LongStream.range(60, 63).mapToObj(VideoRepositoryCustomImplTest::frame).toList();
+        previous.forEach(frame -> {
+            frame.setFrameS3Key("frame_" + frame.getTimeStamp() + ".jpg");
+            frame.setThumbnailS3Key("sprite_1.jpg");
+        });
+        when(mongoTemplate.find(any(Query.class), eq(VideoFrame.class))).thenReturn(previous);
+
+        List<String> replaced = repository.replaceKeyFrames("video-1", 60, 120L, frames);
+
+        assertEquals(List.of("frame_60.jpg", "frame_61.jpg", "frame_62.jpg", "sprite_1.jpg"), replaced);
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(VideoFrame.class));
+        Document range = removed.getValue().getQueryObject().get("timeStamp", Document.class);
+        assertEquals(60L, range.get("$gte"));
+        assertEquals(120L, range.get("$lt"));
+
+        verify(bulk).insert(frames);
+        verify(bulk).execute();
+        assertTrue(frames.stream().allMatch(frame -> "video-1".equals(frame.getVideoId())));
+
+        // the video document itself only gets its version bumped
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Video.class));
+        assertEquals(1, update.getValue().getUpdateObject().get("$inc", Document.class).get("version"));
+        assertFalse(update.getValue().getUpdateObject().containsKey("$push"));
+    }
+
+    @Test
+    void finishingIsConditionalOnTheVersionThatWasRead() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Video.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertFalse(repository.finishProcessing("video-1", 7L, List.of(), List.of()));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(Video.class));
+        assertEquals(7L, query.getValue().getQueryObject().get("version"));
+    }
+
+    @Test
+    void listsContinueAfterTheCursorAndOnlyLoadListFields() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+        repository.findPageByUser(UUID.randomUUID(), true, createdAt, "65a000000000000000000001", 20);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Video.class));
+        assertEquals(20, query.getValue().getLimit());
+        assertEquals(false, query.getValue().getQueryObject().get("deleted"));
+        assertEquals(2, query.getValue().getQueryObject().getList("$or", Document.class).size());
+        assertEquals(new Document("createdAt", -1).append("id", -1), query.getValue().getSortObject());
+        Document fields = query.getValue().getFieldsObject();
+        assertTrue(fields.containsKey("title"));
+        assertFalse(fields.containsKey("segments"));
+        assertFalse(fields.containsKey("videoS3Key"));
+    }
+
+    @Test
+    void hiddenVideosAreOnlyListedToTheirOwner() {
+        UUID owner = UUID.randomUUID();
+
+        repository.findPageByUser(owner, false, null, null, 20);
+        repository.findPageByStatus(VideoStatus.READY, owner, LocalDateTime.of(2024, 1, 1, 12, 0),
+                "65a000000000000000000001", 20);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Video.class));
+        Document byUser = query.getAllValues().get(0).getQueryObject();
+        assertEquals(List.of(VisibleStatus.PRIVATE, VisibleStatus.UNLISTED),
+                byUser.get("visibility", Document.class).get("$nin"));
+        Document byStatus = query.getAllValues().get(1).getQueryObject();
+        assertEquals(2, byStatus.getList("$or", Document.class).size());
+        Document visibleOrOwned = byStatus.getList("$and", Document.class).getFirst();
+        assertEquals(owner, visibleOrOwned.getList("$or", Document.class).get(1).get("userID"));
+    }
+
+    private static VideoFrame frame(long timestamp) {
+        VideoFrame frame = new VideoFrame();
+        frame.setTimeStamp(timestamp);
+        return frame;
+    }
+}
@@ -0,0 +1,155 @@
+package org.sekoph.videoservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.model.ContentAsset;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.repository.ContentAssetRepository;
+import org.sekoph.videoservice.repository.VideoFrameRepository;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.sekoph.videoservice.repository.VideoSegmentRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContentAssetServiceTest {
+
+    private ContentAssetRepository contentAssetRepository;
+    private VideoRepository videoRepository;
+    private VideoSegmentRepository segmentRepository;
+    private VideoFrameRepository frameRepository;
+    private ObjectStore objectStore;
+    private ContentAssetService service;
+
+    @BeforeEach
+    void setUp() {
+        contentAssetRepository = mock(ContentAssetRepository.class);
+        videoRepository = mock(VideoRepository.class);
+        segmentRepository = mock(VideoSegmentRepository.class);
+        frameRepository = mock(VideoFrameRepository.class);
+        objectStore = mock(ObjectStore.class);
+        service = new ContentAssetService(contentAssetRepository, videoRepository, segmentRepository, frameRepository,
+                objectStore);
+        ReflectionTestUtils.setField(service, "videosBucket", "videos");
+        ReflectionTestUtils.setField(service, "segmentsBucket", "segments");
+        ReflectionTestUtils.setField(service, "framesBucket", "frames");
+        ReflectionTestUtils.setField(service, "enabled", true);
+    }
+
+    @Test
+    void firstUploadOfContentIsProcessed() {
+        Video video = upload("video_new.mp4");
+        when(contentAssetRepository.acquire("hash", "video_new.mp4", ContainerFormat.MP4, 100L))
+                .thenReturn(asset("video_new.mp4", 1, null));
+
+        assertFalse(service.attach(video));
+        assertEquals("hash", video.getContentAssetId());
+        assertEquals("video_new.mp4", video.getVideoS3Key());
+        verifyNoInteractions(objectStore);
+    }
+
+    @Test
+    void reUploadDropsItsCopyAndReusesProcessedArtifacts() throws Exception {
+        Video source = new Video();
+        source.setId("video-1");
+        source.setVideoStatus(VideoStatus.READY);
+        source.setDuration(42);
+        source.setSegmentCount(1);
+        source.setKeyFrameCount(1);
+        when(videoRepository.findById("video-1")).thenReturn(Optional.of(source));
+        Video video = upload("video_new.mp4");
+        when(contentAssetRepository.acquire("hash", "video_new.mp4", ContainerFormat.MP4, 100L))
+                .thenReturn(asset("video_old.mp4", 2, "video-1"));
+
+        assertTrue(service.attach(video));
+
+        verify(objectStore).delete("videos", List.of("video_new.mp4"));
+        assertEquals("video_old.mp4", video.getVideoS3Key());
+        assertEquals(VideoStatus.READY, video.getVideoStatus());
+        assertEquals(42, video.getDuration());
+        assertEquals("video-1", video.getArtifactsVideoId());
+        assertEquals(1, video.getSegmentCount());
+        assertTrue(video.isSharedArtifacts());
+    }
+
+    @Test
+    void sharedObjectsSurviveUntilTheLastReferenceIsReleased() throws Exception {
+        ContentAsset asset = asset("video_old.mp4", 1, "video-1");
+        asset.setSegmentKeys(List.of("segment_1.mp4"));
+        asset.setFrameKeys(List.of("frame_1.jpg"));
+        Video video = upload("video_old.mp4");
+        video.setId("video-2");
+        video.setContentAssetId("hash");
+        video.setSharedArtifacts(true);
+        when(contentAssetRepository.findById("hash")).thenReturn(Optional.of(asset));
+
+        when(contentAssetRepository.release("hash")).thenReturn(Optional.empty());
+        service.release(video);
+        verifyNoInteractions(objectStore);
+
+        when(contentAssetRepository.release("hash")).thenReturn(Optional.of(asset));
+        service.release(video);
+        verify(objectStore).delete("videos", List.of("video_old.mp4"));
+        verify(objectStore).delete("segments", List.of("segment_1.mp4"));
+        verify(objectStore).delete("frames", List.of("frame_1.jpg"));
+        verify(videoRepository).deleteArtifacts("video-1");
+    }
+
+    @Test
+    void unsharedArtifactsAreDeletedWithTheirVideo() throws Exception {
+        Video video = upload("video_old.mp4");
+        video.setId("video-2");
+        video.setContentAssetId("hash");
+        when(segmentRepository.findByVideoId(eq("video-2"), any())).thenReturn(List.of(segment("segment_2.mp4")));
+        when(frameRepository.findByVideoId(eq("video-2"), any())).thenReturn(List.of(frame("frame_2.jpg")));
+        when(contentAssetRepository.findById("hash")).thenReturn(Optional.of(asset("video_old.mp4", 2, "video-1")));
+        when(contentAssetRepository.release("hash")).thenReturn(Optional.empty());
+
+        service.release(video);
+
+        verify(objectStore).delete("segments", List.of("segment_2.mp4"));
+        verify(objectStore).delete("frames", List.of("frame_2.jpg"));
+        verify(objectStore, never()).delete(eq("videos"), anyList());
+        verify(videoRepository).deleteArtifacts("video-2");
+    }
+
+    private static Video upload(String s3Key) {
+        Video video = new Video();
+        video.setVideoS3Key(s3Key);
+        video.setContentHash("hash");
+        video.setContainerFormat(ContainerFormat.MP4);
+        video.setFileSize(100L);
+        video.setVideoStatus(VideoStatus.UPLOADED);
+        return video;
+    }
+
+    private static ContentAsset asset(String s3Key, long refCount, String artifactsVideoId) {
+        ContentAsset asset = new ContentAsset();
+        asset.setId("hash");
+        asset.setVideoS3Key(s3Key);
+        asset.setRefCount(refCount);
+        asset.setArtifactsVideoId(artifactsVideoId);
+        return asset;
+    }
+
+    private static VideoSegment segment(String key) {
+        VideoSegment segment = new VideoSegment();
+        segment.setSegmentS3Key(key);
+        return segment;
+    }
+
+    private static VideoFrame frame(String key) {
+        VideoFrame frame = new VideoFrame();
+        frame.setFrameS3Key(key);
+        return frame;
+    }
+}
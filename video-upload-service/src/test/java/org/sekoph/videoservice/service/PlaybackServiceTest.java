@@ -0,0 +1,114 @@
+package org.sekoph.videoservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.exception.VideoNotReadyException;
+import org.sekoph.videoservice.model.VideoFrame;
+import org.sekoph.videoservice.model.VideoRendition;
+import org.sekoph.videoservice.model.VideoSegment;
+import org.sekoph.videoservice.processing.SegmentFormat;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlaybackServiceTest {
+
+    @Test
+    void playlistListsSegmentsWithTheirRealDurations() {
+        String playlist = PlaybackService.mediaPlaylist(
+                List.of(segment("a.ts", 0, 6006), segment("b.ts", 6006, 12512), segment("c.ts", 12512, 14000)),
+                segment -> "https://minio/segments/" + segment.getSegmentS3Key());
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-PLAYLIST-TYPE:VOD
+                #EXT-X-TARGETDURATION:7
+                #EXT-X-MEDIA-SEQUENCE:0
+                #EXTINF:6.006,
+                https://minio/segments/a.ts
+                #EXTINF:6.506,
+                https://minio/segments/b.ts
+                #EXTINF:1.488,
+                https://minio/segments/c.ts
+                #EXT-X-ENDLIST
+                """, playlist);
+    }
+
+    @Test
+    void refusesVideosSegmentedAsStandaloneFiles() {
+        VideoService videoService = mock(VideoService.class);
+        VideoSegment legacy = segment("a.mp4", 0, 300_000);
+        legacy.setFormat(null);
+        when(videoService.getPlaybackSegments("video-1", null, "source")).thenReturn(List.of(legacy));
+
+        PlaybackService service = new PlaybackService(videoService, mock(PresignedUrlService.class));
+
+        assertThrows(VideoNotReadyException.class, () -> service.mediaPlaylist("video-1", null, "source"));
+    }
+
+    @Test
+    void thumbnailTrackPointsEachCueAtItsTile() {
+        String track = PlaybackService.thumbnailTrack(
+                List.of(frame(0, "sprite_1.jpg", 0, 0), frame(10, "sprite_1.jpg", 160, 0),
+                        frame(3610, "sprite_2.jpg", 0, 90)),
+                3_625_500, frame -> "https://minio/frames/" + frame.getThumbnailS3Key());
+
+        assertEquals("""
+                WEBVTT
+
+                00:00:00.000 --> 00:00:10.000
+                https://minio/frames/sprite_1.jpg#xywh=0,0,160,90
+
+                00:00:10.000 --> 01:00:10.000
+                https://minio/frames/sprite_1.jpg#xywh=160,0,160,90
+
+                01:00:10.000 --> 01:00:25.500
+                https://minio/frames/sprite_2.jpg#xywh=0,90,160,90
+                """, track);
+    }
+
+    @Test
+    void masterPlaylistPointsAtEachRenditionsMediaPlaylist() {
+        String playlist = PlaybackService.masterPlaylist(List.of(rendition("240p", 450_000, 380_000),
+                rendition("720p", 3_100_000, 2_700_000)));
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:3
+                #EXT-X-STREAM-INF:BANDWIDTH=450000,AVERAGE-BANDWIDTH=380000,NAME="240p"
+                240p/playlist.m3u8
+                #EXT-X-STREAM-INF:BANDWIDTH=3100000,AVERAGE-BANDWIDTH=2700000,NAME="720p"
+                720p/playlist.m3u8
+                """, playlist);
+    }
+
+    private static VideoRendition rendition(String quality, long bandwidth, long averageBandwidth) {
+        VideoRendition rendition = new VideoRendition();
+        rendition.setQuality(quality);
+        rendition.setBandwidth(bandwidth);
+        rendition.setAverageBandwidth(averageBandwidth);
+        return rendition;
+    }
+
+    private static VideoSegment segment(String key, long startMs, long endMs) {
+        VideoSegment segment = new VideoSegment();
+        segment.setSegmentS3Key(key);
+        segment.setStartTimeMs(startMs);
+        segment.setEndTimeMs(endMs);
+        segment.setFormat(SegmentFormat.TS);
+        return segment;
+    }
+
+    private static VideoFrame frame(long timestamp, String sheet, int x, int y) {
+        VideoFrame frame = new VideoFrame();
+        frame.setTimeStamp(timestamp);
+        frame.setThumbnailS3Key(sheet);
+        frame.setThumbnailX(x);
+        frame.setThumbnailY(y);
+        frame.setThumbnailWidth(160);
+        frame.setThumbnailHeight(90);
+        return frame;
+    }
+}
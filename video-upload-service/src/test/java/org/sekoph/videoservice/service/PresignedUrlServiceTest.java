@@ -0,0 +1,48 @@
+package org.sekoph.videoservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PresignedUrlServiceTest {
+
+    private MinioClient minioClient;
+    private PresignedUrlService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        minioClient = mock(MinioClient.class);
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenAnswer(invocation -> {
+            GetPresignedObjectUrlArgs args = invocation.getArgument(0);
+            return "https://minio/" + args.bucket() + "/" + args.object() + "?expires=" + args.expiry();
+        });
+        service = new PresignedUrlService(minioClient, new SimpleMeterRegistry(), 60, 30, 1000);
+    }
+
+    @Test
+    void batchSignsOnlyTheKeysNotCachedYet() throws Exception {
+        service.sign("frames", "frame_2.jpg");
+
+        Map<String, String> urls = service.signAll("frames", List.of("frame_1.jpg", "frame_2.jpg", "frame_3.jpg"));
+
+        assertEquals(List.of("frame_1.jpg", "frame_2.jpg", "frame_3.jpg"), List.copyOf(urls.keySet()));
+        assertEquals("https://minio/frames/frame_1.jpg?expires=3600", urls.get("frame_1.jpg"));
+        verify(minioClient, times(3)).getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class));
+    }
+
+    @Test
+    void keysAreCachedPerBucket() throws Exception {
+        assertNotEquals(service.sign("segments", "a.ts"), service.sign("frames", "a.ts"));
+        assertEquals(service.sign("segments", "a.ts"), service.signAll("segments", List.of("a.ts")).get("a.ts"));
+        verify(minioClient, times(2)).getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class));
+    }
+}
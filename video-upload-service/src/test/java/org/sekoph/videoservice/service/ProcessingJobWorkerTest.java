@@ -0,0 +1,245 @@
+package org.sekoph.videoservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.sekoph.videoservice.model.ProcessingJob;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.JobStatus;
+import org.sekoph.videoservice.model.enums.JobType;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.processing.PipelineStage;
+import org.sekoph.videoservice.processing.Rendition;
+import org.sekoph.videoservice.repository.InMemoryProcessingJobStore;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProcessingJobWorkerTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(60);
+
+    private MutableClock clock;
+    private InMemoryProcessingJobStore jobStore;
+    private VideoService videoService;
+    private VideoRepository videoRepository;
+    private PipelineScheduler pipelineScheduler;
+    private ProcessingJobWorker worker;
+    private String workerId;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.now());
+        jobStore = new InMemoryProcessingJobStore(clock);
+        videoService = mock(VideoService.class);
+        videoRepository = mock(VideoRepository.class);
+        pipelineScheduler = mock(PipelineScheduler.class);
+        worker = new ProcessingJobWorker(jobStore, videoService, videoRepository, pipelineScheduler);
+        workerId = (String) ReflectionTestUtils.getField(worker, "workerId");
+        ReflectionTestUtils.setField(worker, "leaseSeconds", LEASE.toSeconds());
+        ReflectionTestUtils.setField(worker, "maxAttempts", 2);
+        ReflectionTestUtils.setField(worker, "initialBackoffSeconds", 10L);
+        ReflectionTestUtils.setField(worker, "maxBackoffSeconds", 60L);
+    }
+
+    @Test
+    void videoJobEnqueuesPlannedTasks() throws Exception {
+        when(videoService.planVideo("video-1")).thenReturn(List.of(
+                ProcessingJob.segments("video-1", Rendition.P240, 0),
+                ProcessingJob.frames("video-1", 0, 600L),
+                ProcessingJob.frames("video-1", 600, null)));
+        jobStore.enqueue("video-1");
+
+        worker.run(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow());
+
+        assertEquals(JobStatus.COMPLETED, jobStore.find("video-1").orElseThrow().getStatus());
+        assertEquals(3, jobStore.countOpenTasks("video-1"));
+        verify(videoService, never()).completeVideo(any());
+    }
+
+    @Test
+    void fanOutProcessesTheVideoWithoutQueueingTasks() throws Exception {
+        ReflectionTestUtils.setField(worker, "fanOut", true);
+        jobStore.enqueue("video-1");
+
+        worker.run(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow());
+
+        verify(videoService).processVideo("video-1");
+        verify(videoService, never()).planVideo(any());
+        assertEquals(JobStatus.COMPLETED, jobStore.find("video-1").orElseThrow().getStatus());
+        assertEquals(0, jobStore.countOpenTasks("video-1"));
+    }
+
+    @Test
+    void lastFinishedTaskCompletesTheVideo() throws Exception {
+        jobStore.enqueueAll(List.of(ProcessingJob.segments("video-1", Rendition.P240, 0),
+                ProcessingJob.frames("video-1", 0, null)));
+
+        // tasks of one video can be claimed by different nodes
+        ProcessingJob segments = jobStore.claimNext(workerId, JobType.SEGMENTS, LEASE).orElseThrow();
+        ProcessingJob frames = jobStore.claimNext("other-node", JobType.FRAMES, LEASE).orElseThrow();
+
+        jobStore.complete(frames.getId(), "other-node");
+        assertEquals(1, jobStore.countOpenTasks("video-1"));
+
+        worker.run(segments);
+        verify(videoService).segmentVideo("video-1", Rendition.P240);
+        verify(videoService).completeVideo("video-1");
+        assertEquals(0, jobStore.countOpenTasks("video-1"));
+    }
+
+    @Test
+    void failedCompletionIsLeftToRecovery() throws Exception {
+        jobStore.enqueue("video-1");
+        jobStore.complete(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow().getId(), workerId);
+        jobStore.enqueueAll(List.of(ProcessingJob.segments("video-1", Rendition.P240, 0)));
+        doThrow(new VideoProcessingException("kept changing")).doNothing().when(videoService).completeVideo("video-1");
+
+        worker.run(jobStore.claimNext(workerId, JobType.SEGMENTS, LEASE).orElseThrow());
+
+        // the task is not retried, its segments are stored
+        assertEquals(JobStatus.COMPLETED, jobStore.find("video-1:segments:240p").orElseThrow().getStatus());
+
+        Video video = new Video();
+        video.setId("video-1");
+        video.setVideoStatus(VideoStatus.PROCESSING);
+        when(videoRepository.findByVideoStatusIn(any())).thenReturn(List.of(video));
+        worker.recover();
+
+        verify(videoService, times(2)).completeVideo("video-1");
+    }
+
+    @Test
+    void recoveryDoesNotCompleteVideosBeforeTheirTasksArePlanned() throws Exception {
+        jobStore.enqueue("video-1");
+        Video video = new Video();
+        video.setId("video-1");
+        video.setVideoStatus(VideoStatus.PROCESSING);
+        when(videoRepository.findByVideoStatusIn(any())).thenReturn(List.of(video));
+
+        worker.recover();
+
+        verify(videoService, never()).completeVideo(any());
+    }
+
+    @Test
+    void rejectedJobIsReleased() {
+        when(pipelineScheduler.freeSlots(PipelineStage.PROBE)).thenReturn(1);
+        doThrow(new RejectedExecutionException()).when(pipelineScheduler).submit(eq(PipelineStage.PROBE), any());
+        jobStore.enqueue("video-1");
+
+        worker.poll();
+
+        assertEquals(JobStatus.PENDING, jobStore.find("video-1").orElseThrow().getStatus());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(worker, "activeJobs")).isEmpty());
+    }
+
+    @Test
+    void firstRenditionsOfAllVideosAreClaimedBeforeTheRest() {
+        jobStore.enqueueAll(List.of(ProcessingJob.segments("video-1", Rendition.P240, 0),
+                ProcessingJob.segments("video-1", Rendition.P1080, 1)));
+        clock.advance(Duration.ofSeconds(1));
+        jobStore.enqueueAll(List.of(ProcessingJob.segments("video-2", Rendition.P240, 0),
+                ProcessingJob.segments("video-2", Rendition.P1080, 1)));
+
+        assertEquals("video-1:segments:240p", claimSegments().getId());
+        assertEquals("video-2:segments:240p", claimSegments().getId());
+        assertEquals("video-1:segments:1080p", claimSegments().getId());
+    }
+
+    private ProcessingJob claimSegments() {
+        return jobStore.claimNext(workerId, JobType.SEGMENTS, LEASE).orElseThrow();
+    }
+
+    @Test
+    void retriesWithBackoffThenFails() throws Exception {
+        doThrow(new VideoProcessingException("ffmpeg exploded")).when(videoService).planVideo("video-1");
+        jobStore.enqueue("video-1");
+
+        worker.run(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow());
+
+        ProcessingJob retried = jobStore.find("video-1").orElseThrow();
+        assertEquals(JobStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertTrue(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).isEmpty(), "job is backing off");
+        verify(videoService, never()).markVideoFailed(any());
+
+        clock.advance(Duration.ofSeconds(61));
+        worker.run(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow());
+
+        ProcessingJob failed = jobStore.find("video-1").orElseThrow();
+        assertEquals(JobStatus.FAILED, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertTrue(failed.getLastError().contains("ffmpeg exploded"));
+        verify(videoService).markVideoFailed("video-1");
+    }
+
+    @Test
+    void staleLeaseIsReclaimedByAnotherWorker() {
+        jobStore.enqueue("video-1");
+        jobStore.claimNext("crashed-node", JobType.VIDEO, LEASE).orElseThrow();
+
+        assertTrue(jobStore.claimNext(workerId, JobType.VIDEO, LEASE).isEmpty(), "lease is still held");
+
+        clock.advance(LEASE.plusSeconds(1));
+        ProcessingJob reclaimed = jobStore.claimNext(workerId, JobType.VIDEO, LEASE).orElseThrow();
+        assertEquals(workerId, reclaimed.getLeaseOwner());
+        assertEquals(2, reclaimed.getAttempts());
+        assertFalse(jobStore.renewLease("video-1", "crashed-node", LEASE));
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheCap() {
+        assertBackoff(10, worker.backoff(1));
+        assertBackoff(20, worker.backoff(2));
+        assertBackoff(40, worker.backoff(3));
+        assertBackoff(60, worker.backoff(10));
+    }
+
+    private void assertBackoff(long expectedSeconds, Duration backoff) {
+        // up to 20% jitter on top of the base delay
+        assertTrue(backoff.toMillis() >= expectedSeconds * 1000, backoff.toString());
+        assertTrue(backoff.toMillis() <= expectedSeconds * 1200, backoff.toString());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.sekoph.videoservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StreamingServiceTest {
+
+    private static final StreamingService.StoredObject ORIGINAL = new StreamingService.StoredObject("videos",
+            "video_1.mp4", 1000, "\"etag-1\"", 1_700_000_000_000L, "video/mp4");
+
+    private ObjectStore objectStore;
+    private StreamingService service;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectStore = mock(ObjectStore.class);
+        // the store returns exactly the requested range
+        when(objectStore.get(anyString(), anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long length = invocation.getArgument(3);
+            return CompletableFuture.completedFuture(new ByteArrayInputStream(
+                    new byte[(int) (length >= 0 ? length : ORIGINAL.size())]));
+        });
+        service = new StreamingService(mock(VideoService.class), objectStore);
+        request = new MockHttpServletRequest("GET", "/api/video/video-1/stream");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void onlyTheRangeIsReadFromTheStore() throws Exception {
+        request.addHeader("Range", "bytes=100-199");
+
+        service.stream(ORIGINAL, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentAsByteArray().length);
+        verify(objectStore).get("videos", "video_1.mp4", 100, 100);
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeObject() throws Exception {
+        request.addHeader("Range", "bytes=100-199");
+        request.addHeader("If-Range", "\"etag-0\"");
+
+        service.stream(ORIGINAL, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals(1000, response.getContentAsByteArray().length);
+        assertEquals("\"etag-1\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        request.addHeader("Range", "bytes=1000-");
+
+        service.stream(ORIGINAL, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader("Content-Range"));
+        verify(objectStore, never()).get(anyString(), anyString(), anyLong(), anyLong());
+    }
+}
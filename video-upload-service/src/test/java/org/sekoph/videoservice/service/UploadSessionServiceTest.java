@@ -0,0 +1,245 @@
+package org.sekoph.videoservice.service;
+
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
+import org.sekoph.videoservice.dto.UploadSessionResponseDTO;
+import org.sekoph.videoservice.dto.VideoResponseDTO;
+import org.sekoph.videoservice.exception.UploadSessionException;
+import org.sekoph.videoservice.exception.VideoProcessingException;
+import org.sekoph.videoservice.minIO.MultipartUploads;
+import org.sekoph.videoservice.model.UploadPart;
+import org.sekoph.videoservice.model.UploadSession;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.ContainerFormat;
+import org.sekoph.videoservice.model.enums.UploadSessionStatus;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.repository.UploadSessionRepository;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadSessionServiceTest {
+
+    private static final long CHUNK = DataSize.ofMegabytes(5).toBytes();
+    private static final UUID OWNER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private UploadSessionRepository sessionRepository;
+    private VideoRepository videoRepository;
+    private MultipartUploads multipartUploads;
+    private ObjectStore objectStore;
+    private VideoService videoService;
+    private UploadSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository = mock(UploadSessionRepository.class);
+        videoRepository = mock(VideoRepository.class);
+        multipartUploads = mock(MultipartUploads.class);
+        objectStore = mock(ObjectStore.class);
+        videoService = mock(VideoService.class);
+        PipelineScheduler pipelineScheduler = mock(PipelineScheduler.class);
+        when(pipelineScheduler.admitUpload()).thenReturn(() -> {
+        });
+        service = new UploadSessionService(sessionRepository, videoRepository, multipartUploads, objectStore,
+                videoService, pipelineScheduler);
+        ReflectionTestUtils.setField(service, "videosBucket", "videos");
+        ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(CHUNK));
+        ReflectionTestUtils.setField(service, "maxUploadSize", DataSize.ofGigabytes(1));
+        ReflectionTestUtils.setField(service, "sessionTtlHours", 24L);
+    }
+
+    @Test
+    void firstChunkIsSniffedAndStoredAsPartOne() throws Exception {
+        UploadSession session = session(CHUNK + 10);
+        when(multipartUploads.uploadPart(eq("videos"), eq("video_1.mp4"), eq("upload-1"), eq(1), any()))
+                .thenReturn("etag-1");
+        when(sessionRepository.recordPart(eq("session-1"), eq(1), any(), eq(ContainerFormat.MP4), any()))
+                .thenReturn(true);
+
+        UploadSessionResponseDTO response = service.uploadChunk("session-1", OWNER, 0, CHUNK,
+                new ByteArrayInputStream(mp4((int) CHUNK)));
+
+        assertEquals(CHUNK, response.getReceivedBytes());
+        assertEquals(CHUNK, response.getOffset());
+        assertEquals(List.of(CHUNK), response.getMissingOffsets());
+    }
+
+    @Test
+    void rejectsChunksThatDoNotLineUp() {
+        session(CHUNK * 3);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.uploadChunk("session-1", OWNER, 100, CHUNK, new ByteArrayInputStream(new byte[0])));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.uploadChunk("session-1", OWNER, CHUNK, CHUNK - 1, new ByteArrayInputStream(new byte[0])));
+        verifyNoInteractions(multipartUploads);
+    }
+
+    @Test
+    void completeRefusesWhileChunksAreMissing() {
+        UploadSession session = session(CHUNK * 2);
+        session.getParts().put("2", part("etag-2"));
+
+        UploadSessionException e = assertThrows(UploadSessionException.class,
+                () -> service.completeSession("session-1", OWNER));
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+        verify(sessionRepository, never()).transition(any(), any(), any());
+    }
+
+    @Test
+    void completeAssemblesPartsInOrderAndRegistersTheVideo() throws Exception {
+        UploadSession session = session(CHUNK * 2 + 1);
+        session.setContainerFormat(ContainerFormat.MP4);
+        session.getParts().put("3", part("etag-3"));
+        session.getParts().put("1", part("etag-1"));
+        session.getParts().put("2", part("etag-2"));
+        when(sessionRepository.transition("session-1", UploadSessionStatus.UPLOADING, UploadSessionStatus.COMPLETING))
+                .thenReturn(true);
+        VideoResponseDTO video = new VideoResponseDTO();
+        video.setId("video-1");
+        byte[] data = mp4((int) (CHUNK * 2 + 1));
+        stored(data);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        when(videoService.registerVideo(any(), eq("clip.mp4"), eq("video_1.mp4"), eq(ContainerFormat.MP4),
+                eq(CHUNK * 2 + 1), eq(sha256))).thenReturn(video);
+
+        assertSame(video, service.completeSession("session-1", OWNER));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Part>> parts = ArgumentCaptor.forClass(List.class);
+        verify(multipartUploads).complete(eq("videos"), eq("video_1.mp4"), eq("upload-1"), parts.capture());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), parts.getValue().stream().map(Part::etag).toList());
+        verify(sessionRepository).markCompleted("session-1", "video-1");
+    }
+
+    @Test
+    void failedRegistrationIsRetriedWithoutAssemblingAgain() throws Exception {
+        UploadSession session = session(CHUNK);
+        session.getParts().put("1", part("etag-1"));
+        stored(mp4((int) CHUNK));
+        when(sessionRepository.transition("session-1", UploadSessionStatus.UPLOADING, UploadSessionStatus.COMPLETING))
+                .thenReturn(true);
+        VideoResponseDTO video = new VideoResponseDTO();
+        video.setId("video-1");
+        when(videoService.registerVideo(any(), any(), any(), any(), anyLong(), any()))
+                .thenThrow(new IllegalStateException("mongo unavailable"))
+                .thenReturn(video);
+
+        assertThrows(VideoProcessingException.class, () -> service.completeSession("session-1", OWNER));
+        verify(sessionRepository).transition("session-1", UploadSessionStatus.COMPLETING,
+                UploadSessionStatus.ASSEMBLED);
+        verify(sessionRepository, never()).markCompleted(any(), any());
+
+        session.setStatus(UploadSessionStatus.ASSEMBLED);
+        when(sessionRepository.transition("session-1", UploadSessionStatus.ASSEMBLED, UploadSessionStatus.COMPLETING))
+                .thenReturn(true);
+        assertSame(video, service.completeSession("session-1", OWNER));
+
+        verify(multipartUploads, times(1)).complete(any(), any(), any(), any());
+        verify(objectStore, never()).delete(any(), any());
+        verify(sessionRepository).markCompleted("session-1", "video-1");
+    }
+
+    @Test
+    void sweepDeletesTheObjectOfSessionsAbandonedAfterAssembly() throws Exception {
+        UploadSession uploading = session(CHUNK);
+        UploadSession assembled = session(CHUNK);
+        assembled.setId("session-2");
+        assembled.setObjectKey("video_2.mp4");
+        assembled.setStatus(UploadSessionStatus.ASSEMBLED);
+        when(sessionRepository.findExpired(any(Instant.class), anyInt())).thenReturn(List.of(uploading, assembled));
+
+        service.sweep();
+
+        verify(multipartUploads).abort("videos", "video_1.mp4", "upload-1");
+        verify(objectStore, never()).delete("videos", List.of("video_1.mp4"));
+        verify(objectStore).delete("videos", List.of("video_2.mp4"));
+        verify(sessionRepository).deleteById("session-1");
+        verify(sessionRepository).deleteById("session-2");
+    }
+
+    @Test
+    void sweepMarksSessionsCompletedWhoseVideoWasRegistered() throws Exception {
+        UploadSession session = session(CHUNK);
+        session.setStatus(UploadSessionStatus.COMPLETING);
+        when(sessionRepository.findExpired(any(Instant.class), anyInt())).thenReturn(List.of(session));
+        Video video = new Video();
+        video.setId("video-1");
+        when(videoRepository.findFirstByVideoS3Key("video_1.mp4")).thenReturn(Optional.of(video));
+
+        service.sweep();
+
+        verify(sessionRepository).markCompleted("session-1", "video-1");
+        verify(objectStore, never()).delete(any(), any());
+        verify(sessionRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void otherUsersCannotTouchASession() {
+        session(CHUNK);
+        UUID stranger = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+        for (Executable call : List.<Executable>of(
+                () -> service.getSession("session-1", stranger),
+                () -> service.uploadChunk("session-1", stranger, 0, CHUNK, new ByteArrayInputStream(mp4((int) CHUNK))),
+                () -> service.completeSession("session-1", stranger),
+                () -> service.abortSession("session-1", stranger))) {
+            UploadSessionException e = assertThrows(UploadSessionException.class, call);
+            assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+        }
+        verifyNoInteractions(multipartUploads, objectStore, videoService);
+        verify(sessionRepository, never()).deleteById(any());
+    }
+
+    private UploadSession session(long length) {
+        UploadSession session = new UploadSession();
+        session.setId("session-1");
+        session.setUserID(OWNER);
+        session.setUploadId("upload-1");
+        session.setObjectKey("video_1.mp4");
+        session.setOriginalFilename("clip.mp4");
+        session.setLength(length);
+        session.setChunkSize(CHUNK);
+        session.setStatus(UploadSessionStatus.UPLOADING);
+        when(sessionRepository.findById("session-1")).thenReturn(Optional.of(session));
+        return session;
+    }
+
+    private void stored(byte[] data) {
+        when(objectStore.get("videos", "video_1.mp4", 0, data.length))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(new ByteArrayInputStream(data)));
+    }
+
+    private static UploadPart part(String etag) {
+        UploadPart part = new UploadPart();
+        part.setEtag(etag);
+        part.setSize(CHUNK);
+        return part;
+    }
+
+    private static byte[] mp4(int size) {
+        byte[] data = new byte[size];
+        byte[] header = "\0\0\0\u0018ftypisom".getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(header, 0, data, 0, header.length);
+        return data;
+    }
+}
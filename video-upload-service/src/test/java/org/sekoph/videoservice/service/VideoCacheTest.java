@@ -0,0 +1,89 @@
+package org.sekoph.videoservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.repository.InMemoryVideoChangeStream;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoCacheTest {
+
+    private InMemoryVideoChangeStream changeStream;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+    private Function<String, Optional<Video>> loader;
+
+    @BeforeEach
+    void setUp() {
+        changeStream = new InMemoryVideoChangeStream();
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return id.startsWith("missing") ? Optional.empty() : Optional.of(video(id));
+        };
+    }
+
+    @Test
+    void servesRepeatedReadsFromMemoryUntilAnotherNodeChangesTheVideo() {
+        VideoCache cache = cache(100);
+
+        cache.get("video-1", loader);
+        cache.get("video-1", loader);
+        assertEquals(1, loads.get());
+
+        changeStream.publish("video-1");
+        cache.get("video-1", loader);
+        assertEquals(2, loads.get());
+
+        changeStream.reset();
+        cache.get("video-1", loader);
+        assertEquals(3, loads.get());
+
+        assertEquals(0.25, meterRegistry.get("video.cache.hit.ratio").gauge().value());
+        assertEquals(3, meterRegistry.get("video.cache.load").timer().count());
+    }
+
+    @Test
+    void doesNotRememberMissingVideos() {
+        VideoCache cache = cache(100);
+
+        assertTrue(cache.get("missing-1", loader).isEmpty());
+        assertTrue(cache.get("missing-1", loader).isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void boundsTheNumberOfEntries() {
+        VideoCache cache = cache(10);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("video-" + i, loader);
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.stats().evictionCount() >= 90);
+    }
+
+    private VideoCache cache(long maxEntries) {
+        VideoCache cache = new VideoCache(changeStream, meterRegistry, DataSize.ofMegabytes(1), maxEntries, 300, 10);
+        cache.start();
+        return cache;
+    }
+
+    private static Video video(String id) {
+        Video video = new Video();
+        video.setId(id);
+        video.setTitle("title");
+        video.setVideoStatus(VideoStatus.READY);
+        return video;
+    }
+}
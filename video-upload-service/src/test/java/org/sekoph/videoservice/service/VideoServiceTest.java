@@ -0,0 +1,104 @@
+package org.sekoph.videoservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sekoph.videoservice.exception.VideoAccessDeniedException;
+import org.sekoph.videoservice.exception.VideoNotFoundException;
+import org.sekoph.videoservice.model.Video;
+import org.sekoph.videoservice.model.enums.VideoStatus;
+import org.sekoph.videoservice.model.enums.VisibleStatus;
+import org.sekoph.videoservice.processing.ArtifactUploader;
+import org.sekoph.videoservice.processing.FrameExtractionEngine;
+import org.sekoph.videoservice.processing.MediaProbe;
+import org.sekoph.videoservice.processing.PipelineMetrics;
+import org.sekoph.videoservice.processing.PipelineScheduler;
+import org.sekoph.videoservice.processing.ScratchSpace;
+import org.sekoph.videoservice.processing.SegmentationEngine;
+import org.sekoph.videoservice.processing.VideoInputResolver;
+import org.sekoph.videoservice.repository.ProcessingJobStore;
+import org.sekoph.videoservice.repository.VideoFrameRepository;
+import org.sekoph.videoservice.repository.VideoRepository;
+import org.sekoph.videoservice.repository.VideoSegmentRepository;
+import org.sekoph.videoservice.storage.ObjectStore;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VideoServiceTest {
+
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final UUID STRANGER = UUID.randomUUID();
+
+    private VideoRepository videoRepository;
+    private VideoCache videoCache;
+    private PresignedUrlService urlService;
+    private ContentAssetService contentAssetService;
+    private VideoService service;
+    private Video video;
+
+    @BeforeEach
+    void setUp() {
+        videoRepository = mock(VideoRepository.class);
+        videoCache = mock(VideoCache.class);
+        urlService = mock(PresignedUrlService.class);
+        contentAssetService = mock(ContentAssetService.class);
+        service = new VideoService(videoRepository, mock(VideoSegmentRepository.class),
+                mock(VideoFrameRepository.class), mock(ObjectStore.class), mock(ProcessingJobStore.class),
+                mock(SegmentationEngine.class), mock(FrameExtractionEngine.class), mock(PipelineScheduler.class),
+                contentAssetService, mock(VideoInputResolver.class), videoCache, urlService,
+                mock(MediaProbe.class), mock(PipelineMetrics.class), mock(ArtifactUploader.class),
+                mock(ScratchSpace.class));
+
+        video = new Video();
+        video.setId("video-1");
+        video.setUserID(OWNER);
+        video.setVideoStatus(VideoStatus.READY);
+        video.setVisibility(VisibleStatus.PRIVATE);
+        when(videoCache.get(eq("video-1"), any())).thenReturn(Optional.of(video));
+    }
+
+    @Test
+    void privateVideosAreOnlyShownToTheirOwner() {
+        assertEquals("video-1", service.getVideo("video-1", OWNER, true, true).getId());
+        assertEquals(0, service.getSegments("video-1", OWNER, null, null, 10).getItems().size());
+
+        assertThrows(VideoNotFoundException.class, () -> service.getVideo("video-1", STRANGER, true, true));
+        assertThrows(VideoNotFoundException.class, () -> service.getVideo("video-1", null, false, false));
+        assertThrows(VideoNotFoundException.class,
+                () -> service.getSegments("video-1", STRANGER, null, null, 10));
+        assertThrows(VideoNotFoundException.class,
+                () -> service.getKeyFrames("video-1", null, 0, null, null, 10));
+        assertThrows(VideoNotFoundException.class, () -> service.getRenditions("video-1", STRANGER));
+        assertThrows(VideoNotFoundException.class, () -> service.getPlaybackSegments("video-1", null, "720p"));
+        assertThrows(VideoNotFoundException.class, () -> service.getThumbnails("video-1", STRANGER));
+    }
+
+    @Test
+    void onlyTheOwnerDeletesAVideo() {
+        when(videoRepository.findById("video-1")).thenReturn(Optional.of(video));
+        when(videoRepository.markDeleted("video-1")).thenReturn(true);
+
+        assertThrows(VideoNotFoundException.class, () -> service.deleteVideo("video-1", STRANGER));
+        video.setVisibility(VisibleStatus.PUBLIC);
+        assertThrows(VideoAccessDeniedException.class, () -> service.deleteVideo("video-1", STRANGER));
+        verify(videoRepository, never()).markDeleted(any());
+
+        service.deleteVideo("video-1", OWNER);
+
+        verify(videoRepository).markDeleted("video-1");
+        verify(contentAssetService).release(video);
+    }
+
+    @Test
+    void publicVideosAreShownToAnyone() {
+        video.setVisibility(VisibleStatus.PUBLIC);
+
+        assertEquals("video-1", service.getVideo("video-1", null, false, false).getId());
+        assertEquals("video-1", service.getStreamableVideo("video-1", STRANGER).getId());
+    }
+}
@@ -0,0 +1,81 @@
+package org.sekoph.videoservice.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileObjectStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private LocalFileObjectStore store;
+    private byte[] data;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new LocalFileObjectStore(dir.resolve("objects"));
+        data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void storesFilesAndReadsRanges() throws Exception {
+        Path file = Files.write(dir.resolve("segment.ts"), data);
+        ObjectStore.await(store.put("segments", "segment_1.ts", file, "video/mp2t"));
+
+        assertTrue(Files.exists(file), "the source file is left in place");
+        ObjectStore.ObjectInfo info = store.stat("segments", "segment_1.ts").orElseThrow();
+        assertEquals(1000, info.size());
+        assertNotNull(info.etag());
+
+        try (InputStream in = ObjectStore.await(store.get("segments", "segment_1.ts", 100, 200))) {
+            assertArrayEquals(Arrays.copyOfRange(data, 100, 300), in.readAllBytes());
+        }
+        try (InputStream in = ObjectStore.await(store.get("segments", "segment_1.ts"))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void readsAcrossMappedWindows() throws Exception {
+        Path file = Files.write(dir.resolve("original.mp4"), data);
+        try (InputStream in = new LocalFileObjectStore.MappedInputStream(
+                FileChannel.open(file, StandardOpenOption.READ), 10, 990, 64)) {
+            assertArrayEquals(Arrays.copyOfRange(data, 10, 990), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void deletesAndReportsMissingObjects() throws Exception {
+        store.put("frames", "frame_1.jpg", new ByteArrayInputStream(data), "image/jpeg", 0);
+        store.delete("frames", List.of("frame_1.jpg", "frame_2.jpg"));
+
+        assertTrue(store.stat("frames", "frame_1.jpg").isEmpty());
+    }
+
+    @Test
+    void rejectsKeysOutsideTheirBucket() {
+        assertThrows(IllegalArgumentException.class, () -> store.stat("frames", "../videos/video_1.mp4"));
+        assertThrows(IllegalArgumentException.class, () -> store.stat("..", "video_1.mp4"));
+    }
+}
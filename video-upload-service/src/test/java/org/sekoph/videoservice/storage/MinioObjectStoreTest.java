@@ -0,0 +1,143 @@
+package org.sekoph.videoservice.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.UploadObjectArgs;
+import io.minio.UploadPartResponse;
+import io.minio.messages.InitiateMultipartUploadResult;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MinioObjectStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private MinioAsyncClient minioAsyncClient;
+    private MinioObjectStore store;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        minioAsyncClient = mock(MinioAsyncClient.class);
+        when(minioAsyncClient.bucketExists(any(BucketExistsArgs.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                        !"frames".equals(invocation.<BucketExistsArgs>getArgument(0).bucket())));
+        when(minioAsyncClient.makeBucket(any(MakeBucketArgs.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(minioAsyncClient.uploadObject(any(UploadObjectArgs.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        store = new MinioObjectStore(minioAsyncClient, "videos", "segments", "frames", DataSize.ofBytes(20),
+                DataSize.ofBytes(10), 2);
+        file = Files.write(dir.resolve("segment.ts"), new byte[10]);
+    }
+
+    @Test
+    void bucketsAreLookedUpOnceAtStartup() throws Exception {
+        store.createBuckets();
+        verify(minioAsyncClient, times(3)).bucketExists(any(BucketExistsArgs.class));
+        verify(minioAsyncClient, times(1)).makeBucket(any(MakeBucketArgs.class));
+
+        ObjectStore.await(store.put("segments", "segment_1.ts", file, "video/mp2t"));
+        ObjectStore.await(store.put("frames", "frame_1.jpg", file, "image/jpeg"));
+
+        verify(minioAsyncClient, times(3)).bucketExists(any(BucketExistsArgs.class));
+        verify(minioAsyncClient, times(2)).uploadObject(any(UploadObjectArgs.class));
+    }
+
+    @Test
+    void otherBucketsAreLookedUpOnFirstUse() throws Exception {
+        ObjectStore.await(store.put("scratch", "segment_1.ts", file, "video/mp2t"));
+        ObjectStore.await(store.put("scratch", "segment_2.ts", file, "video/mp2t"));
+
+        verify(minioAsyncClient, times(1)).bucketExists(any(BucketExistsArgs.class));
+        verify(minioAsyncClient, never()).makeBucket(any(MakeBucketArgs.class));
+    }
+
+    @Test
+    void largeFilesAreUploadedInParallelParts() throws Exception {
+        byte[] data = new byte[25];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path video = Files.write(dir.resolve("original.mp4"), data);
+        InitiateMultipartUploadResult initiated = mock(InitiateMultipartUploadResult.class);
+        when(initiated.uploadId()).thenReturn("upload-1");
+        when(minioAsyncClient.createMultipartUploadAsync(eq("videos"), any(), eq("original.mp4"), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new CreateMultipartUploadResponse(Headers.of(), "videos", null, "original.mp4", initiated)));
+        Map<Integer, byte[]> received = new ConcurrentHashMap<>();
+        when(minioAsyncClient.uploadPartAsync(eq("videos"), any(), eq("original.mp4"), any(), anyLong(),
+                eq("upload-1"), anyInt(), any(), any()))
+                .thenAnswer(invocation -> {
+                    RandomAccessFile part = invocation.getArgument(3);
+                    byte[] bytes = new byte[(int) (long) invocation.<Long>getArgument(4)];
+                    part.readFully(bytes);
+                    int partNumber = invocation.getArgument(6);
+                    received.put(partNumber, bytes);
+                    return CompletableFuture.completedFuture(new UploadPartResponse(Headers.of(), "videos", null,
+                            "original.mp4", "upload-1", partNumber, "etag-" + partNumber));
+                });
+        when(minioAsyncClient.completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        ObjectStore.await(store.put("videos", "original.mp4", video, "video/mp4"));
+
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 10), received.get(1));
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 20), received.get(2));
+        assertArrayEquals(Arrays.copyOfRange(data, 20, 25), received.get(3));
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        verify(minioAsyncClient).completeMultipartUploadAsync(eq("videos"), any(), eq("original.mp4"),
+                eq("upload-1"), parts.capture(), any(), any());
+        assertEquals(List.of(1, 2, 3), Arrays.stream(parts.getValue()).map(Part::partNumber).toList());
+        assertEquals("etag-3", parts.getValue()[2].etag());
+        verify(minioAsyncClient, never()).uploadObject(any(UploadObjectArgs.class));
+    }
+
+    @Test
+    void failedPartAbortsTheUpload() throws Exception {
+        Path video = Files.write(dir.resolve("original.mp4"), new byte[25]);
+        InitiateMultipartUploadResult initiated = mock(InitiateMultipartUploadResult.class);
+        when(initiated.uploadId()).thenReturn("upload-1");
+        when(minioAsyncClient.createMultipartUploadAsync(any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new CreateMultipartUploadResponse(Headers.of(), "videos", null, "original.mp4", initiated)));
+        when(minioAsyncClient.uploadPartAsync(any(), any(), any(), any(), anyLong(), any(), anyInt(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("connection reset")));
+        when(minioAsyncClient.abortMultipartUploadAsync(any(), any(), any(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        IOException failure = assertThrows(IOException.class,
+                () -> ObjectStore.await(store.put("videos", "original.mp4", video, "video/mp4")));
+
+        assertTrue(store.isTransient(failure));
+        verify(minioAsyncClient).abortMultipartUploadAsync(eq("videos"), any(), eq("original.mp4"), eq("upload-1"),
+                any(), any());
+        verify(minioAsyncClient, never()).completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(),
+                any());
+    }
+}